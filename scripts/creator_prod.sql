@@ -58,6 +58,7 @@ CREATE TABLE IF NOT EXISTS `heroku_5e5a99a3d3d237e`.`ps_product_category` (
   `id_product_category` INT NOT NULL AUTO_INCREMENT,
   `code` VARCHAR(30) NOT NULL,
   `description` VARCHAR(50) NOT NULL,
+  `reorder_threshold` INT NULL DEFAULT NULL,
   PRIMARY KEY (`id_product_category`),
   UNIQUE INDEX `clave_UNIQUE` (`code` ASC))
 ENGINE = InnoDB;
@@ -66,6 +67,30 @@ ENGINE = InnoDB;
 -- -----------------------------------------------------
 -- Table `heroku_5e5a99a3d3d237e`.`ps_product`
 -- -----------------------------------------------------
+-- Busqueda por nombre: el indice FULLTEXT usa el parser ngram (ngram_token_size=2).
+-- La lista de stopwords excluye cualquier ngrama que contenga una stopword ('a', 'i', ...),
+-- por lo que la sesión que crea el indice debe tener innodb_ft_enable_stopword=OFF.
+-- Para una base existente:
+--   SET SESSION innodb_ft_enable_stopword = OFF;
+--   ALTER TABLE `ps_product` ADD FULLTEXT INDEX `name_ngram_FULLTEXT` (`name`) WITH PARSER ngram;
+-- Orden y filtros del listado (ProductSortEnum): InnoDB agrega id_product al final de cada indice,
+-- por lo que resuelven ORDER BY columna, id_product y la paginacion por cursor sin ordenar en memoria.
+-- Para una base existente:
+--   ALTER TABLE `ps_product`
+--     ADD INDEX `category_quantity_INDEX` (`id_product_category` ASC, `quantity` ASC),
+--     ADD INDEX `category_unit_price_INDEX` (`id_product_category` ASC, `unit_price` ASC),
+--     ADD INDEX `quantity_INDEX` (`quantity` ASC),
+--     ADD INDEX `unit_price_INDEX` (`unit_price` ASC),
+--     ADD INDEX `modification_date_INDEX` (`modification_date` ASC);
+-- Alertas de existencias bajas: reorder_margin es NULL si el producto usa el punto de reorden de su categoria;
+-- los productos con punto propio que llegaron a el se leen con un rango sobre reorder_margin_INDEX.
+-- Para una base existente:
+--   ALTER TABLE `ps_product_category` ADD COLUMN `reorder_threshold` INT NULL DEFAULT NULL;
+--   ALTER TABLE `ps_product`
+--     ADD COLUMN `reorder_threshold` INT NULL DEFAULT NULL,
+--     ADD COLUMN `reorder_margin` INT AS (`quantity` - `reorder_threshold`) STORED,
+--     ADD INDEX `reorder_margin_INDEX` (`reorder_margin` ASC);
+SET SESSION innodb_ft_enable_stopword = OFF;
 CREATE TABLE IF NOT EXISTS `heroku_5e5a99a3d3d237e`.`ps_product` (
   `id_product` INT NOT NULL AUTO_INCREMENT,
   `id_product_category` INT NOT NULL,
@@ -77,10 +102,19 @@ CREATE TABLE IF NOT EXISTS `heroku_5e5a99a3d3d237e`.`ps_product` (
   `picture` VARCHAR(180) NULL DEFAULT NULL,
   `creation_date` DATETIME NOT NULL,
   `modification_date` DATETIME NULL,
+  `reorder_threshold` INT NULL DEFAULT NULL,
+  `reorder_margin` INT AS (`quantity` - `reorder_threshold`) STORED,
   PRIMARY KEY (`id_product`),
   UNIQUE INDEX `name_id_category_UNIQUE` (`name` ASC, `id_product_category` ASC),
   INDEX `fk_ps_product_ps_product_category1` (`id_product_category` ASC),
   UNIQUE INDEX `code_UNIQUE` (`code` ASC),
+  FULLTEXT INDEX `name_ngram_FULLTEXT` (`name`) WITH PARSER ngram,
+  INDEX `category_quantity_INDEX` (`id_product_category` ASC, `quantity` ASC),
+  INDEX `category_unit_price_INDEX` (`id_product_category` ASC, `unit_price` ASC),
+  INDEX `quantity_INDEX` (`quantity` ASC),
+  INDEX `unit_price_INDEX` (`unit_price` ASC),
+  INDEX `modification_date_INDEX` (`modification_date` ASC),
+  INDEX `reorder_margin_INDEX` (`reorder_margin` ASC),
   CONSTRAINT `fk_ps_product_ps_product_category1`
     FOREIGN KEY (`id_product_category`)
     REFERENCES `heroku_5e5a99a3d3d237e`.`ps_product_category` (`id_product_category`)
@@ -108,6 +142,47 @@ CREATE TABLE IF NOT EXISTS `heroku_5e5a99a3d3d237e`.`ps_restore_code` (
 ENGINE = InnoDB;
 
 
+-- -----------------------------------------------------
+-- Table `heroku_5e5a99a3d3d237e`.`ps_stock_journal`
+-- -----------------------------------------------------
+-- Ultimo segmento del journal de existencias (StockBufferServiceImpl) aplicado en la base, por journal;
+-- se guarda en la transaccion de cada lote para no volver a aplicar un segmento al recuperar.
+CREATE TABLE IF NOT EXISTS `heroku_5e5a99a3d3d237e`.`ps_stock_journal` (
+  `journal_id` VARCHAR(36) NOT NULL,
+  `last_segment` BIGINT NOT NULL,
+  `modification_date` DATETIME NOT NULL,
+  PRIMARY KEY (`journal_id`))
+ENGINE = InnoDB;
+
+
+-- -----------------------------------------------------
+-- Table `heroku_5e5a99a3d3d237e`.`ps_stock_movement`
+-- -----------------------------------------------------
+-- Historial de movimientos de existencias: solo se inserta, nunca se actualiza ni se borra por renglon.
+-- Particionado por mes sobre movement_date: una consulta con rango de fechas solo lee sus particiones
+-- y los meses vencidos se eliminan con DROP PARTITION, sin DELETE masivo.
+-- MySQL no permite llaves foraneas en tablas particionadas; id_product no tiene FK y el historial
+-- se conserva aunque el producto se elimine. La llave primaria debe incluir la columna de particion.
+-- Los meses se agregan con esta migracion (requiere privilegio ALTER), una vez al mes o por adelantado:
+--   ALTER TABLE `heroku_5e5a99a3d3d237e`.`ps_stock_movement` REORGANIZE PARTITION `pmax` INTO (
+--     PARTITION `p202611` VALUES LESS THAN ('2026-12-01'),
+--     PARTITION `pmax` VALUES LESS THAN (MAXVALUE));
+-- y los vencidos con ALTER TABLE ... DROP PARTITION `p202501`.
+-- Con pineapple.app.stockMovementPartitionMaintenance=true lo hace StockLedgerServiceImpl (una instancia a la vez).
+CREATE TABLE IF NOT EXISTS `heroku_5e5a99a3d3d237e`.`ps_stock_movement` (
+  `id_stock_movement` BIGINT NOT NULL AUTO_INCREMENT,
+  `id_product` INT NOT NULL,
+  `delta` INT NOT NULL,
+  `reason` VARCHAR(20) NOT NULL,
+  `username` VARCHAR(30) NULL DEFAULT NULL,
+  `movement_date` DATETIME NOT NULL,
+  PRIMARY KEY (`id_stock_movement`, `movement_date`),
+  INDEX `product_movement_INDEX` (`id_product` ASC, `id_stock_movement` ASC))
+ENGINE = InnoDB
+PARTITION BY RANGE COLUMNS(`movement_date`) (
+  PARTITION `pmax` VALUES LESS THAN (MAXVALUE));
+
+
 SET SQL_MODE=@OLD_SQL_MODE;
 SET FOREIGN_KEY_CHECKS=@OLD_FOREIGN_KEY_CHECKS;
 SET UNIQUE_CHECKS=@OLD_UNIQUE_CHECKS;
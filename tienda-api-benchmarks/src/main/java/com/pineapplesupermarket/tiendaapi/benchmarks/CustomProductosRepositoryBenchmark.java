@@ -0,0 +1,57 @@
+package com.pineapplesupermarket.tiendaapi.benchmarks;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import com.pineapplesupermarket.tiendaapi.models.Product;
+import com.pineapplesupermarket.tiendaapi.repositories.CustomProductosRepository;
+/**
+ *Benchmark de la construcción del SQL del listado de productos, sin base de datos
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomProductosRepositoryBenchmark {
+
+	private CustomProductosRepository repository;
+
+	private Pageable pageable;
+
+	private Date fecha;
+
+	@Setup
+	public void setup() {
+		repository = Fixtures.repositorioSinBase();
+		pageable = PageRequest.of(3, 10);
+		fecha = new Date();
+	}
+
+	@Benchmark
+	public Page<Product> findAllSinFiltros() {
+		return repository.findAll(null, null, null, pageable);
+	}
+
+	@Benchmark
+	public Page<Product> findAllConFiltros() {
+		return repository.findAll("piña", "FRUTAS", fecha, pageable);
+	}
+}
@@ -0,0 +1,66 @@
+package com.pineapplesupermarket.tiendaapi.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.pineapplesupermarket.tiendaapi.repositories.CustomProductosRepository;
+import com.pineapplesupermarket.tiendaapi.util.ExportarInventario;
+import com.pineapplesupermarket.tiendaapi.util.ExportarInventarioCsv;
+/**
+ *Benchmark de la generación de renglones del inventario, la salida se descarta
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportarInventarioBenchmark {
+
+	@Param({"1000", "10000"})
+	private int rows;
+
+	private ExportarInventario xlsx;
+
+	private ExportarInventarioCsv csv;
+
+	@Setup
+	public void setup() {
+		CustomProductosRepository repository = Fixtures.repositorioConInventario(rows);
+
+		xlsx = new ExportarInventario();
+		ReflectionTestUtils.setField(xlsx, "customProductosRepository", repository);
+		ReflectionTestUtils.setField(xlsx, "fetchSize", 1000);
+		ReflectionTestUtils.setField(xlsx, "rowWindow", 100);
+
+		csv = new ExportarInventarioCsv();
+		ReflectionTestUtils.setField(csv, "customProductosRepository", repository);
+		ReflectionTestUtils.setField(csv, "fetchSize", 1000);
+	}
+
+	@Benchmark
+	public long xlsx() throws IOException {
+		return xlsx.writeInventario(OutputStream.nullOutputStream());
+	}
+
+	@Benchmark
+	public long csv() throws IOException {
+		return csv.writeInventario(OutputStream.nullOutputStream());
+	}
+}
@@ -0,0 +1,78 @@
+package com.pineapplesupermarket.tiendaapi.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.Date;
+import java.util.function.Consumer;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.pineapplesupermarket.tiendaapi.dto.InventarioRowDTO;
+import com.pineapplesupermarket.tiendaapi.repositories.CustomProductosRepository;
+/**
+ *Datos en memoria para los benchmarks, reemplazan a la base de datos
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+public class Fixtures {
+
+	/**Método para crear un repositorio con un EntityManager que no va a la base:
+	 * los queries regresan listas vacías y conteos en cero, solo se mide armar el SQL
+	 * @return CustomProductosRepository
+	 */
+	public static CustomProductosRepository repositorioSinBase() {
+		CustomProductosRepository repository = new CustomProductosRepository();
+		ReflectionTestUtils.setField(repository, "entityManager", entityManagerStub());
+		return repository;
+	}
+
+	/**Método para crear un repositorio que entrega un inventario fijo de productos
+	 * @param rows
+	 * @return CustomProductosRepository
+	 */
+	public static CustomProductosRepository repositorioConInventario(int rows) {
+		InventarioRowDTO[] inventario = new InventarioRowDTO[rows];
+		Date fecha = new Date();
+		for(int i = 0; i < rows; i++) {
+			inventario[i] = new InventarioRowDTO((long) i + 1, "ABARROTES", "Abarrotes, \"básicos\"",
+					"P" + i, "Producto " + i, "Descripción del producto " + i, i % 500, 10.5 + i, fecha, fecha);
+		}
+		return new CustomProductosRepository() {
+			@Override
+			public long scrollInventario(int fetchSize, Consumer<InventarioRowDTO> consumer) {
+				for(InventarioRowDTO row : inventario) {
+					consumer.accept(row);
+				}
+				return inventario.length;
+			}
+		};
+	}
+
+	/**Método para crear el EntityManager falso
+	 * @return EntityManager
+	 */
+	private static EntityManager entityManagerStub() {
+		Query query = (Query) Proxy.newProxyInstance(Query.class.getClassLoader(), new Class<?>[] {Query.class},
+				(proxy, method, args) -> {
+					switch(method.getName()) {
+					case "getResultList":
+						return Collections.emptyList();
+					case "getSingleResult":
+						return BigInteger.ZERO;
+					default:
+						return proxy;
+					}
+				});
+		return (EntityManager) Proxy.newProxyInstance(EntityManager.class.getClassLoader(),
+				new Class<?>[] {EntityManager.class}, (proxy, method, args) -> {
+					if(method.getName().startsWith("createNativeQuery")) {
+						return query;
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+	}
+}
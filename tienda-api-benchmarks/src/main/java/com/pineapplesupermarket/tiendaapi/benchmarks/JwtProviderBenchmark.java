@@ -0,0 +1,74 @@
+package com.pineapplesupermarket.tiendaapi.benchmarks;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.pineapplesupermarket.tiendaapi.security.JwtProvider;
+import com.pineapplesupermarket.tiendaapi.security.UserPrincipal;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.SignatureAlgorithm;
+/**
+ *Benchmark de la generación y validación del JWT
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtProviderBenchmark {
+
+	private JwtProvider jwtProvider;
+
+	private Authentication authentication;
+
+	private String token;
+
+	@Setup
+	public void setup() throws Exception {
+		jwtProvider = new JwtProvider();
+		ReflectionTestUtils.setField(jwtProvider, "jwtSecret", "pineappleTechSystemKey");
+		ReflectionTestUtils.setField(jwtProvider, "jwtExpirationMs", 1800000);
+		ReflectionTestUtils.setField(jwtProvider, "jwtCacheSize", 10000L);
+		ReflectionTestUtils.setField(jwtProvider, "jwtAlgorithm", SignatureAlgorithm.HS512);
+		jwtProvider.init();
+
+		authentication = new UsernamePasswordAuthenticationToken(
+				new UserPrincipal(1L, "admin", "password", Collections.emptyList()), null);
+		token = jwtProvider.generateJwtToken(authentication);
+	}
+
+	@Benchmark
+	public String generateJwtToken() {
+		return jwtProvider.generateJwtToken(authentication);
+	}
+
+	/** Validación completa: firma, JSON y expiración */
+	@Benchmark
+	public Claims parseJwtToken() {
+		return jwtProvider.parseJwtToken(token);
+	}
+
+	/** Ruta del filtro en peticiones repetidas, el token ya está verificado en cache */
+	@Benchmark
+	public String getUserNameFromJwtToken() {
+		return jwtProvider.getUserNameFromJwtToken(token);
+	}
+}
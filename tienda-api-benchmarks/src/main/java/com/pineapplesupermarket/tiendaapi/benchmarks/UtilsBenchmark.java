@@ -0,0 +1,55 @@
+package com.pineapplesupermarket.tiendaapi.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.pineapplesupermarket.tiendaapi.models.Product;
+import com.pineapplesupermarket.tiendaapi.util.JsonUtils;
+import com.pineapplesupermarket.tiendaapi.util.LoggerUtils;
+import com.pineapplesupermarket.tiendaapi.util.PasswordUtils;
+/**
+ *Benchmark de las utilerías que se ejecutan en cada petición
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilsBenchmark {
+
+	private static final Logger logger = LoggerFactory.getLogger(UtilsBenchmark.class);
+
+	private static final String PRODUCTO_JSON = "{\"code\":\"P001\",\"name\":\"Piña miel\","
+			+ "\"description\":\"Piña miel de Veracruz\",\"quantity\":25,\"unitPrice\":32.5,"
+			+ "\"productCategory\":{\"code\":\"FRUTAS\"}}";
+
+	@Benchmark
+	public boolean passwordIsValid() {
+		return PasswordUtils.isValid("Pineapple#2020");
+	}
+
+	@Benchmark
+	public Product convertFromJsonToObject() throws JsonProcessingException {
+		return JsonUtils.convertFromJsonToObject(PRODUCTO_JSON, Product.class);
+	}
+
+	@Benchmark
+	public void logRequest() {
+		LoggerUtils.logRequest(logger, "Search product", "admin");
+	}
+}
@@ -0,0 +1,72 @@
+package com.pineapplesupermarket.tiendaapi;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+/**
+ *Configuración de los caches de la aplicación.
+ *Cada cache se registra con su propio tamaño y vigencia; todos guardan
+ *estadísticas para que el actuator las publique como métricas.
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+@EnableCaching
+@Configuration
+public class CacheConfiguration {
+
+	public static final String PRINCIPALS = "principals";
+
+	public static final String PRODUCTS = "products";
+
+	public static final String PRODUCT_LISTS = "productLists";
+
+	@Value("${pineapple.app.principalCacheSize:1000}")
+	private long principalCacheSize;
+
+	@Value("${pineapple.app.principalCacheTtlMs:300000}")
+	private long principalCacheTtlMs;
+
+	@Value("${pineapple.app.productCacheSize:10000}")
+	private long productCacheSize;
+
+	@Value("${pineapple.app.productCacheTtlMs:60000}")
+	private long productCacheTtlMs;
+
+	@Value("${pineapple.app.productListCacheSize:1000}")
+	private long productListCacheSize;
+
+	@Value("${pineapple.app.productListCacheTtlMs:60000}")
+	private long productListCacheTtlMs;
+
+	@Bean
+	public CacheManager cacheManager() {
+		CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+		//solo los caches registrados aqui, un nombre mal escrito falla en lugar de crear un cache sin limite
+		cacheManager.setCacheNames(Collections.emptyList());
+		cacheManager.registerCustomCache(PRINCIPALS, Caffeine.newBuilder()
+				.maximumSize(principalCacheSize)
+				.expireAfterWrite(principalCacheTtlMs, TimeUnit.MILLISECONDS)
+				.recordStats()
+				.build());
+		//Caffeine decide qué guardar con W-TinyLFU: un producto consultado una sola vez no desplaza a los frecuentes
+		cacheManager.registerCustomCache(PRODUCTS, Caffeine.newBuilder()
+				.maximumSize(productCacheSize)
+				.expireAfterWrite(productCacheTtlMs, TimeUnit.MILLISECONDS)
+				.recordStats()
+				.build());
+		cacheManager.registerCustomCache(PRODUCT_LISTS, Caffeine.newBuilder()
+				.maximumSize(productListCacheSize)
+				.expireAfterWrite(productListCacheTtlMs, TimeUnit.MILLISECONDS)
+				.recordStats()
+				.build());
+		return cacheManager;
+	}
+}
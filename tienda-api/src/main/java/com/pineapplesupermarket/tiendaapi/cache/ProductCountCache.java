@@ -0,0 +1,89 @@
+package com.pineapplesupermarket.tiendaapi.cache;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.pineapplesupermarket.tiendaapi.dto.FilterProductoDTO;
+import com.pineapplesupermarket.tiendaapi.repositories.CustomProductosRepository;
+/**
+ *Cache del total de productos por combinación de filtros.
+ *El primer conteo de una combinación se hace en la petición; después se sirve
+ *el valor en cache y se recalcula en segundo plano cuando pasa el tiempo de refresco.
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+@Component
+public class ProductCountCache {
+
+	@Autowired
+	private CustomProductosRepository customProductosRepository;
+
+	@Value("${pineapple.app.productCountRefreshMs:60000}")
+	private long refreshMs;
+
+	@Value("${pineapple.app.productCountCacheSize:500}")
+	private long cacheSize;
+
+	private ExecutorService refreshExecutor;
+
+	private LoadingCache<List<Object>, Long> counts;
+
+	/** Método para inicializar el cache
+	 */
+	@PostConstruct
+	public void init() {
+		this.refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "product-count-refresh");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.counts = Caffeine.newBuilder()
+				.maximumSize(cacheSize)
+				.refreshAfterWrite(refreshMs, TimeUnit.MILLISECONDS)
+				.executor(refreshExecutor)
+				.build(key -> customProductosRepository.count(toFilters(key)));
+	}
+
+	/** Método para obtener el total de productos de una combinación de filtros, el orden y la página no cuentan
+	 * @param filters
+	 * @return long
+	 */
+	public long getCount(FilterProductoDTO filters) {
+		return this.counts.get(Arrays.asList(filters.getName(), filters.getCategoria(), filters.getFechaCreacion(),
+				filters.getQuantityMax(), filters.getPriceMin(), filters.getPriceMax()));
+	}
+
+	/** Método para volver a armar los filtros a partir de la llave
+	 * @param key
+	 * @return FilterProductoDTO
+	 */
+	private static FilterProductoDTO toFilters(List<Object> key) {
+		FilterProductoDTO filters = new FilterProductoDTO((String) key.get(0), (String) key.get(1), 
+				(Date) key.get(2), 0, 0);
+		filters.setQuantityMax((Integer) key.get(3));
+		filters.setPriceMin((BigDecimal) key.get(4));
+		filters.setPriceMax((BigDecimal) key.get(5));
+		return filters;
+	}
+
+	/** Método para detener el refresco en segundo plano
+	 */
+	@PreDestroy
+	public void shutdown() {
+		this.refreshExecutor.shutdownNow();
+	}
+}
@@ -0,0 +1,132 @@
+package com.pineapplesupermarket.tiendaapi.cache;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.pineapplesupermarket.tiendaapi.CacheConfiguration;
+import com.pineapplesupermarket.tiendaapi.dto.FilterProductoDTO;
+import com.pineapplesupermarket.tiendaapi.enums.ProductSortEnum;
+import com.pineapplesupermarket.tiendaapi.events.ProductoChangedEvent;
+import com.pineapplesupermarket.tiendaapi.repositories.CustomProductosRepository;
+/**
+ *Cache de las páginas del listado de productos por combinación de filtros.
+ *Guarda solo los ids de la página y el total; los productos se leen del cache de productos.
+ *La llave incluye la versión del catálogo, que aumenta con cada cambio de productos o categorías
+ *que pueda afectar los filtros, así las páginas anteriores ya no se encuentran y salen por tamaño o vigencia.
+ *Los listados que filtran u ordenan por existencias, precio o fecha de modificación también llevan la versión
+ *de los valores, que aumenta con cualquier cambio de productos.
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+@Component
+public class ProductListCache {
+
+	@Autowired
+	private CustomProductosRepository customProductosRepository;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	private final AtomicLong catalogVersion = new AtomicLong();
+
+	private final AtomicLong valuesVersion = new AtomicLong();
+
+	private Cache pages;
+
+	/** Método para inicializar el cache
+	 */
+	@PostConstruct
+	public void init() {
+		this.pages = this.cacheManager.getCache(CacheConfiguration.PRODUCT_LISTS);
+	}
+
+	/** Método para obtener los ids de una página del listado
+	 * @param filters
+	 * @param exactCount true para contar el total de productos con los filtros
+	 * @return Pagina
+	 */
+	public Pagina getPage(FilterProductoDTO filters, boolean exactCount) {
+		//la versión se lee antes de consultar: si cambia durante la consulta, la página queda con la llave vieja
+		long values = dependsOnValues(filters) ? this.valuesVersion.get() : -1;
+		List<Object> key = Arrays.asList(this.catalogVersion.get(), values, filters.getName(), filters.getCategoria(),
+				filters.getFechaCreacion(), filters.getQuantityMax(), filters.getPriceMin(), filters.getPriceMax(),
+				filters.getSort(), filters.getDirection(), filters.getPage(), filters.getSize(), exactCount);
+		return this.pages.get(key, () -> this.load(filters, exactCount));
+	}
+
+	/** Método para consultar una página; se lee un id extra para saber si existe una página siguiente
+	 * @param filters
+	 * @param exactCount
+	 * @return Pagina
+	 */
+	private Pagina load(FilterProductoDTO filters, boolean exactCount) {
+		long offset = (long) filters.getPage() * filters.getSize();
+		List<Long> ids = this.customProductosRepository.findIds(filters, offset, filters.getSize() + 1);
+		boolean hasNext = ids.size() > filters.getSize();
+		if(hasNext) {
+			ids = ids.subList(0, filters.getSize());
+		}
+		long total = exactCount ? this.customProductosRepository.count(filters) : -1;
+		return new Pagina(List.copyOf(ids), hasNext, total);
+	}
+
+	/** Método que cambia la versión del catálogo después del commit.
+	 * Los cambios de solo existencias o precios no mueven a los productos entre páginas ordenadas por id
+	 * @param event
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onProductoChanged(ProductoChangedEvent event) {
+		this.valuesVersion.incrementAndGet();
+		if(!event.isValuesOnly()) {
+			this.catalogVersion.incrementAndGet();
+		}
+	}
+
+	/** Método para saber si la página depende de existencias, precio o fecha de modificación
+	 * @param filters
+	 * @return boolean
+	 */
+	private static boolean dependsOnValues(FilterProductoDTO filters) {
+		return filters.getSort() != ProductSortEnum.ID || filters.getQuantityMax() != null
+				|| filters.getPriceMin() != null || filters.getPriceMax() != null;
+	}
+
+	/**
+	 *Página del listado: ids en orden, si hay una página siguiente y el total (-1 si no se contó)
+	 */
+	public static final class Pagina {
+
+		private final List<Long> ids;
+
+		private final boolean hasNext;
+
+		private final long total;
+
+		private Pagina(List<Long> ids, boolean hasNext, long total) {
+			this.ids = ids;
+			this.hasNext = hasNext;
+			this.total = total;
+		}
+
+		public List<Long> getIds() {
+			return ids;
+		}
+
+		public boolean hasNext() {
+			return hasNext;
+		}
+
+		public long getTotal() {
+			return total;
+		}
+	}
+}
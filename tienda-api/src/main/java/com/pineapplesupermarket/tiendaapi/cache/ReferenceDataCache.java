@@ -0,0 +1,151 @@
+package com.pineapplesupermarket.tiendaapi.cache;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.pineapplesupermarket.tiendaapi.models.ProductCategory;
+import com.pineapplesupermarket.tiendaapi.models.Role;
+import com.pineapplesupermarket.tiendaapi.repositories.ProductCategoryRepository;
+import com.pineapplesupermarket.tiendaapi.repositories.RoleRepository;
+/**
+ *Cache de los catálogos que casi no cambian: categorías de producto y roles.
+ *Las lecturas usan mapas inmutables sin candados; cada cambio vuelve a cargar la tabla
+ *completa y publica mapas nuevos (copy-on-write). Las entidades en cache están desasociadas
+ *de la sesión, sirven para asignar relaciones y para consultas, no se deben modificar.
+ *Además se recargan cada referenceDataRefreshMs por si se cambian directamente en la base.
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+@Component
+public class ReferenceDataCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(ReferenceDataCache.class);
+
+	@Autowired
+	private ProductCategoryRepository productCategoryRepository;
+
+	@Autowired
+	private RoleRepository roleRepository;
+
+	private volatile List<ProductCategory> categorias = List.of();
+
+	private volatile Map<String, ProductCategory> categoriasByCode = Map.of();
+
+	private volatile Map<Long, ProductCategory> categoriasById = Map.of();
+
+	private volatile Map<String, Role> rolesByCode = Map.of();
+
+	/** Hash del contenido de las categorías; no cambia si la recarga trae los mismos datos */
+	private volatile String categoriasVersion = "";
+
+	private volatile long categoriasLastModified = -1;
+
+	/** Método para cargar los catálogos al iniciar y recargarlos periódicamente
+	 */
+	@PostConstruct
+	@Scheduled(initialDelayString = "${pineapple.app.referenceDataRefreshMs:300000}",
+			fixedDelayString = "${pineapple.app.referenceDataRefreshMs:300000}")
+	public void init() {
+		this.reloadCategorias();
+		this.reloadRoles();
+	}
+
+	/** Método para volver a cargar las categorías, se llama después de cada cambio
+	 */
+	public synchronized void reloadCategorias() {
+		List<ProductCategory> lista = List.copyOf(this.productCategoryRepository.findAll());
+		Map<String, ProductCategory> byCode = new HashMap<>();
+		Map<Long, ProductCategory> byId = new HashMap<>();
+		StringBuilder contenido = new StringBuilder();
+		for(ProductCategory categoria : lista) {
+			byCode.put(key(categoria.getCode()), categoria);
+			byId.put(categoria.getIdProductCategory(), categoria);
+			contenido.append(categoria.getIdProductCategory()).append('\u0000')
+				.append(categoria.getCode()).append('\u0000')
+				.append(categoria.getDescription()).append('\u0000')
+				.append(categoria.getReorderThreshold()).append('\n');
+		}
+		String version = Integer.toHexString(contenido.toString().hashCode()) + "-" + lista.size();
+		if(!version.equals(this.categoriasVersion)) {
+			this.categoriasVersion = version;
+			//If-Modified-Since tiene precisión de segundos
+			this.categoriasLastModified = System.currentTimeMillis() / 1000 * 1000;
+		}
+		//el mapa por id se publica antes que la lista para que quien lea la lista encuentre cada id
+		this.categoriasByCode = Map.copyOf(byCode);
+		this.categoriasById = Map.copyOf(byId);
+		this.categorias = lista;
+		logger.debug("Loaded {} product categories", lista.size());
+	}
+
+	/** Método para volver a cargar los roles
+	 */
+	public synchronized void reloadRoles() {
+		Map<String, Role> byCode = new HashMap<>();
+		for(Role role : this.roleRepository.findAll()) {
+			byCode.put(key(role.getCode()), role);
+		}
+		this.rolesByCode = Map.copyOf(byCode);
+		logger.debug("Loaded {} roles", byCode.size());
+	}
+
+	/** Método para obtener todas las categorías
+	 * @return List<ProductCategory> inmutable
+	 */
+	public List<ProductCategory> getCategorias() {
+		return this.categorias;
+	}
+
+	/** Método para obtener la versión de las categorías, cambia solo cuando cambia su contenido
+	 * @return String
+	 */
+	public String getCategoriasVersion() {
+		return this.categoriasVersion;
+	}
+
+	/** Método para obtener cuándo cambiaron las categorías por última vez en esta instancia
+	 * @return long milisegundos
+	 */
+	public long getCategoriasLastModified() {
+		return this.categoriasLastModified;
+	}
+
+	/** Método para buscar una categoría por código; igual que la collation de MySQL, no distingue mayúsculas
+	 * @param code
+	 * @return Optional<ProductCategory>
+	 */
+	public Optional<ProductCategory> findCategoriaByCode(String code) {
+		return code == null ? Optional.empty() : Optional.ofNullable(this.categoriasByCode.get(key(code)));
+	}
+
+	/** Método para buscar una categoría por id
+	 * @param id
+	 * @return Optional<ProductCategory>
+	 */
+	public Optional<ProductCategory> findCategoriaById(long id) {
+		return Optional.ofNullable(this.categoriasById.get(id));
+	}
+
+	/** Método para buscar un rol por código
+	 * @param code
+	 * @return Optional<Role>
+	 */
+	public Optional<Role> findRoleByCode(String code) {
+		return code == null ? Optional.empty() : Optional.ofNullable(this.rolesByCode.get(key(code)));
+	}
+
+	private static String key(String code) {
+		return code.trim().toLowerCase(Locale.ROOT);
+	}
+}
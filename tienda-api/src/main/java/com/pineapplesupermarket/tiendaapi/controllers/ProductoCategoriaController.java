@@ -8,6 +8,7 @@ import javax.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -20,12 +21,16 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.pineapplesupermarket.tiendaapi.dto.CategorySummaryDTO;
+import com.pineapplesupermarket.tiendaapi.dto.ResourceVersionDTO;
 import com.pineapplesupermarket.tiendaapi.dto.ResponseDTO;
 import com.pineapplesupermarket.tiendaapi.enums.ResponseCodeEnum;
 import com.pineapplesupermarket.tiendaapi.exception.DuplicateEntryException;
 import com.pineapplesupermarket.tiendaapi.exception.EntityNotFoundException;
 import com.pineapplesupermarket.tiendaapi.models.ProductCategory;
+import com.pineapplesupermarket.tiendaapi.services.ICategorySummaryService;
 import com.pineapplesupermarket.tiendaapi.services.IProductoCategoriaService;
 import com.pineapplesupermarket.tiendaapi.services.IUserService;
 import com.pineapplesupermarket.tiendaapi.util.LoggerUtils;
@@ -51,20 +56,68 @@ public class ProductoCategoriaController {
 	@Autowired
 	private IUserService userService;
 	
-	/**End point que obtiene una lista de categorías
+	@Autowired
+	private ICategorySummaryService categorySummaryService;
+	
+	/**End point que obtiene una lista de categorías; responde 304 si no han cambiado (ETag / Last-Modified)
 	 * @param principal
+	 * @param request
 	 * @return ResponseEntity<List<ProductCategory>>
 	 */
 	@GetMapping("")
 	@ResponseStatus(HttpStatus.OK)
 	@ApiOperation(value = "List of categories")
-	public ResponseEntity<List<ProductCategory>> listAllProduct(Principal principal){
+	public ResponseEntity<List<ProductCategory>> listAllProduct(Principal principal, WebRequest request){
 		String username = userService.getPrincipalUsername(principal);
 		LoggerUtils.logRequest(logger, "List categories", username);
+		ResourceVersionDTO version = this.categoriaService.getVersion();
+		if(request.checkNotModified(version.getEtag(), version.getLastModified())) {
+			LoggerUtils.logResponse(logger, HttpStatus.NOT_MODIFIED.toString());
+			return null;
+		}
 		List<ProductCategory> listCategorias = this.categoriaService.listAll();
 
 		LoggerUtils.logResponse(logger, HttpStatus.OK.toString());
-		return new ResponseEntity<>(listCategorias, HttpStatus.OK);
+		return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(listCategorias);
+	}
+	
+	/**End point que obtiene los totales del inventario de todas las categorías
+	 * @param principal
+	 * @return ResponseEntity<List<CategorySummaryDTO>>
+	 */
+	@GetMapping("/summary")
+	@ApiOperation(value = "Inventory summary of all categories")
+	public ResponseEntity<List<CategorySummaryDTO>> listSummaries(Principal principal){
+		String username = userService.getPrincipalUsername(principal);
+		LoggerUtils.logRequest(logger, "List category summaries", username);
+		List<CategorySummaryDTO> summaries = this.categorySummaryService.getSummaries();
+
+		LoggerUtils.logResponse(logger, HttpStatus.OK.toString());
+		return new ResponseEntity<>(summaries, HttpStatus.OK);
+	}
+	
+	/**End point que obtiene los totales del inventario de una categoría: productos, existencias y valor
+	 * @param id
+	 * @param principal
+	 * @return ResponseEntity<?> CategorySummaryDTO
+	 * @exception EntityNotFoundException
+	 */
+	@GetMapping("/{id}/summary")
+	@ApiOperation(response = CategorySummaryDTO.class, value = "Inventory summary of a product category")
+	public ResponseEntity<?> findSummary(@PathVariable Long id, Principal principal){
+		String username = userService.getPrincipalUsername(principal);
+		LoggerUtils.logRequest(logger, "Find product category summary", username);
+		
+		try {
+			CategorySummaryDTO summary = this.categorySummaryService.getSummary(id);
+			
+			LoggerUtils.logResponse(logger, HttpStatus.OK.toString());
+			return new ResponseEntity<>(summary, HttpStatus.OK);
+		} catch (EntityNotFoundException e) {
+			LoggerUtils.logException(logger, HttpStatus.NOT_FOUND.toString(), e.getMessage());
+			return new ResponseEntity<>(new ResponseDTO(ResponseCodeEnum.NO_ENCONTRADO.getCodigo(), 
+		        		ResponseCodeEnum.NO_ENCONTRADO.getMensaje()), HttpStatus.NOT_FOUND);
+		}
 	}
 	
 	@GetMapping("/{id}")
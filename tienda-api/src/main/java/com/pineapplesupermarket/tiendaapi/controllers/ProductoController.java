@@ -1,23 +1,36 @@
 package com.pineapplesupermarket.tiendaapi.controllers;
 
+import java.io.InputStream;
+import java.math.BigDecimal;
 import java.security.Principal;
 import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 //import java.security.Principal;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort.Direction;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
@@ -27,19 +40,44 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.View;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.pineapplesupermarket.tiendaapi.dto.CursorPageDTO;
+import com.pineapplesupermarket.tiendaapi.dto.ExportJobDTO;
 import com.pineapplesupermarket.tiendaapi.dto.FilterProductoDTO;
+import com.pineapplesupermarket.tiendaapi.dto.ImportResultDTO;
+import com.pineapplesupermarket.tiendaapi.dto.LowStockDTO;
+import com.pineapplesupermarket.tiendaapi.dto.ProductSyncDTO;
+import com.pineapplesupermarket.tiendaapi.dto.ResourceVersionDTO;
+import com.pineapplesupermarket.tiendaapi.dto.StockAdjustmentDTO;
+import com.pineapplesupermarket.tiendaapi.dto.StockDTO;
+import com.pineapplesupermarket.tiendaapi.dto.StockMovementDTO;
 import com.pineapplesupermarket.tiendaapi.dto.ResponseDTO;
+import com.pineapplesupermarket.tiendaapi.enums.CountModeEnum;
+import com.pineapplesupermarket.tiendaapi.enums.ExportJobStatusEnum;
+import com.pineapplesupermarket.tiendaapi.enums.ProductSortEnum;
 import com.pineapplesupermarket.tiendaapi.enums.ResponseCodeEnum;
 import com.pineapplesupermarket.tiendaapi.exception.DuplicateEntryException;
 import com.pineapplesupermarket.tiendaapi.exception.EntityNotFoundException;
 import com.pineapplesupermarket.tiendaapi.exception.FailUploadedException;
+import com.pineapplesupermarket.tiendaapi.exception.InsufficientStockException;
 import com.pineapplesupermarket.tiendaapi.models.Product;
+import com.pineapplesupermarket.tiendaapi.services.IExportJobService;
+import com.pineapplesupermarket.tiendaapi.services.ILowStockService;
+import com.pineapplesupermarket.tiendaapi.services.IProductoImportService;
 import com.pineapplesupermarket.tiendaapi.services.IProductoService;
+import com.pineapplesupermarket.tiendaapi.services.IStockBufferService;
+import com.pineapplesupermarket.tiendaapi.services.IStockLedgerService;
 import com.pineapplesupermarket.tiendaapi.services.IUserService;
+import com.pineapplesupermarket.tiendaapi.util.AbstractExportarInventarioView;
+import com.pineapplesupermarket.tiendaapi.util.ExportadorInventario;
 import com.pineapplesupermarket.tiendaapi.util.ExportarInventario;
+import com.pineapplesupermarket.tiendaapi.util.ExportarInventarioCsv;
 import com.pineapplesupermarket.tiendaapi.util.JsonUtils;
 import com.pineapplesupermarket.tiendaapi.util.LoggerUtils;
 
@@ -69,23 +107,53 @@ public class ProductoController {
 	@Autowired
 	private ExportarInventario exportarInventario;
 	
+	@Autowired
+	private List<ExportadorInventario> exportadores;
+	
+	@Autowired
+	private ContentNegotiationManager contentNegotiationManager;
+	
+	@Autowired
+	private IExportJobService exportJobService;
+	
+	@Autowired
+	private IProductoImportService productoImportService;
+	
+	@Autowired
+	private ILowStockService lowStockService;
+	
+	@Autowired
+	private IStockLedgerService stockLedgerService;
+	
+	@Autowired
+	private IStockBufferService stockBufferService;
+	
 	/**
-	 * End point que obtiene un producto
+	 * End point que obtiene un producto; responde 304 si el cliente ya tiene la versión actual (ETag / Last-Modified)
 	 * @param id
 	 * @param principal
+	 * @param request
 	 * @return ResponseEntity<ResponseDTO>
 	 * @exception EntityNotFoundException, Exception
 	 */
 	@GetMapping("/{id}")
 	@ApiOperation(response = Product.class, value = "Find a product by id")
-	public ResponseEntity<?> getProduct(@PathVariable(value="id") long id, Principal principal){
+	public ResponseEntity<?> getProduct(@PathVariable(value="id") long id, Principal principal,
+			WebRequest request){
 		String username = userService.getPrincipalUsername(principal);
 		LoggerUtils.logRequest(logger, "Consult product", username);
 		try {
+			//la versión sale del mismo producto que se regresa; con el producto en cache no se consulta la base
 			Product producto = productoService.findOne(id);
+			ResourceVersionDTO version = productoService.getVersion(producto);
+			if(request.checkNotModified(version.getEtag(), version.getLastModified())) {
+				LoggerUtils.logResponse(logger, HttpStatus.NOT_MODIFIED.toString());
+				return null;
+			}
 			LoggerUtils.logResponse(logger, HttpStatus.OK.toString());
 			
-		    return new ResponseEntity<>(producto, HttpStatus.OK);
+			//Spring Security agrega no-store por defecto; el cliente debe guardar la respuesta para revalidarla
+		    return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(producto);
 		}catch(EntityNotFoundException e) {
 			LoggerUtils.logException(logger, HttpStatus.NOT_FOUND.toString(), e.getMessage());
 			return new ResponseEntity<>(new ResponseDTO(ResponseCodeEnum.NO_ENCONTRADO.getCodigo(), 
@@ -98,25 +166,128 @@ public class ProductoController {
 		}
 	}
 	
+	/**End point que obtiene los productos en o por debajo de su punto de reorden, primero los que más les falta
+	 * @param categoria código de la categoría, todas si no se indica
+	 * @param limit
+	 * @param principal
+	 * @return ResponseEntity<?> List<LowStockDTO>
+	 * @exception EntityNotFoundException, IllegalArgumentException
+	 */
+	@GetMapping("/low-stock")
+	@PreAuthorize("hasRole('ROLE_ADMIN')")
+	@ApiOperation(response = LowStockDTO.class, responseContainer = "List", value = "List products with low stock")
+	public ResponseEntity<?> listLowStock(@RequestParam(required = false) String categoria,
+			@RequestParam(defaultValue = "100") int limit, Principal principal){
+		String username = userService.getPrincipalUsername(principal);
+		LoggerUtils.logRequest(logger, "Search products with low stock", username);
+		try {
+			List<LowStockDTO> productos = lowStockService.getLowStock(categoria, limit);
+			LoggerUtils.logResponse(logger, HttpStatus.OK.toString());
+			return new ResponseEntity<>(productos, HttpStatus.OK);
+		} catch(EntityNotFoundException e) {
+			LoggerUtils.logException(logger, HttpStatus.NOT_FOUND.toString(), e.getMessage());
+			return new ResponseEntity<>(new ResponseDTO(ResponseCodeEnum.NO_ENCONTRADO.getCodigo(), 
+		        		ResponseCodeEnum.NO_ENCONTRADO.getMensaje()), HttpStatus.NOT_FOUND);
+		} catch(IllegalArgumentException e) {
+			LoggerUtils.logException(logger, HttpStatus.BAD_REQUEST.toString(), e.getMessage());
+			return new ResponseEntity<>(new ResponseDTO(ResponseCodeEnum.NO_PROCESADO.getCodigo(), 
+		        		ResponseCodeEnum.NO_PROCESADO.getMensaje()), HttpStatus.BAD_REQUEST);
+		}
+	}
+	
+	/**End point que obtiene el historial de movimientos de existencias de un producto, del más reciente al más antiguo
+	 * @param id
+	 * @param cursor cursor devuelto en la página anterior
+	 * @param size
+	 * @param desde fecha inicial, por omisión el primer día del mes anterior a hasta (o al actual);
+	 * solo se leen las particiones de los meses del rango
+	 * @param hasta fecha final, sin incluir
+	 * @param principal
+	 * @return ResponseEntity<?> CursorPageDTO<StockMovementDTO>
+	 * @exception IllegalArgumentException
+	 */
+	@GetMapping("/{id}/movements")
+	@PreAuthorize("hasRole('ROLE_ADMIN')")
+	@ApiOperation(response = CursorPageDTO.class, value = "List stock movements of a product")
+	public ResponseEntity<?> listMovements(@PathVariable long id, @RequestParam(required = false) String cursor,
+			@RequestParam(defaultValue = "50") int size,
+			@RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date desde,
+			@RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date hasta, Principal principal){
+		String username = userService.getPrincipalUsername(principal);
+		LoggerUtils.logRequest(logger, "Search stock movements of product " + id, username);
+		return this.listMovements(id, cursor, size, desde, hasta);
+	}
+	
+	/**End point que obtiene el historial de movimientos de existencias de todos los productos
+	 * @param cursor cursor devuelto en la página anterior
+	 * @param size
+	 * @param desde fecha inicial, por omisión el primer día del mes anterior a hasta (o al actual)
+	 * @param hasta fecha final, sin incluir
+	 * @param principal
+	 * @return ResponseEntity<?> CursorPageDTO<StockMovementDTO>
+	 * @exception IllegalArgumentException
+	 */
+	@GetMapping("/movements")
+	@PreAuthorize("hasRole('ROLE_ADMIN')")
+	@ApiOperation(response = CursorPageDTO.class, value = "List stock movements")
+	public ResponseEntity<?> listAllMovements(@RequestParam(required = false) String cursor,
+			@RequestParam(defaultValue = "50") int size,
+			@RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date desde,
+			@RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date hasta, Principal principal){
+		String username = userService.getPrincipalUsername(principal);
+		LoggerUtils.logRequest(logger, "Search stock movements", username);
+		return this.listMovements(null, cursor, size, desde, hasta);
+	}
+	
+	private ResponseEntity<?> listMovements(Long idProduct, String cursor, int size, Date desde, Date hasta) {
+		try {
+			CursorPageDTO<StockMovementDTO> movimientos = 
+					stockLedgerService.getMovements(idProduct, cursor, size, desde, hasta);
+			LoggerUtils.logResponse(logger, HttpStatus.OK.toString());
+			return new ResponseEntity<>(movimientos, HttpStatus.OK);
+		} catch(IllegalArgumentException e) {
+			LoggerUtils.logException(logger, HttpStatus.BAD_REQUEST.toString(), e.getMessage());
+			return new ResponseEntity<>(new ResponseDTO(ResponseCodeEnum.NO_PROCESADO.getCodigo(), 
+		        		ResponseCodeEnum.NO_PROCESADO.getMensaje()), HttpStatus.BAD_REQUEST);
+		}
+	}
+	
 	/**End point que obtiene una lista de productos
 	 * @param page
 	 * @param size
 	 * @param name
 	 * @param categoria
 	 * @param fechaCreacion
+	 * @param keyset paginación por cursor en lugar de page
+	 * @param cursor cursor devuelto en la página anterior (solo con keyset)
+	 * @param count modo de conteo del total: EXACT, NONE (Slice) o ESTIMATED
+	 * @param summary listado resumido (ProductSummaryDTO) en lugar de las entidades completas
+	 * @param quantityMax existencias bajas: productos con cantidad menor o igual
+	 * @param priceMin
+	 * @param priceMax
+	 * @param sort columna de orden: ID, PRICE, QUANTITY o MODIFICATION_DATE
+	 * @param direction ASC o DESC
 	 * @param principal
-	 * @return Page<Product> listAllProduct
-	 * @exception DuplicateEntryException, EntityNotFoundException, JsonProcessingException,Exception
+	 * @return ResponseEntity<?> Page<Product>, Slice<Product> o CursorPageDTO<Product> si keyset
+	 * @exception IllegalArgumentException
 	 */
 	@GetMapping("")
-	@ResponseStatus(HttpStatus.OK)
 	@ApiOperation(value = "List of products")
-	public Page<Product> listAllProduct(@RequestParam(defaultValue="0") int page,
+	public ResponseEntity<?> listAllProduct(@RequestParam(defaultValue="0") int page,
 				@RequestParam(defaultValue = "10") int size,
 				@RequestParam(required = false) String name, 
 				@RequestParam(required = false) String categoria,
 				@RequestParam(required = false) 
-				@DateTimeFormat(pattern = "yyyy-MM-dd") Date fechaCreacion, Principal principal){
+				@DateTimeFormat(pattern = "yyyy-MM-dd") Date fechaCreacion,
+				@RequestParam(defaultValue = "false") boolean keyset,
+				@RequestParam(required = false) String cursor,
+				@RequestParam(defaultValue = "EXACT") CountModeEnum count,
+				@RequestParam(defaultValue = "false") boolean summary,
+				@RequestParam(required = false) Integer quantityMax,
+				@RequestParam(required = false) BigDecimal priceMin,
+				@RequestParam(required = false) BigDecimal priceMax,
+				@RequestParam(defaultValue = "ID") ProductSortEnum sort,
+				@RequestParam(defaultValue = "ASC") Direction direction, Principal principal){
 		String username = userService.getPrincipalUsername(principal);
 		LoggerUtils.logRequest(logger, "Search product", username);
 
@@ -126,10 +297,35 @@ public class ProductoController {
 		filters.setFechaCreacion(fechaCreacion);
 		filters.setPage(page);
 		filters.setSize(size);
+		filters.setCursor(cursor);
+		filters.setCountMode(count);
+		filters.setQuantityMax(quantityMax);
+		filters.setPriceMin(priceMin);
+		filters.setPriceMax(priceMax);
+		filters.setSort(sort);
+		filters.setDirection(direction);
 
-		Page<Product> productos = productoService.getProductos(filters);
-		LoggerUtils.logResponse(logger, HttpStatus.OK.toString());
-		return productos;
+		try {
+			if(summary) {
+				Object productos = keyset ? productoService.getProductosSummaryKeyset(filters) 
+						: productoService.getProductosSummary(filters);
+				LoggerUtils.logResponse(logger, HttpStatus.OK.toString());
+				return new ResponseEntity<>(productos, HttpStatus.OK);
+			}
+			if(keyset) {
+				CursorPageDTO<Product> productos = productoService.getProductosKeyset(filters);
+				LoggerUtils.logResponse(logger, HttpStatus.OK.toString());
+				return new ResponseEntity<>(productos, HttpStatus.OK);
+			}
+			
+			Slice<Product> productos = productoService.getProductos(filters);
+			LoggerUtils.logResponse(logger, HttpStatus.OK.toString());
+			return new ResponseEntity<>(productos, HttpStatus.OK);
+		} catch(IllegalArgumentException e) {
+			LoggerUtils.logException(logger, HttpStatus.BAD_REQUEST.toString(), e.getMessage());
+			return new ResponseEntity<>(new ResponseDTO(ResponseCodeEnum.NO_PROCESADO.getCodigo(), 
+		        		ResponseCodeEnum.NO_PROCESADO.getMensaje()), HttpStatus.BAD_REQUEST);
+		}
 	}
 	
 
@@ -189,6 +385,116 @@ public class ProductoController {
 		
 		}
 	}
+	/**End point que importa productos de un archivo CSV (con encabezado) o NDJSON / arreglo Json.
+	 * El formato se toma del parametro format o de la extensión del archivo
+	 * @param file
+	 * @param format csv, ndjson o json
+	 * @param principal
+	 * @return ResponseEntity<?> ImportResultDTO con los renglones rechazados y su error
+	 * @exception IllegalArgumentException, Exception
+	 */
+	@PostMapping(value="/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+	@PreAuthorize("hasRole('ROLE_ADMIN')")
+	@ApiOperation(response = ImportResultDTO.class, value = "Import products from CSV or NDJSON")
+	public ResponseEntity<?> importar(@RequestParam("file") MultipartFile file,
+			@RequestParam(required = false) String format, Principal principal) {
+		String username = userService.getPrincipalUsername(principal);
+		LoggerUtils.logRequest(logger, "Import products", username);
+		
+		boolean csv = format != null ? "csv".equalsIgnoreCase(format) :
+			(file.getOriginalFilename() != null && file.getOriginalFilename().toLowerCase().endsWith(".csv")) ||
+			ExportarInventarioCsv.CONTENT_TYPE.equals(file.getContentType());
+		
+		try(InputStream input = file.getInputStream()) {
+			ImportResultDTO result = this.productoImportService.importProductos(input, csv);
+			LoggerUtils.logResponse(logger, HttpStatus.OK.toString(), 
+					"Applied: " + result.getApplied() + ", rejected: " + result.getRejected());
+			return new ResponseEntity<>(result, HttpStatus.OK);
+		} catch(IllegalArgumentException e) {
+			LoggerUtils.logException(logger, HttpStatus.BAD_REQUEST.toString(), e.getMessage());
+			return new ResponseEntity<>(new ResponseDTO(ResponseCodeEnum.NO_PROCESADO.getCodigo(), 
+		        		e.getMessage()), HttpStatus.BAD_REQUEST);
+		} catch(Exception e) {
+			LoggerUtils.logException(logger, HttpStatus.INTERNAL_SERVER_ERROR.toString(), e.getMessage());
+			return new ResponseEntity<>(new ResponseDTO(ResponseCodeEnum.NO_PROCESADO.getCodigo(), 
+	        		ResponseCodeEnum.NO_PROCESADO.getMensaje()), HttpStatus.INTERNAL_SERVER_ERROR);
+		}
+	}
+	
+	/**End point que suma o resta existencias de un producto de forma atómica.
+	 * Con buffered=true el movimiento se acumula y se guarda en el siguiente lote (202),
+	 * sin validar en ese momento que haya existencias suficientes; el 202 se responde cuando el movimiento
+	 * ya está en el journal en disco (con stockJournalSync=false solo sobrevive a una caída del proceso)
+	 * @param id
+	 * @param ajuste delta positivo (entrada) o negativo (venta)
+	 * @param buffered
+	 * @param principal
+	 * @return ResponseEntity<?> StockDTO con la nueva cantidad
+	 * @exception EntityNotFoundException, InsufficientStockException, Exception
+	 */
+	@PatchMapping("/{id}/stock")
+	@PreAuthorize("hasRole('ROLE_ADMIN')")
+	@ApiOperation(response = StockDTO.class, value = "Increment or decrement the stock of a product")
+	public ResponseEntity<?> adjustStock(@PathVariable(value="id") long id,
+			@Valid @RequestBody StockAdjustmentDTO ajuste, 
+			@RequestParam(value="buffered", defaultValue="false") boolean buffered, Principal principal) {
+		String username = userService.getPrincipalUsername(principal);
+		LoggerUtils.logRequest(logger, "Adjust product stock", username);
+		
+		try {
+			if(buffered) {
+				this.productoService.appendStockMovement(id, ajuste.getDelta());
+				LoggerUtils.logResponse(logger, HttpStatus.ACCEPTED.toString(), "Product id: " + id);
+				return new ResponseEntity<>(new ResponseDTO(ResponseCodeEnum.PROCESADO.getCodigo(), 
+		        		ResponseCodeEnum.PROCESADO.getMensaje()), HttpStatus.ACCEPTED);
+			}
+			StockDTO stock = this.productoService.adjustStock(id, ajuste.getDelta());
+			LoggerUtils.logResponse(logger, HttpStatus.OK.toString(), 
+					"Product id: " + id + ", quantity: " + stock.getQuantity());
+			return new ResponseEntity<>(stock, HttpStatus.OK);
+		} catch(EntityNotFoundException e) {
+			LoggerUtils.logException(logger, HttpStatus.NOT_FOUND.toString(), e.getMessage());
+			return new ResponseEntity<>(new ResponseDTO(ResponseCodeEnum.NO_ENCONTRADO.getCodigo(), 
+		        		ResponseCodeEnum.NO_ENCONTRADO.getMensaje()), HttpStatus.NOT_FOUND);
+		} catch(InsufficientStockException e) {
+			LoggerUtils.logException(logger, HttpStatus.CONFLICT.toString(), e.getMessage());
+			return new ResponseEntity<>(new ResponseDTO(ResponseCodeEnum.SIN_EXISTENCIAS.getCodigo(), 
+		        		ResponseCodeEnum.SIN_EXISTENCIAS.getMensaje()), HttpStatus.CONFLICT);
+		} catch(Exception e) {
+			LoggerUtils.logException(logger, HttpStatus.INTERNAL_SERVER_ERROR.toString(), e.getMessage());
+			return new ResponseEntity<>(new ResponseDTO(ResponseCodeEnum.NO_PROCESADO.getCodigo(), 
+	        		ResponseCodeEnum.NO_PROCESADO.getMensaje()), HttpStatus.INTERNAL_SERVER_ERROR);
+		}
+	}
+	
+	/**End point que actualiza existencias y precios de muchos productos por su código,
+	 * en una sola transacción
+	 * @param cambios
+	 * @param principal
+	 * @return ResponseEntity<?> ImportResultDTO con los cambios aplicados y los rechazados
+	 * @exception Exception
+	 */
+	@PutMapping("/sync")
+	@PreAuthorize("hasRole('ROLE_ADMIN')")
+	@ApiOperation(response = ImportResultDTO.class, value = "Update quantity and price of many products by code")
+	public ResponseEntity<?> sync(@RequestBody List<ProductSyncDTO> cambios, Principal principal) {
+		String username = userService.getPrincipalUsername(principal);
+		LoggerUtils.logRequest(logger, "Sync products", username);
+		
+		try {
+			//las cantidades son absolutas; el buffer se guarda antes y fuera de la transacción de sync
+			this.stockBufferService.flush();
+			ImportResultDTO result = this.productoService.sync(cambios);
+			LoggerUtils.logResponse(logger, HttpStatus.OK.toString(), 
+					"Applied: " + result.getApplied() + ", rejected: " + result.getRejected());
+			return new ResponseEntity<>(result, HttpStatus.OK);
+		} catch(Exception e) {
+			LoggerUtils.logException(logger, HttpStatus.INTERNAL_SERVER_ERROR.toString(), e.getMessage());
+			return new ResponseEntity<>(new ResponseDTO(ResponseCodeEnum.NO_PROCESADO.getCodigo(), 
+	        		ResponseCodeEnum.NO_PROCESADO.getMensaje()), HttpStatus.INTERNAL_SERVER_ERROR);
+		}
+	}
+	
 	/**End point que sube una imagen
 	 * @param producto
 	 * @param picture
@@ -241,6 +547,8 @@ public class ProductoController {
 		LoggerUtils.logRequest(logger, "Update product", username);
 
 		try {
+			//la cantidad es absoluta; el buffer se guarda antes y fuera de la transacción de update
+			this.stockBufferService.flush();
 			Product productoSaved = this.productoService.update(id, productoUpdate);
 			LoggerUtils.logResponse(logger, HttpStatus.CREATED.toString(), "Product id: " + productoSaved.getIdProduct());
 		       return new ResponseEntity<>(productoSaved, HttpStatus.CREATED);
@@ -290,16 +598,126 @@ public class ProductoController {
 		}
 	}	
 	
-	/**End point que exporta el inventario
+	/**End point que exporta el inventario.
+	 * El formato se elige con la negociación de contenido (parametro format o header Accept):
+	 * xlsx (por defecto), csv o ndjson. Los formatos de texto se pueden comprimir con gzip.
+	 * @param gzip
+	 * @param request
 	 * @param principal
-	 * @return ExportarInventario
+	 * @return ModelAndView
+	 * @exception HttpMediaTypeNotAcceptableException
 	 */
 	@GetMapping("/exportar")
 	@ResponseStatus(HttpStatus.OK)
-	@ApiOperation(response = ExportarInventario.class, value = "Export products to Excel")
-	public ExportarInventario exportar(Principal principal){
+	@ApiOperation(response = ExportarInventario.class, value = "Export products to Excel, CSV or NDJSON")
+	public ModelAndView exportar(@RequestParam(defaultValue = "false") boolean gzip,
+			HttpServletRequest request, Principal principal) throws HttpMediaTypeNotAcceptableException{
 		String username = userService.getPrincipalUsername(principal);
-		LoggerUtils.logRequest(logger, "Export products to Excel", username);
+		LoggerUtils.logRequest(logger, "Export products", username);
+		
+		View exportador = (View) this.resolveExportador(request);
+		
+		ModelAndView modelAndView = new ModelAndView(exportador);
+		modelAndView.addObject(AbstractExportarInventarioView.GZIP_ATTRIBUTE, gzip);
+		return modelAndView;
+	}
+	
+	/**End point que crea un trabajo de exportación del inventario en segundo plano.
+	 * El formato se elige igual que en /exportar.
+	 * @param gzip
+	 * @param request
+	 * @param principal
+	 * @return ResponseEntity<?> ExportJobDTO
+	 * @exception HttpMediaTypeNotAcceptableException, RejectedExecutionException
+	 */
+	@PostMapping("/exportar/jobs")
+	@ApiOperation(response = ExportJobDTO.class, value = "Create a background export job")
+	public ResponseEntity<?> createExportJob(@RequestParam(defaultValue = "false") boolean gzip,
+			HttpServletRequest request, Principal principal) throws HttpMediaTypeNotAcceptableException{
+		String username = userService.getPrincipalUsername(principal);
+		LoggerUtils.logRequest(logger, "Create export job", username);
+		
+		try {
+			ExportJobDTO job = this.exportJobService.create(this.resolveExportador(request), gzip, username);
+			LoggerUtils.logResponse(logger, HttpStatus.ACCEPTED.toString(), "Job id: " + job.getId());
+			return new ResponseEntity<>(job, HttpStatus.ACCEPTED);
+		} catch(RejectedExecutionException e) {
+			LoggerUtils.logException(logger, HttpStatus.SERVICE_UNAVAILABLE.toString(), e.getMessage());
+			return new ResponseEntity<>(new ResponseDTO(ResponseCodeEnum.NO_PROCESADO.getCodigo(), 
+		        		ResponseCodeEnum.NO_PROCESADO.getMensaje()), HttpStatus.SERVICE_UNAVAILABLE);
+		}
+	}
+	
+	/**End point que consulta el avance de un trabajo de exportación
+	 * @param id
+	 * @param principal
+	 * @return ResponseEntity<?> ExportJobDTO
+	 * @exception EntityNotFoundException
+	 */
+	@GetMapping("/exportar/jobs/{id}")
+	@ApiOperation(response = ExportJobDTO.class, value = "Find an export job by id")
+	public ResponseEntity<?> getExportJob(@PathVariable(value="id") String id, Principal principal){
+		String username = userService.getPrincipalUsername(principal);
+		LoggerUtils.logRequest(logger, "Consult export job", username);
+		
+		try {
+			ExportJobDTO job = this.exportJobService.findOne(id, username);
+			LoggerUtils.logResponse(logger, HttpStatus.OK.toString());
+			return new ResponseEntity<>(job, HttpStatus.OK);
+		} catch(EntityNotFoundException e) {
+			LoggerUtils.logException(logger, HttpStatus.NOT_FOUND.toString(), e.getMessage());
+			return new ResponseEntity<>(new ResponseDTO(ResponseCodeEnum.NO_ENCONTRADO.getCodigo(), 
+		        		ResponseCodeEnum.NO_ENCONTRADO.getMensaje()), HttpStatus.NOT_FOUND);
+		}
+	}
+	
+	/**End point que descarga el archivo de un trabajo terminado.
+	 * Al regresar un Resource, Spring atiende el header Range (descargas parciales y reanudables).
+	 * @param id
+	 * @param principal
+	 * @return ResponseEntity<?> archivo o ResponseDTO
+	 * @exception EntityNotFoundException
+	 */
+	@GetMapping("/exportar/jobs/{id}/download")
+	@ApiOperation(value = "Download the file of a finished export job")
+	public ResponseEntity<?> downloadExportJob(@PathVariable(value="id") String id, Principal principal){
+		String username = userService.getPrincipalUsername(principal);
+		LoggerUtils.logRequest(logger, "Download export job", username);
+		
+		try {
+			ExportJobDTO job = this.exportJobService.findOne(id, username);
+			if(job.getStatus() != ExportJobStatusEnum.TERMINADO) {
+				LoggerUtils.logResponse(logger, HttpStatus.CONFLICT.toString(), "Job status: " + job.getStatus());
+				return new ResponseEntity<>(new ResponseDTO(ResponseCodeEnum.NO_PROCESADO.getCodigo(), 
+			        		"El trabajo no ha terminado: " + job.getStatus()), HttpStatus.CONFLICT);
+			}
+			LoggerUtils.logResponse(logger, HttpStatus.OK.toString());
+			return ResponseEntity.ok()
+					.contentType(MediaType.parseMediaType(job.getContentType()))
+					.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + job.getFilename() + "\"")
+					.body(new FileSystemResource(job.getFile()));
+		} catch(EntityNotFoundException e) {
+			LoggerUtils.logException(logger, HttpStatus.NOT_FOUND.toString(), e.getMessage());
+			return new ResponseEntity<>(new ResponseDTO(ResponseCodeEnum.NO_ENCONTRADO.getCodigo(), 
+		        		ResponseCodeEnum.NO_ENCONTRADO.getMensaje()), HttpStatus.NOT_FOUND);
+		}
+	}
+	
+	/**Método para elegir el exportador según la negociación de contenido, xlsx por defecto
+	 * @param request
+	 * @return ExportadorInventario
+	 * @exception HttpMediaTypeNotAcceptableException
+	 */
+	private ExportadorInventario resolveExportador(HttpServletRequest request) throws HttpMediaTypeNotAcceptableException {
+		List<MediaType> mediaTypes = contentNegotiationManager.resolveMediaTypes(new ServletWebRequest(request));
+		for(MediaType mediaType : mediaTypes) {
+			Optional<ExportadorInventario> formato = exportadores.stream()
+					.filter(e -> mediaType.isCompatibleWith(MediaType.parseMediaType(e.getContentType())))
+					.findFirst();
+			if(formato.isPresent()) {
+				return formato.get();
+			}
+		}
 		return exportarInventario;
 	}
 	
@@ -0,0 +1,53 @@
+package com.pineapplesupermarket.tiendaapi.dto;
+
+import java.math.BigDecimal;
+/**
+ *Clase de los totales del inventario de una categoría: productos, existencias y valor (quantity * unitPrice)
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+public final class CategorySummaryDTO {
+
+	private final long idProductCategory;
+	private final String code;
+	private final String description;
+	private final long productCount;
+	private final long totalQuantity;
+	private final BigDecimal totalValue;
+
+	public CategorySummaryDTO(long idProductCategory, String code, String description, long productCount,
+			long totalQuantity, BigDecimal totalValue) {
+		super();
+		this.idProductCategory = idProductCategory;
+		this.code = code;
+		this.description = description;
+		this.productCount = productCount;
+		this.totalQuantity = totalQuantity;
+		this.totalValue = totalValue;
+	}
+
+	public long getIdProductCategory() {
+		return idProductCategory;
+	}
+
+	public String getCode() {
+		return code;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public long getProductCount() {
+		return productCount;
+	}
+
+	public long getTotalQuantity() {
+		return totalQuantity;
+	}
+
+	public BigDecimal getTotalValue() {
+		return totalValue;
+	}
+
+}
@@ -0,0 +1,61 @@
+package com.pineapplesupermarket.tiendaapi.dto;
+
+import java.util.List;
+/**
+ *Clase de una página por cursor (paginación keyset)
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+
+public class CursorPageDTO<T> {
+
+	private List<T> content;
+	private int size;
+	private String nextCursor;
+	private boolean hasNext;
+	
+	public CursorPageDTO() {
+		super();
+	}
+
+	public CursorPageDTO(List<T> content, int size, String nextCursor, boolean hasNext) {
+		super();
+		this.content = content;
+		this.size = size;
+		this.nextCursor = nextCursor;
+		this.hasNext = hasNext;
+	}
+
+	public List<T> getContent() {
+		return content;
+	}
+
+	public void setContent(List<T> content) {
+		this.content = content;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public void setSize(int size) {
+		this.size = size;
+	}
+
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+
+	public boolean isHasNext() {
+		return hasNext;
+	}
+
+	public void setHasNext(boolean hasNext) {
+		this.hasNext = hasNext;
+	}
+	
+}
@@ -0,0 +1,111 @@
+package com.pineapplesupermarket.tiendaapi.dto;
+
+import java.nio.file.Path;
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.pineapplesupermarket.tiendaapi.enums.ExportJobStatusEnum;
+/**
+ *Clase de un trabajo de exportación del inventario
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+
+public class ExportJobDTO {
+
+	private final String id;
+	private final String username;
+	private final String format;
+	private final String filename;
+	private final String contentType;
+	private final Date creationDate;
+	@JsonIgnore
+	private final Path file;
+	
+	private volatile ExportJobStatusEnum status = ExportJobStatusEnum.PENDIENTE;
+	private volatile long rowsWritten;
+	private volatile long totalRows;
+	private volatile Date finishDate;
+	private volatile String error;
+	
+	public ExportJobDTO(String id, String username, String format, String filename, 
+			String contentType, Path file) {
+		super();
+		this.id = id;
+		this.username = username;
+		this.format = format;
+		this.filename = filename;
+		this.contentType = contentType;
+		this.file = file;
+		this.creationDate = new Date();
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+
+	public String getFormat() {
+		return format;
+	}
+
+	public String getFilename() {
+		return filename;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public Date getCreationDate() {
+		return creationDate;
+	}
+
+	public Path getFile() {
+		return file;
+	}
+
+	public ExportJobStatusEnum getStatus() {
+		return status;
+	}
+
+	public void setStatus(ExportJobStatusEnum status) {
+		this.status = status;
+	}
+
+	public long getRowsWritten() {
+		return rowsWritten;
+	}
+
+	public void setRowsWritten(long rowsWritten) {
+		this.rowsWritten = rowsWritten;
+	}
+
+	public long getTotalRows() {
+		return totalRows;
+	}
+
+	public void setTotalRows(long totalRows) {
+		this.totalRows = totalRows;
+	}
+
+	public Date getFinishDate() {
+		return finishDate;
+	}
+
+	public void setFinishDate(Date finishDate) {
+		this.finishDate = finishDate;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+	
+}
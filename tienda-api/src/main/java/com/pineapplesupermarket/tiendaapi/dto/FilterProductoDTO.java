@@ -1,6 +1,12 @@
 package com.pineapplesupermarket.tiendaapi.dto;
 
+import java.math.BigDecimal;
 import java.util.Date;
+
+import org.springframework.data.domain.Sort.Direction;
+
+import com.pineapplesupermarket.tiendaapi.enums.CountModeEnum;
+import com.pineapplesupermarket.tiendaapi.enums.ProductSortEnum;
 /**
  *Clase del filtro del producto
  *@author Raquel de la Rosa 
@@ -14,6 +20,13 @@ public class FilterProductoDTO {
 	private Date fechaCreacion;
 	private int page;
 	private int size;
+	private String cursor;
+	private CountModeEnum countMode;
+	private Integer quantityMax;
+	private BigDecimal priceMin;
+	private BigDecimal priceMax;
+	private ProductSortEnum sort;
+	private Direction direction;
 	
 	public FilterProductoDTO() {
 		super();
@@ -68,4 +81,62 @@ public class FilterProductoDTO {
 		this.size = size;
 	}
 	
+	public String getCursor() {
+		return cursor;
+	}
+
+	public void setCursor(String cursor) {
+		this.cursor = cursor;
+	}
+	
+	public CountModeEnum getCountMode() {
+		return countMode;
+	}
+
+	public void setCountMode(CountModeEnum countMode) {
+		this.countMode = countMode;
+	}
+	
+	public Integer getQuantityMax() {
+		return quantityMax;
+	}
+
+	public void setQuantityMax(Integer quantityMax) {
+		this.quantityMax = quantityMax;
+	}
+
+	public BigDecimal getPriceMin() {
+		return priceMin;
+	}
+
+	public void setPriceMin(BigDecimal priceMin) {
+		this.priceMin = priceMin;
+	}
+
+	public BigDecimal getPriceMax() {
+		return priceMax;
+	}
+
+	public void setPriceMax(BigDecimal priceMax) {
+		this.priceMax = priceMax;
+	}
+
+	/** @return ProductSortEnum, ID si no se indicó */
+	public ProductSortEnum getSort() {
+		return sort == null ? ProductSortEnum.ID : sort;
+	}
+
+	public void setSort(ProductSortEnum sort) {
+		this.sort = sort;
+	}
+
+	/** @return Direction, ASC si no se indicó */
+	public Direction getDirection() {
+		return direction == null ? Direction.ASC : direction;
+	}
+
+	public void setDirection(Direction direction) {
+		this.direction = direction;
+	}
+	
 }
@@ -0,0 +1,49 @@
+package com.pineapplesupermarket.tiendaapi.dto;
+/**
+ *Clase del error de un renglón importado
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+
+public class ImportErrorDTO {
+
+	private long row;
+	private String code;
+	private String mensaje;
+	
+	public ImportErrorDTO() {
+		super();
+	}
+
+	public ImportErrorDTO(long row, String code, String mensaje) {
+		super();
+		this.row = row;
+		this.code = code;
+		this.mensaje = mensaje;
+	}
+
+	public long getRow() {
+		return row;
+	}
+
+	public void setRow(long row) {
+		this.row = row;
+	}
+
+	public String getCode() {
+		return code;
+	}
+
+	public void setCode(String code) {
+		this.code = code;
+	}
+
+	public String getMensaje() {
+		return mensaje;
+	}
+
+	public void setMensaje(String mensaje) {
+		this.mensaje = mensaje;
+	}
+	
+}
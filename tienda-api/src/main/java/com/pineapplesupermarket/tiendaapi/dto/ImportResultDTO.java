@@ -0,0 +1,55 @@
+package com.pineapplesupermarket.tiendaapi.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+/**
+ *Clase del resultado de una importación.
+ *Los errores se listan hasta un máximo, rejected siempre tiene el total
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+
+public class ImportResultDTO {
+
+	private long total;
+	private long applied;
+	private long rejected;
+	private List<ImportErrorDTO> errors = new ArrayList<>();
+	
+	public ImportResultDTO() {
+		super();
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	public void setTotal(long total) {
+		this.total = total;
+	}
+
+	public long getApplied() {
+		return applied;
+	}
+
+	public void setApplied(long applied) {
+		this.applied = applied;
+	}
+
+	public long getRejected() {
+		return rejected;
+	}
+
+	public void setRejected(long rejected) {
+		this.rejected = rejected;
+	}
+
+	public List<ImportErrorDTO> getErrors() {
+		return errors;
+	}
+
+	public void setErrors(List<ImportErrorDTO> errors) {
+		this.errors = errors;
+	}
+	
+}
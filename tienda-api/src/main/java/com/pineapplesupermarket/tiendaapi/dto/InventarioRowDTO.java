@@ -0,0 +1,80 @@
+package com.pineapplesupermarket.tiendaapi.dto;
+
+import java.util.Date;
+/**
+ *Clase de un renglón del inventario para exportar, 
+ *se llena con una proyección y no con la entidad Product
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+
+public class InventarioRowDTO {
+
+	private final long idProduct;
+	private final String categoryCode;
+	private final String categoryDescription;
+	private final String code;
+	private final String name;
+	private final String description;
+	private final Integer quantity;
+	private final Double unitPrice;
+	private final Date creationDate;
+	private final Date modificationDate;
+	
+	public InventarioRowDTO(long idProduct, String categoryCode, String categoryDescription, String code,
+			String name, String description, Integer quantity, Double unitPrice, Date creationDate,
+			Date modificationDate) {
+		super();
+		this.idProduct = idProduct;
+		this.categoryCode = categoryCode;
+		this.categoryDescription = categoryDescription;
+		this.code = code;
+		this.name = name;
+		this.description = description;
+		this.quantity = quantity;
+		this.unitPrice = unitPrice;
+		this.creationDate = creationDate;
+		this.modificationDate = modificationDate;
+	}
+
+	public long getIdProduct() {
+		return idProduct;
+	}
+
+	public String getCategoryCode() {
+		return categoryCode;
+	}
+
+	public String getCategoryDescription() {
+		return categoryDescription;
+	}
+
+	public String getCode() {
+		return code;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public Integer getQuantity() {
+		return quantity;
+	}
+
+	public Double getUnitPrice() {
+		return unitPrice;
+	}
+
+	public Date getCreationDate() {
+		return creationDate;
+	}
+
+	public Date getModificationDate() {
+		return modificationDate;
+	}
+	
+}
@@ -0,0 +1,59 @@
+package com.pineapplesupermarket.tiendaapi.dto;
+/**
+ *Clase de un producto con existencias en o por debajo de su punto de reorden.
+ *No se modifica después de creada, así se puede compartir entre el indice en memoria y las respuestas
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+public final class LowStockDTO {
+
+	private final long idProduct;
+	private final String code;
+	private final String name;
+	private final long idCategory;
+	private final int quantity;
+	private final int reorderThreshold;
+
+	public LowStockDTO(long idProduct, String code, String name, long idCategory, int quantity,
+			int reorderThreshold) {
+		super();
+		this.idProduct = idProduct;
+		this.code = code;
+		this.name = name;
+		this.idCategory = idCategory;
+		this.quantity = quantity;
+		this.reorderThreshold = reorderThreshold;
+	}
+
+	public long getIdProduct() {
+		return idProduct;
+	}
+
+	public String getCode() {
+		return code;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getIdCategory() {
+		return idCategory;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public int getReorderThreshold() {
+		return reorderThreshold;
+	}
+
+	/** Método para obtener cuánto le falta al producto para llegar a su punto de reorden
+	 * @return int 0 si está justo en el punto de reorden
+	 */
+	public int getShortage() {
+		return reorderThreshold - quantity;
+	}
+
+}
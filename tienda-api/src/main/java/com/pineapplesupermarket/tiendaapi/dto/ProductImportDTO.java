@@ -0,0 +1,72 @@
+package com.pineapplesupermarket.tiendaapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+/**
+ *Clase de un producto a importar (un renglón del CSV o un objeto del NDJSON).
+ *Usa los mismos nombres que la exportación, así un inventario exportado se puede volver a importar
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ProductImportDTO {
+
+	private String categoryCode;
+	private String code;
+	private String name;
+	private String description;
+	private Integer quantity;
+	private Double unitPrice;
+	
+	public ProductImportDTO() {
+		super();
+	}
+
+	public String getCategoryCode() {
+		return categoryCode;
+	}
+
+	public void setCategoryCode(String categoryCode) {
+		this.categoryCode = categoryCode;
+	}
+
+	public String getCode() {
+		return code;
+	}
+
+	public void setCode(String code) {
+		this.code = code;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public void setDescription(String description) {
+		this.description = description;
+	}
+
+	public Integer getQuantity() {
+		return quantity;
+	}
+
+	public void setQuantity(Integer quantity) {
+		this.quantity = quantity;
+	}
+
+	public Double getUnitPrice() {
+		return unitPrice;
+	}
+
+	public void setUnitPrice(Double unitPrice) {
+		this.unitPrice = unitPrice;
+	}
+	
+}
@@ -0,0 +1,82 @@
+package com.pineapplesupermarket.tiendaapi.dto;
+
+import java.util.Date;
+/**
+ *Clase de un producto en el listado resumido, se llena con una proyección
+ *(sin la entidad Product ni su categoría) y no se modifica después
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+
+public final class ProductSummaryDTO {
+
+	private final long idProduct;
+	private final String code;
+	private final String name;
+	private final int quantity;
+	private final double unitPrice;
+	private final String picture;
+	private final String categoryCode;
+	private final String categoryDescription;
+	private final Date modificationDate;
+	
+	public ProductSummaryDTO(long idProduct, String code, String name, int quantity, double unitPrice,
+			String picture, String categoryCode, String categoryDescription, Date modificationDate) {
+		super();
+		this.idProduct = idProduct;
+		this.code = code;
+		this.name = name;
+		this.quantity = quantity;
+		this.unitPrice = unitPrice;
+		this.picture = picture;
+		this.categoryCode = categoryCode;
+		this.categoryDescription = categoryDescription;
+		this.modificationDate = modificationDate;
+	}
+
+	/** Método para obtener una copia con otra cantidad
+	 * @param quantity
+	 * @return ProductSummaryDTO
+	 */
+	public ProductSummaryDTO withQuantity(int quantity) {
+		return new ProductSummaryDTO(idProduct, code, name, quantity, unitPrice, picture, 
+				categoryCode, categoryDescription, modificationDate);
+	}
+
+	public long getIdProduct() {
+		return idProduct;
+	}
+
+	public String getCode() {
+		return code;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public double getUnitPrice() {
+		return unitPrice;
+	}
+
+	public String getPicture() {
+		return picture;
+	}
+
+	public String getCategoryCode() {
+		return categoryCode;
+	}
+
+	public String getCategoryDescription() {
+		return categoryDescription;
+	}
+	
+	public Date getModificationDate() {
+		return modificationDate;
+	}
+	
+}
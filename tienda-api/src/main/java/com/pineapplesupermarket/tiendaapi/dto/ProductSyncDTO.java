@@ -0,0 +1,43 @@
+package com.pineapplesupermarket.tiendaapi.dto;
+/**
+ *Clase de un cambio de existencias y/o precio de un producto, identificado por su código.
+ *Los valores son absolutos; un valor nulo conserva el actual
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+
+public class ProductSyncDTO {
+
+	private String code;
+	private Integer quantity;
+	private Double unitPrice;
+	
+	public ProductSyncDTO() {
+		super();
+	}
+
+	public String getCode() {
+		return code;
+	}
+
+	public void setCode(String code) {
+		this.code = code;
+	}
+
+	public Integer getQuantity() {
+		return quantity;
+	}
+
+	public void setQuantity(Integer quantity) {
+		this.quantity = quantity;
+	}
+
+	public Double getUnitPrice() {
+		return unitPrice;
+	}
+
+	public void setUnitPrice(Double unitPrice) {
+		this.unitPrice = unitPrice;
+	}
+	
+}
@@ -0,0 +1,40 @@
+package com.pineapplesupermarket.tiendaapi.dto;
+/**
+ *Clase de la versión de un recurso para los GET condicionales (If-None-Match / If-Modified-Since)
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+
+public class ResourceVersionDTO {
+
+	private String etag;
+	/** Milisegundos de la última modificación, -1 si no se conoce */
+	private long lastModified;
+	
+	public ResourceVersionDTO() {
+		super();
+	}
+
+	public ResourceVersionDTO(String etag, long lastModified) {
+		super();
+		this.etag = etag;
+		this.lastModified = lastModified;
+	}
+
+	public String getEtag() {
+		return etag;
+	}
+
+	public void setEtag(String etag) {
+		this.etag = etag;
+	}
+
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	public void setLastModified(long lastModified) {
+		this.lastModified = lastModified;
+	}
+	
+}
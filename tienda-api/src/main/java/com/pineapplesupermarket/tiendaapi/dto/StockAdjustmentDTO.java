@@ -0,0 +1,27 @@
+package com.pineapplesupermarket.tiendaapi.dto;
+
+import javax.validation.constraints.NotNull;
+/**
+ *Clase de un ajuste de existencias: positivo entra mercancía, negativo sale
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+
+public class StockAdjustmentDTO {
+
+	@NotNull
+	private Integer delta;
+	
+	public StockAdjustmentDTO() {
+		super();
+	}
+
+	public Integer getDelta() {
+		return delta;
+	}
+
+	public void setDelta(Integer delta) {
+		this.delta = delta;
+	}
+	
+}
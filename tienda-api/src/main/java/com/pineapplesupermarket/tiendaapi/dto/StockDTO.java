@@ -0,0 +1,39 @@
+package com.pineapplesupermarket.tiendaapi.dto;
+/**
+ *Clase de las existencias de un producto
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+
+public class StockDTO {
+
+	private long idProduct;
+	private int quantity;
+	
+	public StockDTO() {
+		super();
+	}
+
+	public StockDTO(long idProduct, int quantity) {
+		super();
+		this.idProduct = idProduct;
+		this.quantity = quantity;
+	}
+
+	public long getIdProduct() {
+		return idProduct;
+	}
+
+	public void setIdProduct(long idProduct) {
+		this.idProduct = idProduct;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public void setQuantity(int quantity) {
+		this.quantity = quantity;
+	}
+	
+}
@@ -0,0 +1,68 @@
+package com.pineapplesupermarket.tiendaapi.dto;
+
+import java.util.Date;
+
+import com.pineapplesupermarket.tiendaapi.enums.StockMovementReasonEnum;
+/**
+ *Clase de un movimiento del historial de existencias; el historial solo crece, un renglón no se modifica
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+public final class StockMovementDTO {
+
+	private final Long idStockMovement;
+	private final long idProduct;
+	private final int delta;
+	private final StockMovementReasonEnum reason;
+	private final String username;
+	private final Date movementDate;
+
+	public StockMovementDTO(Long idStockMovement, long idProduct, int delta, StockMovementReasonEnum reason,
+			String username, Date movementDate) {
+		super();
+		this.idStockMovement = idStockMovement;
+		this.idProduct = idProduct;
+		this.delta = delta;
+		this.reason = reason;
+		this.username = username;
+		this.movementDate = movementDate;
+	}
+
+	/** Método para crear un movimiento que todavía no se guarda
+	 * @param idProduct
+	 * @param delta
+	 * @param reason
+	 * @param username
+	 * @param movementDate
+	 * @return StockMovementDTO sin id
+	 */
+	public static StockMovementDTO of(long idProduct, int delta, StockMovementReasonEnum reason, String username,
+			Date movementDate) {
+		return new StockMovementDTO(null, idProduct, delta, reason, username, movementDate);
+	}
+
+	public Long getIdStockMovement() {
+		return idStockMovement;
+	}
+
+	public long getIdProduct() {
+		return idProduct;
+	}
+
+	public int getDelta() {
+		return delta;
+	}
+
+	public StockMovementReasonEnum getReason() {
+		return reason;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+
+	public Date getMovementDate() {
+		return movementDate;
+	}
+
+}
@@ -0,0 +1,16 @@
+package com.pineapplesupermarket.tiendaapi.enums;
+/**
+ *Modos de conteo del total en el listado de productos
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+public enum CountModeEnum {
+
+	/** Ejecuta el COUNT(*) en cada petición y regresa un Page */
+	EXACT,
+	/** No cuenta, regresa un Slice con hasNext (se leen size + 1 registros) */
+	NONE,
+	/** Regresa un Page con el total en cache, refrescado en segundo plano */
+	ESTIMATED;
+	
+}
@@ -0,0 +1,14 @@
+package com.pineapplesupermarket.tiendaapi.enums;
+/**
+ *Estados de un trabajo de exportación
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+public enum ExportJobStatusEnum {
+
+	PENDIENTE,
+	EN_PROCESO,
+	TERMINADO,
+	FALLIDO;
+	
+}
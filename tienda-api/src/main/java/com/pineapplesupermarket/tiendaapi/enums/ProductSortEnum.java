@@ -0,0 +1,57 @@
+package com.pineapplesupermarket.tiendaapi.enums;
+/**
+ *Columnas permitidas para ordenar el listado de productos.
+ *Solo estas columnas llegan al ORDER BY; el id siempre se agrega como desempate para que el orden sea total
+ *y se pueda paginar por cursor. Cada columna tiene un indice en scripts/creator_prod.sql
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+public enum ProductSortEnum {
+
+	/** Orden por llave primaria (por defecto) */
+	ID("p.id_product", "idProduct", false),
+	/** Indices unit_price_INDEX y category_unit_price_INDEX */
+	PRICE("p.unit_price", "unitPrice", false),
+	/** Indices quantity_INDEX y category_quantity_INDEX */
+	QUANTITY("p.quantity", "quantity", false),
+	/** Indice modification_date_INDEX; los productos nunca modificados tienen NULL */
+	MODIFICATION_DATE("p.modification_date", "modificationDate", true);
+
+	private final String column;
+
+	private final String property;
+
+	private final boolean nullable;
+
+	private ProductSortEnum(String column, String property, boolean nullable) {
+		this.column = column;
+		this.property = property;
+		this.nullable = nullable;
+	}
+
+	public String getColumn() {
+		return column;
+	}
+
+	public String getProperty() {
+		return property;
+	}
+
+	public boolean isNullable() {
+		return nullable;
+	}
+
+	/** Método para obtener el orden a partir de la propiedad de la entidad (Sort de un Pageable)
+	 * @param property
+	 * @return ProductSortEnum
+	 * @exception IllegalArgumentException si la propiedad no se puede ordenar
+	 */
+	public static ProductSortEnum fromProperty(String property) {
+		for(ProductSortEnum sort : values()) {
+			if(sort.property.equals(property)) {
+				return sort;
+			}
+		}
+		throw new IllegalArgumentException("Cannot sort products by " + property);
+	}
+}
@@ -10,7 +10,8 @@ public enum ResponseCodeEnum {
 	NO_ENCONTRADO("01", "No registrado en el catalogo"),
 	DUPLICADO("02", "Ya registrado previamente"),
 	NO_PROCESADO("03", "Error al procesar"),
-	NO_AUTORIZADO("04", "No autorizado para el recurso solicitado");
+	NO_AUTORIZADO("04", "No autorizado para el recurso solicitado"),
+	SIN_EXISTENCIAS("05", "Existencias insuficientes");
 	
 	private String codigo;
 	private String mensaje;
@@ -0,0 +1,17 @@
+package com.pineapplesupermarket.tiendaapi.enums;
+/**
+ *Origen de un movimiento de existencias en el historial (ps_stock_movement)
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+public enum StockMovementReasonEnum {
+
+	CREATE,
+	UPDATE,
+	ADJUSTMENT,
+	BUFFERED,
+	SYNC,
+	IMPORT,
+	DELETE;
+	
+}
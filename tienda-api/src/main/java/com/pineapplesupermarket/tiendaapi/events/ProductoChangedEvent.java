@@ -0,0 +1,43 @@
+package com.pineapplesupermarket.tiendaapi.events;
+
+import java.util.Collection;
+/**
+ *Evento que se publica cuando cambian productos en la base, para invalidar lo que esté en memoria.
+ *Se escucha con @TransactionalEventListener, así se procesa después del commit
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+public class ProductoChangedEvent {
+
+	/** Productos que cambiaron, null si pueden ser todos */
+	private final Collection<Long> idsProduct;
+
+	/** true si solo cambiaron existencias o precios, que no afectan los filtros de los listados */
+	private final boolean valuesOnly;
+
+	public ProductoChangedEvent(Collection<Long> idsProduct) {
+		this(idsProduct, false);
+	}
+
+	public ProductoChangedEvent(Collection<Long> idsProduct, boolean valuesOnly) {
+		super();
+		this.idsProduct = idsProduct;
+		this.valuesOnly = valuesOnly;
+	}
+
+	public Collection<Long> getIdsProduct() {
+		return idsProduct;
+	}
+
+	public boolean isValuesOnly() {
+		return valuesOnly;
+	}
+
+	/** Método para saber si el cambio puede afectar a cualquier producto
+	 * @return boolean
+	 */
+	public boolean isAll() {
+		return idsProduct == null;
+	}
+	
+}
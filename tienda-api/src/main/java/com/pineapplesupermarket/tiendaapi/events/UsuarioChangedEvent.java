@@ -0,0 +1,24 @@
+package com.pineapplesupermarket.tiendaapi.events;
+
+import java.util.Collection;
+/**
+ *Evento que se publica cuando cambia un usuario, para invalidar su sesión en cache.
+ *Se escucha con @TransactionalEventListener, así se procesa después del commit
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+public class UsuarioChangedEvent {
+
+	/** Usernames que cambiaron, incluido el anterior si se renombró */
+	private final Collection<String> usernames;
+
+	public UsuarioChangedEvent(Collection<String> usernames) {
+		super();
+		this.usernames = usernames;
+	}
+
+	public Collection<String> getUsernames() {
+		return usernames;
+	}
+
+}
@@ -0,0 +1,14 @@
+package com.pineapplesupermarket.tiendaapi.exception;
+/**
+ *Clase de la excepción  InsufficientStockException e
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+public class InsufficientStockException extends Exception {
+
+	private static final long serialVersionUID = 4190262719734325853L;
+
+	public InsufficientStockException(long idProduct, int delta) {
+		super("Insufficient stock for product id: " + idProduct + ", delta = " + delta);
+	}
+}
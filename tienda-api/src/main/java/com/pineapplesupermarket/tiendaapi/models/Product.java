@@ -14,6 +14,7 @@ import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 import javax.persistence.UniqueConstraint;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 /**
@@ -64,6 +65,32 @@ public class Product{
 	@Temporal(TemporalType.TIMESTAMP)
 	@Column(name="modification_date")
 	private Date modificationDate;
+	
+	/** Punto de reorden: alerta cuando la cantidad llega a este valor; si es null se usa el de la categoría */
+	@Min(0)
+	@Column(name="reorder_threshold")
+	private Integer reorderThreshold;
+
+	public Product() {
+		super();
+	}
+
+	/** Constructor de copia, para entregar el producto modificado sin tocar la entidad administrada
+	 * @param product
+	 */
+	public Product(Product product) {
+		this.idProduct = product.idProduct;
+		this.productCategory = product.productCategory;
+		this.code = product.code;
+		this.name = product.name;
+		this.description = product.description;
+		this.quantity = product.quantity;
+		this.unitPrice = product.unitPrice;
+		this.picture = product.picture;
+		this.creationDate = product.creationDate;
+		this.modificationDate = product.modificationDate;
+		this.reorderThreshold = product.reorderThreshold;
+	}
 
 	public long getIdProduct() {
 		return idProduct;
@@ -145,4 +172,12 @@ public class Product{
 		this.modificationDate = modificationDate;
 	}
 
+	public Integer getReorderThreshold() {
+		return reorderThreshold;
+	}
+
+	public void setReorderThreshold(Integer reorderThreshold) {
+		this.reorderThreshold = reorderThreshold;
+	}
+
 }
@@ -6,6 +6,7 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Table;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
 /**
  *Modelo de las categorías del producto
@@ -29,6 +30,10 @@ public class ProductCategory {
 	@Column(name = "description", length = 50, nullable = false)
 	private String description;
 	
+	/** Punto de reorden de los productos de la categoría que no tienen uno propio, null sin alerta */
+	@Min(0)
+	@Column(name = "reorder_threshold")
+	private Integer reorderThreshold;
 	
 	public Long getIdProductCategory() {
 		return idProductCategory;
@@ -48,4 +53,10 @@ public class ProductCategory {
 	public void setDescription(String description) {
 		this.description = description;
 	}
+	public Integer getReorderThreshold() {
+		return reorderThreshold;
+	}
+	public void setReorderThreshold(Integer reorderThreshold) {
+		this.reorderThreshold = reorderThreshold;
+	}
 }
@@ -5,91 +5,489 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
 
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
 import org.springframework.stereotype.Repository;
 
+import com.pineapplesupermarket.tiendaapi.dto.FilterProductoDTO;
+import com.pineapplesupermarket.tiendaapi.dto.InventarioRowDTO;
+import com.pineapplesupermarket.tiendaapi.dto.ProductSummaryDTO;
+import com.pineapplesupermarket.tiendaapi.enums.ProductSortEnum;
 import com.pineapplesupermarket.tiendaapi.models.Product;
+import com.pineapplesupermarket.tiendaapi.util.CursorUtils.Posicion;
 /**
- *Repositorio del producto
+ *Repositorio del producto.
+ *Los filtros y el orden solo generan SQL a partir de columnas fijas (ProductSortEnum), los valores siempre van como parámetros.
+ *Todo orden termina en id_product, así el orden es total y la página siguiente se puede pedir por cursor
+ *con una comparación de renglón (columna, id) que resuelve el indice de la columna (InnoDB agrega la llave primaria).
  *@author Raquel de la Rosa 
  *@version 1.0
  */
 @Repository
 public class CustomProductosRepository {
 
+	private static final String INVENTARIO_QUERY = "select p.idProduct, c.code, c.description, "
+			+ "p.code, p.name, p.description, p.quantity, p.unitPrice, p.creationDate, p.modificationDate "
+			+ "from Product p join p.productCategory c order by p.idProduct";
+
+	/** Debe coincidir con ngram_token_size del servidor MySQL (2 por defecto) */
+	private static final int NGRAM_TOKEN_SIZE = 2;
+
+	/** Bits de la forma de los filtros; cada forma tiene su SQL fijo y los valores van como parámetros */
+	private static final int NAME_LIKE = 1;
+	private static final int NAME_MATCH = 2;
+	private static final int CATEGORIA = 4;
+	private static final int FECHA = 8;
+	private static final int QUANTITY_MAX = 16;
+	private static final int PRICE_MIN = 32;
+	private static final int PRICE_MAX = 64;
+	/** Paginación keyset: la página empieza después de (valor de la columna de orden, id) */
+	private static final int AFTER = 128;
+	/** Paginación keyset sobre una columna que admite NULL cuando el último valor fue NULL */
+	private static final int AFTER_NULL = 256;
+
+	/** Tipos de query; la llave del SQL es el tipo, la forma de los filtros, la columna de orden y la dirección */
+	private static final int SELECT = 0;
+	private static final int COUNT = 1;
+	private static final int IDS = 2;
+	private static final int SUMMARY = 3;
+	private static final int KIND_SHIFT = 9;
+	private static final int SORT_SHIFT = 11;
+	private static final int DESC = 1 << 14;
+
+	//el texto de cada query es siempre el mismo, así el plan de Hibernate y el PreparedStatement del driver se reutilizan.
+	//Hay miles de combinaciones posibles y se usan pocas, por eso se construyen la primera vez que se piden
+	private static final Map<Integer, String> QUERIES = new ConcurrentHashMap<>();
+
+	private static final String CATEGORIA_JOIN = 
+			"INNER JOIN ps_product_category pc on pc.id_product_category = p.id_product_category ";
+
+	/** Columnas del listado resumido, la categoría sale del mismo JOIN */
+	private static final String SUMMARY_SELECT = "SELECT p.id_product, p.code, p.name, p.quantity, "
+			+ "p.unit_price, p.picture, pc.code AS category_code, pc.description AS category_description, "
+			+ "p.modification_date FROM ps_product p " + CATEGORIA_JOIN;
+
 	@Autowired
 	private EntityManager entityManager;
-		
-	/** Metódo para buscar los productos con filtros
+
+	/** Metódo para buscar los productos con filtros; se ordena por la primera propiedad del Sort del pageable
 	 * @param name
 	 * @param categoria
 	 * @param fechaCreacion
 	 * @param pageable
 	 * @return transaccionesPage
+	 * @exception IllegalArgumentException si la propiedad del Sort no se puede ordenar
 	 */
 	public Page<Product> findAll(String name, String categoria, Date fechaCreacion, Pageable pageable){
+		FilterProductoDTO filters = toFilters(name, categoria, fechaCreacion, pageable);
+		List<Product> productos = this.findContent(filters, pageable.getOffset(), pageable.getPageSize());
+		long count = this.count(filters);
+
+		//para convertir a page
+		Page<Product> transaccionesPage = new PageImpl<Product>(productos, pageable, count);
+
+		return transaccionesPage;
+	}
+	
+	/** Metódo para buscar los productos con filtros sin ejecutar el COUNT(*).
+	 * Se lee un registro extra para saber si existe una página siguiente.
+	 * @param name
+	 * @param categoria
+	 * @param fechaCreacion
+	 * @param pageable
+	 * @return Slice<Product>
+	 * @exception IllegalArgumentException si la propiedad del Sort no se puede ordenar
+	 */
+	public Slice<Product> findSlice(String name, String categoria, Date fechaCreacion, Pageable pageable){
+		List<Product> productos = this.findContent(toFilters(name, categoria, fechaCreacion, pageable), 
+				pageable.getOffset(), pageable.getPageSize() + 1);
 		
-		StringBuilder dataQuery = new StringBuilder();
-		dataQuery.append("SELECT * FROM ps_product p ");
+		boolean hasNext = productos.size() > pageable.getPageSize();
+		if(hasNext) {
+			productos = productos.subList(0, pageable.getPageSize());
+		}
+		return new SliceImpl<Product>(productos, pageable, hasNext);
+	}
+	
+	/** Metódo para contar los productos con filtros
+	 * @param name
+	 * @param categoria
+	 * @param fechaCreacion
+	 * @return long
+	 */
+	public long count(String name, String categoria, Date fechaCreacion) {
+		return this.count(new FilterProductoDTO(name, categoria, fechaCreacion, 0, 0));
+	}
+
+	/** Metódo para contar los productos con filtros, el orden no se usa
+	 * @param filters
+	 * @return long
+	 */
+	public long count(FilterProductoDTO filters) {
+		Query countQueryNative = entityManager.createNativeQuery(
+				query(COUNT, shape(filters, null), ProductSortEnum.ID, Direction.ASC));
+		this.setFiltersParameters(countQueryNative, filters, null);
 		
+		BigInteger count = (BigInteger) countQueryNative.getSingleResult();
+		return count.longValue();
+	}
+	
+	/** Metódo para obtener una página de productos con filtros
+	 * @param filters
+	 * @param offset
+	 * @param limit
+	 * @return List<Product>
+	 */
+	private List<Product> findContent(FilterProductoDTO filters, long offset, int limit){
+		//paginacion
+		Query queryNative = this.entityManager.createNativeQuery(query(SELECT, shape(filters, null), 
+				filters.getSort(), filters.getDirection()), Product.class);
+		queryNative.setFirstResult((int) offset);
+		queryNative.setMaxResults(limit);
+
+		//setear parametros de query
+		this.setFiltersParameters(queryNative, filters, null);
+
+		@SuppressWarnings("unchecked")
+		List<Product> productos = queryNative.getResultList();
+		return productos;
+	}
+
+	/** Metódo para obtener solo los ids de una página de productos con filtros, en el orden pedido
+	 * @param filters
+	 * @param offset
+	 * @param limit
+	 * @return List<Long>
+	 */
+	public List<Long> findIds(FilterProductoDTO filters, long offset, int limit){
+		Query queryNative = this.entityManager.createNativeQuery(query(IDS, shape(filters, null), 
+				filters.getSort(), filters.getDirection()));
+		queryNative.setFirstResult((int) offset);
+		queryNative.setMaxResults(limit);
+		this.setFiltersParameters(queryNative, filters, null);
+
+		@SuppressWarnings("unchecked")
+		List<Number> ids = queryNative.getResultList();
+		return ids.stream().map(Number::longValue).collect(Collectors.toList());
+	}
+
+	/** Metódo para buscar los productos con filtros a partir de una posición (paginación keyset).
+	 * Busca sobre el indice de la columna de orden con (columna, id_product) > (:afterValue, :afterId),
+	 * por lo que el costo de cada página es el mismo sin importar su profundidad.
+	 * @param filters
+	 * @param after posición del último producto de la página anterior, null para la primera página
+	 * @param limit
+	 * @return List<Product>
+	 */
+	public List<Product> findAllAfter(FilterProductoDTO filters, Posicion after, int limit){
+		Query queryNative = this.entityManager.createNativeQuery(query(SELECT, shape(filters, after), 
+				filters.getSort(), filters.getDirection()), Product.class);
+		queryNative.setMaxResults(limit);
+		this.setFiltersParameters(queryNative, filters, after);
+
+		@SuppressWarnings("unchecked")
+		List<Product> productos = queryNative.getResultList();
+		return productos;
+	}
+
+	/** Metódo para buscar el listado resumido de productos con filtros: un solo query con la categoría
+	 * y solo las columnas del listado, sin crear entidades ni pasar por el contexto de persistencia
+	 * @param filters
+	 * @param after posición del último producto de la página anterior (keyset), null para paginar por offset
+	 * @param offset
+	 * @param limit
+	 * @return List<ProductSummaryDTO>
+	 */
+	public List<ProductSummaryDTO> findSummaries(FilterProductoDTO filters, Posicion after, long offset, int limit){
+		Query queryNative = this.entityManager.createNativeQuery(query(SUMMARY, shape(filters, after), 
+				filters.getSort(), filters.getDirection()));
+		queryNative.setFirstResult((int) offset);
+		queryNative.setMaxResults(limit);
+		this.setFiltersParameters(queryNative, filters, after);
+
+		@SuppressWarnings("unchecked")
+		List<Object[]> rows = queryNative.getResultList();
+		List<ProductSummaryDTO> productos = new ArrayList<>(rows.size());
+		for(Object[] row : rows) {
+			productos.add(new ProductSummaryDTO(
+					((Number) row[0]).longValue(),
+					(String) row[1],
+					(String) row[2],
+					((Number) row[3]).intValue(),
+					((Number) row[4]).doubleValue(),
+					(String) row[5],
+					(String) row[6],
+					(String) row[7],
+					(Date) row[8]));
+		}
+		return productos;
+	}
+
+	/** Metódo para recorrer todo el inventario con un cursor de solo avance.
+	 * Usa una StatelessSession (sin contexto de persistencia) y una proyección en lugar
+	 * de entidades, así la memoria no crece con el número de productos.
+	 * @param fetchSize renglones que se piden a la base en cada viaje
+	 * @param consumer recibe cada renglón en orden de id_product
+	 * @return long número de renglones leídos
+	 */
+	public long scrollInventario(int fetchSize, Consumer<InventarioRowDTO> consumer) {
+		SessionFactory sessionFactory = this.entityManager.getEntityManagerFactory()
+				.unwrap(SessionFactory.class);
+		long rows = 0;
+		try(StatelessSession session = sessionFactory.openStatelessSession();
+			ScrollableResults results = session.createQuery(INVENTARIO_QUERY)
+					.setFetchSize(fetchSize)
+					.setReadOnly(true)
+					.scroll(ScrollMode.FORWARD_ONLY)) {
+			while(results.next()) {
+				Object[] row = results.get();
+				consumer.accept(new InventarioRowDTO(
+						(Long) row[0],
+						(String) row[1],
+						(String) row[2],
+						(String) row[3],
+						(String) row[4],
+						(String) row[5],
+						(Integer) row[6],
+						(Double) row[7],
+						(Date) row[8],
+						(Date) row[9]));
+				rows++;
+			}
+		}
+		return rows;
+	}
+
+	/** Metódo para convertir los parámetros de un Pageable en filtros
+	 * @param name
+	 * @param categoria
+	 * @param fechaCreacion
+	 * @param pageable
+	 * @return FilterProductoDTO
+	 * @exception IllegalArgumentException si la propiedad del Sort no se puede ordenar
+	 */
+	private static FilterProductoDTO toFilters(String name, String categoria, Date fechaCreacion, Pageable pageable) {
+		FilterProductoDTO filters = new FilterProductoDTO(name, categoria, fechaCreacion, 
+				pageable.getPageNumber(), pageable.getPageSize());
+		//solo se usa la primera propiedad, el id siempre se agrega como desempate
+		Sort.Order order = pageable.getSort().stream().findFirst().orElse(null);
+		if(order != null) {
+			filters.setSort(ProductSortEnum.fromProperty(order.getProperty()));
+			filters.setDirection(order.getDirection());
+		}
+		return filters;
+	}
+
+	/** Metódo para obtener el SQL de un tipo de query, se construye solo la primera vez
+	 * @param kind
+	 * @param shape
+	 * @param sort
+	 * @param direction
+	 * @return String
+	 */
+	private static String query(int kind, int shape, ProductSortEnum sort, Direction direction) {
+		int key = shape | kind << KIND_SHIFT | sort.ordinal() << SORT_SHIFT 
+				| (direction == Direction.DESC ? DESC : 0);
+		return QUERIES.computeIfAbsent(key, CustomProductosRepository::buildQuery);
+	}
+
+	/** Metódo para construir el SQL a partir de su llave
+	 * @param key
+	 * @return String
+	 */
+	private static String buildQuery(int key) {
+		int shape = key & ((1 << KIND_SHIFT) - 1);
+		int kind = (key >> KIND_SHIFT) & 3;
+		ProductSortEnum sort = ProductSortEnum.values()[(key >> SORT_SHIFT) & 7];
+		boolean desc = (key & DESC) != 0;
+		switch(kind) {
+		case COUNT:
+			return "SELECT COUNT(*) FROM ps_product p " + buildFiltersQuery(shape, sort, desc);
+		case IDS:
+			return "SELECT p.id_product FROM ps_product p " + buildFiltersQuery(shape, sort, desc) 
+				+ buildOrderBy(sort, desc);
+		case SUMMARY:
+			return SUMMARY_SELECT + buildWhere(shape, sort, desc) + buildOrderBy(sort, desc);
+		default:
+			return "SELECT * FROM ps_product p " + buildFiltersQuery(shape, sort, desc) + buildOrderBy(sort, desc);
+		}
+	}
+
+	/** Metódo para obtener la forma de los filtros que se usan
+	 * @param filters
+	 * @param after
+	 * @return int
+	 */
+	private static int shape(FilterProductoDTO filters, Posicion after) {
+		int shape = 0;
+		if(filters.getName() != null) {
+			shape |= NAME_LIKE;
+			if(toNgramPhrase(filters.getName()) != null) {
+				shape |= NAME_MATCH;
+			}
+		}
+		if(filters.getCategoria() != null) {
+			shape |= CATEGORIA;
+		}
+		if(filters.getFechaCreacion() != null) {
+			shape |= FECHA;
+		}
+		if(filters.getQuantityMax() != null) {
+			shape |= QUANTITY_MAX;
+		}
+		if(filters.getPriceMin() != null) {
+			shape |= PRICE_MIN;
+		}
+		if(filters.getPriceMax() != null) {
+			shape |= PRICE_MAX;
+		}
+		if(after != null) {
+			shape |= AFTER;
+			if(after.getValue() == null && filters.getSort().isNullable()) {
+				shape |= AFTER_NULL;
+			}
+		}
+		return shape;
+	}
+
+	/** Metódo para construir el JOIN y el WHERE de una forma de los filtros
+	 * @param shape
+	 * @param sort
+	 * @param desc
+	 * @return String
+	 */
+	private static String buildFiltersQuery(int shape, ProductSortEnum sort, boolean desc) {
+		return ((shape & CATEGORIA) != 0 ? CATEGORIA_JOIN : "") + buildWhere(shape, sort, desc);
+	}
+
+	/** Metódo para construir el WHERE de una forma de los filtros
+	 * @param shape
+	 * @param sort
+	 * @param desc
+	 * @return String
+	 */
+	private static String buildWhere(int shape, ProductSortEnum sort, boolean desc) {
 		StringBuilder filtersQuery = new StringBuilder();
-				
-		List<String> filters = new ArrayList<>();
-		
-		if(name != null) {
-			String filter = " p.name like \'%" + name + "%\'";
-			filters.add(filter);
+		List<String> allFilters = new ArrayList<>();
+
+		//el indice FULLTEXT (ngram) reduce los candidatos y el LIKE conserva la busqueda por subcadena
+		if((shape & NAME_MATCH) != 0) {
+			allFilters.add(" MATCH(p.name) AGAINST(:nameMatch IN BOOLEAN MODE)");
 		}
-		
-		if(categoria != null) {
-			filtersQuery.append("INNER JOIN ps_product_category pc on pc.id_product_category = p.id_product_category ");
-			
+		if((shape & NAME_LIKE) != 0) {
+			allFilters.add(" p.name like :namePattern");
+		}
+
+		if((shape & CATEGORIA) != 0) {
 			String filter = " pc.code = :categoria";
-			filters.add(filter);
+			allFilters.add(filter);
 		}
-		
-		if(fechaCreacion != null) {
+
+		if((shape & FECHA) != 0) {
 			String filter = " p.creation_date >= :fechaCreacion";
-			filters.add(filter);
-			
+			allFilters.add(filter);
+
 			String filter2 = " p.creation_date <= :fechaFin";
-			filters.add(filter2);
+			allFilters.add(filter2);
 		}
-		
-		if(!filters.isEmpty()) {
+
+		//existencias bajas y rango de precio: indices category_quantity_INDEX / category_unit_price_INDEX con categoría
+		if((shape & QUANTITY_MAX) != 0) {
+			allFilters.add(" p.quantity <= :quantityMax");
+		}
+		if((shape & PRICE_MIN) != 0) {
+			allFilters.add(" p.unit_price >= :priceMin");
+		}
+		if((shape & PRICE_MAX) != 0) {
+			allFilters.add(" p.unit_price <= :priceMax");
+		}
+
+		if((shape & AFTER) != 0) {
+			allFilters.add(buildKeyset(shape, sort, desc));
+		}
+
+		if(!allFilters.isEmpty()) {
 			filtersQuery.append("WHERE");
-			filtersQuery.append(filters.stream().collect(Collectors.joining(" and "))).append(" ");
+			filtersQuery.append(allFilters.stream().collect(Collectors.joining(" and "))).append(" ");
 		}
-		
-		StringBuilder countQuery = new StringBuilder();
-		countQuery.append("SELECT COUNT(*) FROM ps_product p ");
-		countQuery.append(filtersQuery);
-		
-		StringBuilder query = new StringBuilder(dataQuery);
-		query.append(filtersQuery);
-		
-		//paginacion
-		Query queryNative = this.entityManager.createNativeQuery(query.toString(), Product.class);
-		queryNative.setFirstResult((pageable.getPageNumber()) * pageable.getPageSize());
-		queryNative.setMaxResults(pageable.getPageSize());
-		
-		Query countQueryNative = entityManager.createNativeQuery(countQuery.toString());
-		
-		//setear parametros de query
-		
-		if(categoria != null) {
-			queryNative.setParameter("categoria", categoria);
-			countQueryNative.setParameter("categoria", categoria);
+		return filtersQuery.toString();
+	}
+
+	/** Metódo para construir la condición de la paginación keyset, debe coincidir con buildOrderBy.
+	 * MySQL ordena los NULL antes que cualquier valor: primero en ASC y al final en DESC
+	 * @param shape
+	 * @param sort
+	 * @param desc
+	 * @return String
+	 */
+	private static String buildKeyset(int shape, ProductSortEnum sort, boolean desc) {
+		String operator = desc ? " < " : " > ";
+		if(sort == ProductSortEnum.ID) {
+			return " p.id_product" + operator + ":afterId";
+		}
+		String column = sort.getColumn();
+		if((shape & AFTER_NULL) != 0) {
+			return desc ? " (" + column + " IS NULL and p.id_product < :afterId)"
+					: " (" + column + " IS NOT NULL or p.id_product > :afterId)";
+		}
+		String keyset = " (" + column + ", p.id_product)" + operator + "(:afterValue, :afterId)";
+		if(sort.isNullable() && desc) {
+			return " (" + keyset.substring(1) + " or " + column + " IS NULL)";
+		}
+		return keyset;
+	}
+
+	/** Metódo para construir el ORDER BY, el id desempata en la misma dirección para usar el indice completo
+	 * @param sort
+	 * @param desc
+	 * @return String
+	 */
+	private static String buildOrderBy(ProductSortEnum sort, boolean desc) {
+		String direction = desc ? " DESC" : " ASC";
+		if(sort == ProductSortEnum.ID) {
+			return "ORDER BY p.id_product" + direction;
+		}
+		return "ORDER BY " + sort.getColumn() + direction + ", p.id_product" + direction;
+	}
+
+	/** Metódo para setear los parametros de los filtros
+	 * @param query
+	 * @param filters
+	 * @param after
+	 */
+	private void setFiltersParameters(Query query, FilterProductoDTO filters, Posicion after) {
+		String name = filters.getName();
+		if(name != null) {
+			String phrase = toNgramPhrase(name);
+			if(phrase != null) {
+				query.setParameter("nameMatch", phrase);
+			}
+			query.setParameter("namePattern", toLikePattern(name));
 		}
 		
+		if(filters.getCategoria() != null) {
+			query.setParameter("categoria", filters.getCategoria());
+		}
+
+		Date fechaCreacion = filters.getFechaCreacion();
 		if(fechaCreacion != null) {
 			Calendar cal = Calendar.getInstance();
 			Date fechaFin = fechaCreacion;
@@ -97,28 +495,62 @@ public class CustomProductosRepository {
 			cal.set(Calendar.HOUR_OF_DAY, 0);
 			cal.set(Calendar.MINUTE, 0);
 			cal.set(Calendar.SECOND, 0);
-			fechaCreacion = cal.getTime();
+			Date fechaInicio = cal.getTime();
 			cal.setTime(fechaFin);
 			cal.set(Calendar.HOUR_OF_DAY, 23);
 			cal.set(Calendar.MINUTE, 59);
 			cal.set(Calendar.SECOND, 59);
 			fechaFin = cal.getTime();
-			
-			queryNative.setParameter("fechaCreacion", fechaCreacion);
-			countQueryNative.setParameter("fechaCreacion", fechaCreacion);
-			
-			queryNative.setParameter("fechaFin", fechaFin);
-			countQueryNative.setParameter("fechaFin", fechaFin);
-			
+
+			query.setParameter("fechaCreacion", fechaInicio);
+			query.setParameter("fechaFin", fechaFin);
 		}
-		
-		@SuppressWarnings("unchecked")
-		List<Product> productos = queryNative.getResultList();
-		BigInteger count = (BigInteger) countQueryNative.getSingleResult();
-		
-		//para convertir a page
-		Page<Product> transaccionesPage = new PageImpl<Product>(productos, pageable, count.longValue());
-		
-		return transaccionesPage;
+
+		if(filters.getQuantityMax() != null) {
+			query.setParameter("quantityMax", filters.getQuantityMax());
+		}
+		if(filters.getPriceMin() != null) {
+			query.setParameter("priceMin", filters.getPriceMin());
+		}
+		if(filters.getPriceMax() != null) {
+			query.setParameter("priceMax", filters.getPriceMax());
+		}
+
+		if(after != null) {
+			query.setParameter("afterId", after.getIdProduct());
+			if(after.getValue() != null) {
+				query.setParameter("afterValue", after.getValue());
+			}
+		}
+	}
+	
+	/** Metódo para convertir el nombre buscado en una frase del modo booleano de MATCH.
+	 * Con el parser ngram la frase se descompone en ngramas consecutivos, por lo que 
+	 * encuentra el texto en cualquier posición del nombre.
+	 * @param name
+	 * @return String, null si alguna palabra es más corta que el ngram_token_size y no puede usar el indice
+	 */
+	private static String toNgramPhrase(String name) {
+		String phrase = name.replace("\"", " ").trim();
+		if(phrase.isEmpty()) {
+			return null;
+		}
+		for(String word : phrase.split("\\s+")) {
+			if(word.length() < NGRAM_TOKEN_SIZE) {
+				return null;
+			}
+		}
+		return "\"" + phrase + "\"";
+	}
+	
+	/** Metódo para construir el patrón del LIKE escapando los comodines
+	 * @param name
+	 * @return String
+	 */
+	private static String toLikePattern(String name) {
+		String escaped = name.replace("\\", "\\\\")
+				.replace("%", "\\%")
+				.replace("_", "\\_");
+		return "%" + escaped + "%";
 	}
 }
@@ -0,0 +1,176 @@
+package com.pineapplesupermarket.tiendaapi.repositories;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.pineapplesupermarket.tiendaapi.dto.ProductImportDTO;
+import com.pineapplesupermarket.tiendaapi.dto.ProductSyncDTO;
+/**
+ *Repositorio del producto para operaciones por lotes con JDBC.
+ *Con rewriteBatchedStatements el driver de MySQL manda cada lote como un solo INSERT multi-renglón
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+@Repository
+public class ProductBatchRepository {
+
+	private static final String INSERT_QUERY = "INSERT INTO ps_product "
+			+ "(id_product_category, code, name, description, quantity, unit_price, creation_date) "
+			+ "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+	private static final String UPDATE_BY_CODE_QUERY = "UPDATE ps_product SET "
+			+ "quantity = COALESCE(?, quantity), unit_price = COALESCE(?, unit_price), modification_date = ? "
+			+ "WHERE code = ?";
+
+	/** LAST_INSERT_ID(expr) guarda la nueva cantidad en la conexión, se lee sin volver a consultar la tabla */
+	private static final String ADJUST_STOCK_QUERY = "UPDATE ps_product SET "
+			+ "quantity = LAST_INSERT_ID(quantity + ?), modification_date = ? "
+			+ "WHERE id_product = ? AND quantity + ? >= 0";
+
+	private static final String ADD_STOCK_QUERY = "UPDATE ps_product SET "
+			+ "quantity = quantity + ?, modification_date = ? "
+			+ "WHERE id_product = ? AND quantity + ? >= 0";
+
+	private static final String EXISTS_QUERY = "SELECT COUNT(*) FROM ps_product WHERE id_product = ?";
+
+	private static final String IDS_BY_CODE_QUERY = "SELECT id_product FROM ps_product WHERE code IN (:codes)";
+
+	private static final String EXISTING_QUERY = "SELECT code, name, id_product_category, id_product FROM ps_product "
+			+ "WHERE code IN (:codes) OR name IN (:names)";
+
+	@Autowired
+	private NamedParameterJdbcTemplate jdbcTemplate;
+
+	/** Metódo para buscar en un solo query los productos que ya existen con alguno de los códigos
+	 * o nombres; regresa las llaves con el formato de codeKey y nameKey y el id del producto de cada una
+	 * @param codes
+	 * @param names
+	 * @return Map<String, Long>
+	 */
+	public Map<String, Long> findExistingKeys(Collection<String> codes, Collection<String> names) {
+		Map<String, Long> keys = new HashMap<>();
+		if(codes.isEmpty() && names.isEmpty()) {
+			return keys;
+		}
+		MapSqlParameterSource params = new MapSqlParameterSource()
+				//IN () no es válido en MySQL
+				.addValue("codes", codes.isEmpty() ? List.of("") : codes)
+				.addValue("names", names.isEmpty() ? List.of("") : names);
+		this.jdbcTemplate.query(EXISTING_QUERY, params, rs -> {
+			keys.put(codeKey(rs.getString(1)), rs.getLong(4));
+			keys.put(nameKey(rs.getString(2), rs.getLong(3)), rs.getLong(4));
+		});
+		return keys;
+	}
+
+	/** Metódo para obtener los ids de productos por código (indice code_UNIQUE)
+	 * @param codes no vacío
+	 * @return List<Long>
+	 */
+	public List<Long> findIdsByCode(Collection<String> codes) {
+		return this.jdbcTemplate.queryForList(IDS_BY_CODE_QUERY, new MapSqlParameterSource("codes", codes), Long.class);
+	}
+
+	/** Metódo para insertar los productos en un lote
+	 * @param productos
+	 * @param categorias id de la categoría de cada producto, en el mismo orden
+	 * @param creationDate
+	 * @return int[] renglones insertados por producto
+	 */
+	public int[] insert(List<ProductImportDTO> productos, List<Long> categorias, Date creationDate) {
+		Timestamp fecha = new Timestamp(creationDate.getTime());
+		List<Object[]> batch = new ArrayList<>(productos.size());
+		for(int i = 0; i < productos.size(); i++) {
+			ProductImportDTO producto = productos.get(i);
+			batch.add(new Object[] {categorias.get(i), producto.getCode(), producto.getName(),
+					producto.getDescription(), producto.getQuantity(), producto.getUnitPrice(), fecha});
+		}
+		return this.jdbcTemplate.getJdbcTemplate().batchUpdate(INSERT_QUERY, batch);
+	}
+
+	/** Metódo para actualizar existencias y precio por código (indice code_UNIQUE) en lotes
+	 * @param cambios
+	 * @param modificationDate
+	 * @param batchSize
+	 */
+	public void updateByCode(List<ProductSyncDTO> cambios, Date modificationDate, int batchSize) {
+		Timestamp fecha = new Timestamp(modificationDate.getTime());
+		this.jdbcTemplate.getJdbcTemplate().batchUpdate(UPDATE_BY_CODE_QUERY, cambios, batchSize, (ps, cambio) -> {
+			ps.setObject(1, cambio.getQuantity(), Types.INTEGER);
+			ps.setObject(2, cambio.getUnitPrice(), Types.DOUBLE);
+			ps.setTimestamp(3, fecha);
+			ps.setString(4, cambio.getCode());
+		});
+	}
+
+	/** Metódo para sumar (o restar) existencias de forma atómica, sin cargar la entidad.
+	 * Debe ejecutarse dentro de una transacción para que ambos queries usen la misma conexión
+	 * @param idProduct
+	 * @param delta
+	 * @param modificationDate
+	 * @return Integer la nueva cantidad, null si el producto no existe o la cantidad quedaría negativa
+	 */
+	public Integer adjustStock(long idProduct, int delta, Date modificationDate) {
+		JdbcTemplate template = this.jdbcTemplate.getJdbcTemplate();
+		int updated = template.update(ADJUST_STOCK_QUERY, delta, new Timestamp(modificationDate.getTime()), idProduct, delta);
+		if(updated == 0) {
+			return null;
+		}
+		return template.queryForObject("SELECT LAST_INSERT_ID()", Integer.class);
+	}
+
+	/** Metódo para sumar existencias a muchos productos en lotes; igual que adjustStock,
+	 * un movimiento que dejaría la cantidad negativa no se aplica.
+	 * Los movimientos se aplican en el orden de la lista, así cada uno se valida contra la cantidad que dejó el anterior
+	 * @param deltas id del producto y cantidad a sumar, puede haber varios del mismo producto
+	 * @param modificationDate
+	 * @return int[] renglones actualizados por movimiento, 0 si no se aplicó
+	 */
+	public int[] addStock(List<long[]> deltas, Date modificationDate) {
+		Timestamp fecha = new Timestamp(modificationDate.getTime());
+		List<Object[]> batch = new ArrayList<>(deltas.size());
+		for(long[] delta : deltas) {
+			batch.add(new Object[] {delta[1], fecha, delta[0], delta[1]});
+		}
+		return this.jdbcTemplate.getJdbcTemplate().batchUpdate(ADD_STOCK_QUERY, batch);
+	}
+
+	/** Metódo para saber si existe un producto
+	 * @param idProduct
+	 * @return boolean
+	 */
+	public boolean exists(long idProduct) {
+		Integer count = this.jdbcTemplate.getJdbcTemplate().queryForObject(EXISTS_QUERY, Integer.class, idProduct);
+		return count != null && count > 0;
+	}
+
+	/** Metódo para obtener la llave del código; la collation de MySQL no distingue mayúsculas
+	 * @param code
+	 * @return String
+	 */
+	public static String codeKey(String code) {
+		return "c:" + code.trim().toLowerCase(Locale.ROOT);
+	}
+
+	/** Metódo para obtener la llave del nombre en su categoría
+	 * @param name
+	 * @param idCategoria
+	 * @return String
+	 */
+	public static String nameKey(String name, long idCategoria) {
+		return "n:" + idCategoria + ":" + name.trim().toLowerCase(Locale.ROOT);
+	}
+}
@@ -0,0 +1,149 @@
+package com.pineapplesupermarket.tiendaapi.repositories;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+/**
+ *Repositorio de los niveles de existencias para las alertas de reorden y los totales por categoría.
+ *Salvo scanAll, cada query es un rango sobre un indice y solo regresa los productos que se piden o los que están
+ *en o por debajo de su punto de reorden
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+@Repository
+public class ProductStockRepository {
+
+	private static final String COLUMNS = "SELECT id_product, code, name, id_product_category, quantity, "
+			+ "reorder_threshold, unit_price FROM ps_product ";
+
+	/** reorder_margin = quantity - reorder_threshold, columna generada con indice reorder_margin_INDEX */
+	private static final String BELOW_OWN_THRESHOLD_QUERY = COLUMNS + "WHERE reorder_margin <= 0";
+
+	/** Indice category_quantity_INDEX */
+	private static final String BELOW_CATEGORY_THRESHOLD_QUERY = COLUMNS
+			+ "WHERE id_product_category = :idCategory AND quantity <= :threshold AND reorder_threshold IS NULL";
+
+	private static final String BY_IDS_QUERY = COLUMNS + "WHERE id_product IN (:ids)";
+
+	private static final String ALL_QUERY = COLUMNS + "ORDER BY id_product";
+
+	private static final RowMapper<StockLevel> STOCK_LEVEL_MAPPER = (rs, rowNum) -> {
+		int threshold = rs.getInt(6);
+		Integer reorderThreshold = rs.wasNull() ? null : threshold;
+		return new StockLevel(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getLong(4), rs.getInt(5),
+				reorderThreshold, rs.getBigDecimal(7));
+	};
+
+	@Autowired
+	private NamedParameterJdbcTemplate jdbcTemplate;
+
+	/** Metódo para buscar los productos con punto de reorden propio que ya llegaron a él
+	 * @return List<StockLevel>
+	 */
+	public List<StockLevel> findBelowOwnThreshold() {
+		return this.jdbcTemplate.query(BELOW_OWN_THRESHOLD_QUERY, STOCK_LEVEL_MAPPER);
+	}
+
+	/** Metódo para buscar los productos de una categoría, sin punto de reorden propio, que llegaron al de la categoría
+	 * @param idCategory
+	 * @param threshold
+	 * @return List<StockLevel>
+	 */
+	public List<StockLevel> findBelowCategoryThreshold(long idCategory, int threshold) {
+		MapSqlParameterSource params = new MapSqlParameterSource()
+				.addValue("idCategory", idCategory)
+				.addValue("threshold", threshold);
+		return this.jdbcTemplate.query(BELOW_CATEGORY_THRESHOLD_QUERY, params, STOCK_LEVEL_MAPPER);
+	}
+
+	/** Metódo para buscar el nivel de existencias de algunos productos por llave primaria
+	 * @param ids no vacío
+	 * @return List<StockLevel> los productos que no existen no se regresan
+	 */
+	public List<StockLevel> findByIds(Collection<Long> ids) {
+		return this.jdbcTemplate.query(BY_IDS_QUERY, new MapSqlParameterSource("ids", ids), STOCK_LEVEL_MAPPER);
+	}
+
+	/** Metódo para recorrer todos los productos con un cursor de solo avance, la memoria no crece con la tabla
+	 * @param fetchSize renglones que se piden a la base en cada viaje (con useCursorFetch)
+	 * @param consumer recibe cada producto en orden de id_product
+	 */
+	public void scanAll(int fetchSize, Consumer<StockLevel> consumer) {
+		this.jdbcTemplate.getJdbcTemplate().query(connection -> {
+			PreparedStatement statement = connection.prepareStatement(ALL_QUERY, 
+					ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			statement.setFetchSize(fetchSize);
+			return statement;
+		}, rs -> {
+			consumer.accept(STOCK_LEVEL_MAPPER.mapRow(rs, 0));
+		});
+	}
+
+	/**
+	 *Nivel de existencias de un producto; reorderThreshold es el del producto, null si usa el de su categoría
+	 */
+	public static final class StockLevel {
+
+		private final long idProduct;
+
+		private final String code;
+
+		private final String name;
+
+		private final long idCategory;
+
+		private final int quantity;
+
+		private final Integer reorderThreshold;
+
+		private final BigDecimal unitPrice;
+
+		private StockLevel(long idProduct, String code, String name, long idCategory, int quantity,
+				Integer reorderThreshold, BigDecimal unitPrice) {
+			this.idProduct = idProduct;
+			this.code = code;
+			this.name = name;
+			this.idCategory = idCategory;
+			this.quantity = quantity;
+			this.reorderThreshold = reorderThreshold;
+			this.unitPrice = unitPrice;
+		}
+
+		public long getIdProduct() {
+			return idProduct;
+		}
+
+		public String getCode() {
+			return code;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getIdCategory() {
+			return idCategory;
+		}
+
+		public int getQuantity() {
+			return quantity;
+		}
+
+		public Integer getReorderThreshold() {
+			return reorderThreshold;
+		}
+
+		public BigDecimal getUnitPrice() {
+			return unitPrice;
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package com.pineapplesupermarket.tiendaapi.repositories;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+/**
+ *Repositorio del último segmento del journal de existencias que ya se aplicó en la base (ps_stock_journal).
+ *Se guarda en la misma transacción que el lote, así al recuperar el journal se omiten los segmentos ya aplicados
+ *aunque el proceso haya caído antes de borrarlos
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+@Repository
+public class StockJournalRepository {
+
+	private static final String LAST_SEGMENT_QUERY = "SELECT last_segment FROM ps_stock_journal WHERE journal_id = ?";
+
+	private static final String SAVE_LAST_SEGMENT_QUERY = "INSERT INTO ps_stock_journal "
+			+ "(journal_id, last_segment, modification_date) VALUES (?, ?, ?) "
+			+ "ON DUPLICATE KEY UPDATE last_segment = VALUES(last_segment), modification_date = VALUES(modification_date)";
+
+	@Autowired
+	private NamedParameterJdbcTemplate jdbcTemplate;
+
+	/** Metódo para obtener el último segmento aplicado de un journal
+	 * @param journalId
+	 * @return long 0 si todavía no se aplica ninguno
+	 */
+	public long findLastSegment(String journalId) {
+		List<Long> segments = this.jdbcTemplate.getJdbcTemplate()
+				.queryForList(LAST_SEGMENT_QUERY, Long.class, journalId);
+		return segments.isEmpty() ? 0 : segments.get(0);
+	}
+
+	/** Metódo para guardar el último segmento aplicado, debe llamarse en la transacción del lote
+	 * @param journalId
+	 * @param segment
+	 * @param modificationDate
+	 */
+	public void saveLastSegment(String journalId, long segment, Date modificationDate) {
+		this.jdbcTemplate.getJdbcTemplate().update(SAVE_LAST_SEGMENT_QUERY, journalId, segment,
+				new Timestamp(modificationDate.getTime()));
+	}
+}
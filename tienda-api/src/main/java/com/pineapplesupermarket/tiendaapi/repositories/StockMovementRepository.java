@@ -0,0 +1,247 @@
+package com.pineapplesupermarket.tiendaapi.repositories;
+
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.pineapplesupermarket.tiendaapi.dto.ProductSyncDTO;
+import com.pineapplesupermarket.tiendaapi.dto.StockMovementDTO;
+import com.pineapplesupermarket.tiendaapi.enums.StockMovementReasonEnum;
+/**
+ *Repositorio del historial de movimientos de existencias (ps_stock_movement) con JDBC.
+ *La tabla solo crece: los movimientos se insertan por lotes y se leen por cursor sobre id_stock_movement
+ *(más reciente primero), con la llave primaria o con product_movement_INDEX si se filtra por producto.
+ *Con rango de fechas MySQL solo lee las particiones (meses) que caen en el rango; findPage siempre recibe un inicio
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+@Repository
+public class StockMovementRepository {
+
+	private static final String COLUMNS = "(id_product, delta, reason, username, movement_date)";
+
+	private static final String INSERT_QUERY = "INSERT INTO ps_stock_movement " + COLUMNS + " VALUES (?, ?, ?, ?, ?)";
+
+	/** Se ejecuta antes del UPDATE por código; los productos sin cambio de cantidad no generan movimiento */
+	private static final String INSERT_FROM_SYNC_QUERY = "INSERT INTO ps_stock_movement " + COLUMNS
+			+ " SELECT id_product, ? - quantity, ?, ?, ? FROM ps_product WHERE code = ? AND quantity <> ?";
+
+	/** Se ejecuta después del INSERT de los productos, en la misma transacción */
+	private static final String INSERT_FROM_IMPORT_QUERY = "INSERT INTO ps_stock_movement " + COLUMNS
+			+ " SELECT id_product, quantity, :reason, :username, :movementDate FROM ps_product "
+			+ "WHERE code IN (:codes) AND quantity <> 0";
+
+	private static final String PARTITIONS_QUERY = "SELECT PARTITION_NAME FROM INFORMATION_SCHEMA.PARTITIONS "
+			+ "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'ps_stock_movement' AND PARTITION_NAME IS NOT NULL";
+
+	/** Candado con nombre de MySQL para que una sola instancia cambie las particiones */
+	private static final String PARTITION_LOCK = "ps_stock_movement_partitions";
+
+	private static final String LOCK_QUERY = "SELECT GET_LOCK(?, 0)";
+
+	private static final String RELEASE_LOCK_QUERY = "SELECT RELEASE_LOCK(?)";
+
+	/** Partición de los movimientos posteriores al último mes creado */
+	public static final String MAX_PARTITION = "pmax";
+
+	private static final DateTimeFormatter PARTITION_FORMAT = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+	private static final int PRODUCT = 1;
+	private static final int BEFORE = 2;
+	private static final int FROM = 4;
+	private static final int TO = 8;
+
+	/** Un query de texto fijo por combinación de filtros */
+	private static final String[] PAGE_QUERIES = new String[16];
+
+	static {
+		for(int shape = 0; shape < PAGE_QUERIES.length; shape++) {
+			List<String> conditions = new ArrayList<>();
+			if((shape & PRODUCT) != 0) {
+				conditions.add("id_product = :idProduct");
+			}
+			if((shape & BEFORE) != 0) {
+				conditions.add("id_stock_movement < :beforeId");
+			}
+			if((shape & FROM) != 0) {
+				conditions.add("movement_date >= :from");
+			}
+			if((shape & TO) != 0) {
+				conditions.add("movement_date < :to");
+			}
+			PAGE_QUERIES[shape] = "SELECT id_stock_movement, id_product, delta, reason, username, movement_date "
+					+ "FROM ps_stock_movement"
+					+ (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+					+ " ORDER BY id_stock_movement DESC LIMIT :limit";
+		}
+	}
+
+	private static final RowMapper<StockMovementDTO> MOVEMENT_MAPPER = (rs, rowNum) -> new StockMovementDTO(
+			rs.getLong(1), rs.getLong(2), rs.getInt(3), StockMovementReasonEnum.valueOf(rs.getString(4)),
+			rs.getString(5), rs.getTimestamp(6));
+
+	@Autowired
+	private NamedParameterJdbcTemplate jdbcTemplate;
+
+	/** Metódo para insertar movimientos en lotes
+	 * @param movimientos
+	 * @param batchSize
+	 */
+	public void insert(List<StockMovementDTO> movimientos, int batchSize) {
+		this.jdbcTemplate.getJdbcTemplate().batchUpdate(INSERT_QUERY, movimientos, batchSize, (ps, movimiento) -> {
+			ps.setLong(1, movimiento.getIdProduct());
+			ps.setInt(2, movimiento.getDelta());
+			ps.setString(3, movimiento.getReason().name());
+			ps.setString(4, movimiento.getUsername());
+			ps.setTimestamp(5, new Timestamp(movimiento.getMovementDate().getTime()));
+		});
+	}
+
+	/** Metódo para registrar en lotes la diferencia entre la cantidad nueva y la actual de cada producto;
+	 * debe llamarse antes de updateByCode y en la misma transacción
+	 * @param cambios los que no traen cantidad se omiten
+	 * @param username
+	 * @param movementDate
+	 * @param batchSize
+	 */
+	public void insertFromSync(List<ProductSyncDTO> cambios, String username, Date movementDate, int batchSize) {
+		List<ProductSyncDTO> conCantidad = cambios.stream()
+				.filter(cambio -> cambio.getQuantity() != null)
+				.collect(Collectors.toList());
+		if(conCantidad.isEmpty()) {
+			return;
+		}
+		Timestamp fecha = new Timestamp(movementDate.getTime());
+		this.jdbcTemplate.getJdbcTemplate().batchUpdate(INSERT_FROM_SYNC_QUERY, conCantidad, batchSize, (ps, cambio) -> {
+			ps.setInt(1, cambio.getQuantity());
+			ps.setString(2, StockMovementReasonEnum.SYNC.name());
+			ps.setString(3, username);
+			ps.setTimestamp(4, fecha);
+			ps.setString(5, cambio.getCode());
+			ps.setInt(6, cambio.getQuantity());
+		});
+	}
+
+	/** Metódo para registrar la cantidad inicial de los productos importados con un solo query
+	 * @param codes no vacío
+	 * @param username
+	 * @param movementDate
+	 */
+	public void insertFromImport(Collection<String> codes, String username, Date movementDate) {
+		MapSqlParameterSource params = new MapSqlParameterSource()
+				.addValue("reason", StockMovementReasonEnum.IMPORT.name())
+				.addValue("username", username)
+				.addValue("movementDate", new Timestamp(movementDate.getTime()))
+				.addValue("codes", codes);
+		this.jdbcTemplate.update(INSERT_FROM_IMPORT_QUERY, params);
+	}
+
+	/** Metódo para buscar una página de movimientos, del más reciente al más antiguo
+	 * @param idProduct null para todos los productos
+	 * @param beforeId id del último movimiento de la página anterior, null para la primera
+	 * @param from inicio del rango (inclusivo), null sin límite
+	 * @param to fin del rango (exclusivo), null sin límite
+	 * @param limit
+	 * @return List<StockMovementDTO>
+	 */
+	public List<StockMovementDTO> findPage(Long idProduct, Long beforeId, Date from, Date to, int limit) {
+		MapSqlParameterSource params = new MapSqlParameterSource("limit", limit);
+		int shape = 0;
+		if(idProduct != null) {
+			shape |= PRODUCT;
+			params.addValue("idProduct", idProduct);
+		}
+		if(beforeId != null) {
+			shape |= BEFORE;
+			params.addValue("beforeId", beforeId);
+		}
+		if(from != null) {
+			shape |= FROM;
+			params.addValue("from", new Timestamp(from.getTime()));
+		}
+		if(to != null) {
+			shape |= TO;
+			params.addValue("to", new Timestamp(to.getTime()));
+		}
+		return this.jdbcTemplate.query(PAGE_QUERIES[shape], params, MOVEMENT_MAPPER);
+	}
+
+	/** Metódo para tomar el candado de las particiones sin esperar; el candado es de la conexión,
+	 * debe llamarse dentro de la misma transacción que los cambios y releasePartitionLock
+	 * @return boolean false si otra instancia lo tiene
+	 */
+	public boolean tryPartitionLock() {
+		Integer locked = this.jdbcTemplate.getJdbcTemplate()
+				.queryForObject(LOCK_QUERY, Integer.class, PARTITION_LOCK);
+		return locked != null && locked == 1;
+	}
+
+	/** Metódo para soltar el candado de las particiones
+	 */
+	public void releasePartitionLock() {
+		this.jdbcTemplate.getJdbcTemplate().queryForObject(RELEASE_LOCK_QUERY, Integer.class, PARTITION_LOCK);
+	}
+
+	/** Metódo para obtener los meses que ya tienen partición
+	 * @return List<YearMonth> sin incluir pmax ni particiones con otro nombre
+	 */
+	public List<YearMonth> findPartitions() {
+		List<YearMonth> meses = new ArrayList<>();
+		for(String name : this.jdbcTemplate.getJdbcTemplate().queryForList(PARTITIONS_QUERY, String.class)) {
+			YearMonth mes = fromPartitionName(name);
+			if(mes != null) {
+				meses.add(mes);
+			}
+		}
+		return meses;
+	}
+
+	/** Metódo para crear las particiones de algunos meses separándolas de pmax; pmax debe estar vacía
+	 * en esos meses para que la reorganización no copie renglones
+	 * @param meses posteriores al último mes con partición, en orden
+	 */
+	public void addPartitions(List<YearMonth> meses) {
+		StringBuilder sql = new StringBuilder("ALTER TABLE ps_stock_movement REORGANIZE PARTITION ")
+				.append(MAX_PARTITION).append(" INTO (");
+		for(YearMonth mes : meses) {
+			sql.append("PARTITION ").append(partitionName(mes))
+				.append(" VALUES LESS THAN ('").append(mes.plusMonths(1).atDay(1)).append("'), ");
+		}
+		sql.append("PARTITION ").append(MAX_PARTITION).append(" VALUES LESS THAN (MAXVALUE))");
+		this.jdbcTemplate.getJdbcTemplate().execute(sql.toString());
+	}
+
+	/** Metódo para eliminar las particiones de algunos meses con todos sus movimientos
+	 * @param meses no vacío
+	 */
+	public void dropPartitions(List<YearMonth> meses) {
+		String names = meses.stream().map(StockMovementRepository::partitionName).collect(Collectors.joining(", "));
+		this.jdbcTemplate.getJdbcTemplate().execute("ALTER TABLE ps_stock_movement DROP PARTITION " + names);
+	}
+
+	private static String partitionName(YearMonth mes) {
+		return PARTITION_FORMAT.format(mes);
+	}
+
+	private static YearMonth fromPartitionName(String name) {
+		if(name.length() != 7 || name.charAt(0) != 'p') {
+			return null;
+		}
+		try {
+			return YearMonth.of(Integer.parseInt(name.substring(1, 5)), Integer.parseInt(name.substring(5)));
+		} catch(RuntimeException e) {
+			return null;
+		}
+	}
+}
@@ -1,13 +1,31 @@
 package com.pineapplesupermarket.tiendaapi.security;
 
 import io.jsonwebtoken.*;
+import io.jsonwebtoken.impl.TextCodec;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.pineapplesupermarket.tiendaapi.util.PemUtils;
 /**
  *Componente del JWT
  *@author Raquel de la Rosa 
@@ -23,6 +41,72 @@ public class JwtProvider {
     @Value("${pineapple.app.jwtExpirationMs}")
     private int jwtExpirationMs;
 
+    @Value("${pineapple.app.jwtCacheSize:10000}")
+    private long jwtCacheSize;
+
+    /** HS512 (secreto compartido), RS256 o ES256 (par de llaves) */
+    @Value("${pineapple.app.jwtAlgorithm:HS512}")
+    private SignatureAlgorithm jwtAlgorithm;
+
+    /** Llave privada PKCS#8 en PEM, solo para RS256/ES256 */
+    @Value("${pineapple.app.jwtPrivateKey:}")
+    private String jwtPrivateKey;
+
+    /** Llave pública X.509 en PEM, solo para RS256/ES256; es la que necesitan los otros servicios para verificar */
+    @Value("${pineapple.app.jwtPublicKey:}")
+    private String jwtPublicKey;
+
+    private Key signingKey;
+
+    private JwtParser jwtParser;
+
+    private Cache<String, VerifiedToken> verifiedTokens;
+
+    /** Método para construir una sola vez las llaves, el parser y el cache de tokens verificados.
+     * Cada token vence en cache cuando vence el token
+     * @exception IOException, GeneralSecurityException
+     */
+    @PostConstruct
+    public void init() throws IOException, GeneralSecurityException {
+        Key verifyKey;
+        if (jwtAlgorithm.isHmac()) {
+            //misma decodificación que setSigningKey(String), los tokens ya emitidos siguen siendo válidos
+            signingKey = new SecretKeySpec(TextCodec.BASE64.decode(jwtSecret), jwtAlgorithm.getJcaName());
+            verifyKey = signingKey;
+        } else if (jwtAlgorithm == SignatureAlgorithm.RS256 || jwtAlgorithm == SignatureAlgorithm.ES256) {
+            String keyAlgorithm = jwtAlgorithm.isRsa() ? "RSA" : "EC";
+            signingKey = PemUtils.readPrivateKey(jwtPrivateKey, keyAlgorithm);
+            verifyKey = PemUtils.readPublicKey(jwtPublicKey, keyAlgorithm);
+        } else {
+            throw new IllegalStateException("Unsupported JWT algorithm: " + jwtAlgorithm);
+        }
+        //el parser no cambia después de configurarse, se comparte entre hilos
+        this.jwtParser = Jwts.parser().setSigningKey(verifyKey);
+
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(jwtCacheSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                        long ttl = value.expiration - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(ttl, 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime,
+                            long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken value, long currentTime,
+                            long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
     /** Método para generar el JWT Token
      * @param authentication
      * @return String
@@ -35,27 +119,39 @@ public class JwtProvider {
                 .setSubject((userPrincipal.getUsername()))
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(SignatureAlgorithm.HS512, jwtSecret)
+                .signWith(jwtAlgorithm, signingKey)
                 .compact();
     }
 
-    /** Método para obtener el nombre del usuario del JWT Token
+    /** Método para obtener el nombre del usuario de un JWT Token válido.
+     * Los tokens ya verificados se guardan en cache (por su digest SHA-256) hasta que expiran,
+     * así las peticiones siguientes de la misma sesión no repiten la verificación de la firma.
      * @param token
-     * @return String
+     * @return String, null si el token no es válido
      */
     public String getUserNameFromJwtToken(String token) {
-        return Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token).getBody().getSubject();
+        String digest = digest(token);
+        VerifiedToken verified = verifiedTokens.getIfPresent(digest);
+        if (verified != null && verified.expiration > System.currentTimeMillis()) {
+            return verified.subject;
+        }
+
+        Claims claims = parseJwtToken(token);
+        if (claims == null || claims.getExpiration() == null) {
+            return null;
+        }
+        verifiedTokens.put(digest, new VerifiedToken(claims.getSubject(), claims.getExpiration().getTime()));
+        return claims.getSubject();
     }
 
-    /** Método para validar el JWT Token
+    /** Método para validar el JWT Token y obtener sus claims en una sola lectura
      * @param authToken
-     * @return boolean
+     * @return Claims, null si el token no es válido
      * @exception SignatureException, MalformedJwtException, ExpiredJwtException, UnsupportedJwtException, IllegalArgumentException
      */
-    public boolean validateJwtToken(String authToken) {
+    public Claims parseJwtToken(String authToken) {
         try {
-            Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
-            return true;
+            return jwtParser.parseClaimsJws(authToken).getBody();
         } catch (SignatureException e) {
             logger.error("Invalid JWT signature: {}", e.getMessage());
         } catch (MalformedJwtException e) {
@@ -68,6 +164,32 @@ public class JwtProvider {
             logger.error("JWT claims string is empty: {}", e.getMessage());
         }
 
-        return false;
+        return null;
+    }
+
+    /** Método para obtener el digest del token, en cache no se guarda el token
+     * @param token
+     * @return String
+     */
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     *Token verificado: usuario y fecha de expiración en milisegundos
+     */
+    private static final class VerifiedToken {
+        private final String subject;
+        private final long expiration;
+
+        private VerifiedToken(String subject, long expiration) {
+            this.subject = subject;
+            this.expiration = expiration;
+        }
     }
-}
\ No newline at end of file
+}
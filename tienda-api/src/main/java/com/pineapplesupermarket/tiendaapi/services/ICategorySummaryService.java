@@ -0,0 +1,20 @@
+package com.pineapplesupermarket.tiendaapi.services;
+
+import java.util.List;
+
+import com.pineapplesupermarket.tiendaapi.dto.CategorySummaryDTO;
+import com.pineapplesupermarket.tiendaapi.exception.EntityNotFoundException;
+/**
+ *Servicio de los totales del inventario por categoría
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+public interface ICategorySummaryService {
+
+	public CategorySummaryDTO getSummary(long idCategory) throws EntityNotFoundException;
+
+	public List<CategorySummaryDTO> getSummaries();
+
+	public void requestResync();
+
+}
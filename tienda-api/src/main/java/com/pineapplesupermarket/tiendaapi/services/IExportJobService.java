@@ -0,0 +1,17 @@
+package com.pineapplesupermarket.tiendaapi.services;
+
+import com.pineapplesupermarket.tiendaapi.dto.ExportJobDTO;
+import com.pineapplesupermarket.tiendaapi.exception.EntityNotFoundException;
+import com.pineapplesupermarket.tiendaapi.util.ExportadorInventario;
+/**
+ *Servicio de los trabajos de exportación del inventario
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+public interface IExportJobService {
+
+	public ExportJobDTO create(ExportadorInventario exportador, boolean gzip, String username);
+	
+	public ExportJobDTO findOne(String id, String username) throws EntityNotFoundException;
+	
+}
@@ -0,0 +1,18 @@
+package com.pineapplesupermarket.tiendaapi.services;
+
+import java.util.List;
+
+import com.pineapplesupermarket.tiendaapi.dto.LowStockDTO;
+import com.pineapplesupermarket.tiendaapi.exception.EntityNotFoundException;
+/**
+ *Servicio de las alertas de existencias bajas (punto de reorden)
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+public interface ILowStockService {
+
+	public List<LowStockDTO> getLowStock(String categoria, int limit) throws EntityNotFoundException;
+
+	public void requestReload();
+
+}
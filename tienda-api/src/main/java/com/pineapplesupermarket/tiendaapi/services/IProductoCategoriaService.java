@@ -2,6 +2,7 @@ package com.pineapplesupermarket.tiendaapi.services;
 
 import java.util.List;
 
+import com.pineapplesupermarket.tiendaapi.dto.ResourceVersionDTO;
 import com.pineapplesupermarket.tiendaapi.exception.DuplicateEntryException;
 import com.pineapplesupermarket.tiendaapi.exception.EntityNotFoundException;
 import com.pineapplesupermarket.tiendaapi.models.ProductCategory;
@@ -14,6 +15,8 @@ public interface IProductoCategoriaService {
 
 	public List<ProductCategory> listAll();
 	
+	public ResourceVersionDTO getVersion();
+	
 	public ProductCategory findOne(long id) throws EntityNotFoundException;
 	
 	public ProductCategory create(ProductCategory productoCategoria) throws DuplicateEntryException;
@@ -0,0 +1,16 @@
+package com.pineapplesupermarket.tiendaapi.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.pineapplesupermarket.tiendaapi.dto.ImportResultDTO;
+/**
+ *Servicio de la importación masiva de productos
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+public interface IProductoImportService {
+
+	public ImportResultDTO importProductos(InputStream input, boolean csv) throws IOException;
+	
+}
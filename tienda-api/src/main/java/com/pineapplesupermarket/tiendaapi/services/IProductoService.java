@@ -1,12 +1,21 @@
 package com.pineapplesupermarket.tiendaapi.services;
 
-import org.springframework.data.domain.Page;
+import java.util.List;
+
+import org.springframework.data.domain.Slice;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.pineapplesupermarket.tiendaapi.dto.CursorPageDTO;
 import com.pineapplesupermarket.tiendaapi.dto.FilterProductoDTO;
+import com.pineapplesupermarket.tiendaapi.dto.ImportResultDTO;
+import com.pineapplesupermarket.tiendaapi.dto.ProductSummaryDTO;
+import com.pineapplesupermarket.tiendaapi.dto.ProductSyncDTO;
+import com.pineapplesupermarket.tiendaapi.dto.ResourceVersionDTO;
+import com.pineapplesupermarket.tiendaapi.dto.StockDTO;
 import com.pineapplesupermarket.tiendaapi.exception.DuplicateEntryException;
 import com.pineapplesupermarket.tiendaapi.exception.EntityNotFoundException;
 import com.pineapplesupermarket.tiendaapi.exception.FailUploadedException;
+import com.pineapplesupermarket.tiendaapi.exception.InsufficientStockException;
 import com.pineapplesupermarket.tiendaapi.models.Product;
 /**
  *Servicio del producto
@@ -17,14 +26,28 @@ public interface IProductoService {
 
 	public Product create(Product producto, MultipartFile picture) throws DuplicateEntryException, EntityNotFoundException, FailUploadedException;
 	
-	public Page<Product> getProductos(FilterProductoDTO filters);
+	public Slice<Product> getProductos(FilterProductoDTO filters);
+	
+	public CursorPageDTO<Product> getProductosKeyset(FilterProductoDTO filters);
+	
+	public Slice<ProductSummaryDTO> getProductosSummary(FilterProductoDTO filters);
+	
+	public CursorPageDTO<ProductSummaryDTO> getProductosSummaryKeyset(FilterProductoDTO filters);
 	
 	public Product update(long id, Product productoUpdate) throws DuplicateEntryException, EntityNotFoundException;
 
 	public Product findOne(long id) throws EntityNotFoundException;
+	
+	public ResourceVersionDTO getVersion(Product producto);
 		
 	public void delete(long id) throws EntityNotFoundException;
 	
 	public void upload(long id, MultipartFile picture) throws FailUploadedException, EntityNotFoundException;
 	
+	public ImportResultDTO sync(List<ProductSyncDTO> cambios);
+	
+	public StockDTO adjustStock(long id, int delta) throws EntityNotFoundException, InsufficientStockException;
+	
+	public void appendStockMovement(long id, int delta);
+	
 }
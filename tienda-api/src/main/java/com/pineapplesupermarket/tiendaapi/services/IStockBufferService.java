@@ -0,0 +1,15 @@
+package com.pineapplesupermarket.tiendaapi.services;
+/**
+ *Servicio del buffer de movimientos de existencias (write-behind)
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+public interface IStockBufferService {
+
+	public void append(long idProduct, int delta);
+	
+	public long getPendingDelta(long idProduct);
+	
+	public void flush();
+	
+}
@@ -0,0 +1,32 @@
+package com.pineapplesupermarket.tiendaapi.services;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import com.pineapplesupermarket.tiendaapi.dto.CursorPageDTO;
+import com.pineapplesupermarket.tiendaapi.dto.ProductSyncDTO;
+import com.pineapplesupermarket.tiendaapi.dto.StockMovementDTO;
+import com.pineapplesupermarket.tiendaapi.enums.StockMovementReasonEnum;
+/**
+ *Servicio del historial de movimientos de existencias
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+public interface IStockLedgerService {
+
+	public void record(long idProduct, int delta, StockMovementReasonEnum reason);
+
+	public void recordAll(List<StockMovementDTO> movimientos);
+
+	public void recordSync(List<ProductSyncDTO> cambios, Date movementDate);
+
+	public void recordImport(Collection<String> codes, String username, Date movementDate);
+
+	public String getCurrentUsername();
+
+	public CursorPageDTO<StockMovementDTO> getMovements(Long idProduct, String cursor, int size, Date from, Date to);
+
+	public void maintainPartitions();
+
+}
@@ -0,0 +1,305 @@
+package com.pineapplesupermarket.tiendaapi.servicesImpl;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pineapplesupermarket.tiendaapi.cache.ReferenceDataCache;
+import com.pineapplesupermarket.tiendaapi.dto.CategorySummaryDTO;
+import com.pineapplesupermarket.tiendaapi.events.ProductoChangedEvent;
+import com.pineapplesupermarket.tiendaapi.exception.EntityNotFoundException;
+import com.pineapplesupermarket.tiendaapi.models.ProductCategory;
+import com.pineapplesupermarket.tiendaapi.repositories.ProductStockRepository;
+import com.pineapplesupermarket.tiendaapi.repositories.ProductStockRepository.StockLevel;
+import com.pineapplesupermarket.tiendaapi.services.ICategorySummaryService;
+/**
+ *Implementación de los totales del inventario por categoría (número de productos, existencias y valor).
+ *Los totales están en memoria y se consultan en tiempo constante. Se guarda la aportación de cada producto
+ *(categoría, cantidad y precio) para que cada ProductoChangedEvent solo reste la aportación anterior
+ *y sume la nueva de los productos que cambiaron, leídos por llave primaria.
+ *La carga completa recorre la tabla una vez, al iniciar y cada categorySummaryResyncMs por si se cambia
+ *directamente la base. Los eventos sin ids solo los publican las categorías (descripción, punto de reorden),
+ *que no cambian los totales; importación y sincronización publican los ids de sus productos.
+ *El valor se suma en centavos (unit_price es DECIMAL(4,2)) para no acumular errores de redondeo.
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+@Service
+public class CategorySummaryServiceImpl implements ICategorySummaryService {
+
+	private static final Logger logger = LoggerFactory.getLogger(CategorySummaryServiceImpl.class);
+
+	/** Ids por query IN, los lotes del buffer de existencias pueden traer muchos productos */
+	private static final int CHUNK_SIZE = 500;
+
+	@Autowired
+	private ProductStockRepository productStockRepository;
+
+	@Autowired
+	private ReferenceDataCache referenceDataCache;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Value("${pineapple.app.categorySummaryFetchSize:1000}")
+	private int fetchSize;
+
+	private TransactionTemplate transactionTemplate;
+
+	private ExecutorService evaluationExecutor;
+
+	/** Se reemplaza completo al recargar; después de iniciar solo el hilo de evaluación lo modifica */
+	private volatile Estado estado = new Estado();
+
+	/** Productos que cambiaron y faltan por sumar */
+	private final Set<Long> pendientes = ConcurrentHashMap.newKeySet();
+
+	private final AtomicBoolean resyncRequested = new AtomicBoolean();
+
+	private final AtomicBoolean evaluationScheduled = new AtomicBoolean();
+
+	/** Método para cargar los totales al iniciar y arrancar el hilo de evaluación
+	 */
+	@PostConstruct
+	public void init() {
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		//los eventos se reciben después del commit, la lectura necesita su propia transacción
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.transactionTemplate.setReadOnly(true);
+		this.evaluationExecutor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "category-summary");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.resync();
+	}
+
+	/** Método para obtener los totales de una categoría
+	 *@param idCategory
+	 *@return CategorySummaryDTO
+	 *@exception EntityNotFoundException si la categoría no existe
+	 */
+	@Override
+	public CategorySummaryDTO getSummary(long idCategory) throws EntityNotFoundException {
+		ProductCategory categoria = this.referenceDataCache.findCategoriaById(idCategory)
+				.orElseThrow(() -> new EntityNotFoundException("Product Category", "id", String.valueOf(idCategory)));
+		return toSummary(categoria, this.estado.totales.get(idCategory));
+	}
+
+	/** Método para obtener los totales de todas las categorías
+	 *@return List<CategorySummaryDTO>
+	 */
+	@Override
+	public List<CategorySummaryDTO> getSummaries() {
+		Map<Long, Totales> totales = this.estado.totales;
+		List<ProductCategory> categorias = this.referenceDataCache.getCategorias();
+		List<CategorySummaryDTO> summaries = new ArrayList<>(categorias.size());
+		for(ProductCategory categoria : categorias) {
+			summaries.add(toSummary(categoria, totales.get(categoria.getIdProductCategory())));
+		}
+		return summaries;
+	}
+
+	/** Método para pedir que se recalculen todos los totales en el hilo de evaluación
+	 */
+	@Override
+	@Scheduled(initialDelayString = "${pineapple.app.categorySummaryResyncMs:3600000}",
+			fixedDelayString = "${pineapple.app.categorySummaryResyncMs:3600000}")
+	public void requestResync() {
+		this.resyncRequested.set(true);
+		this.scheduleEvaluation();
+	}
+
+	/** Método que recibe los productos que cambiaron después del commit
+	 *@param event
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onProductoChanged(ProductoChangedEvent event) {
+		//un cambio de categoría no mueve productos ni existencias; el recálculo completo queda para el periódico
+		if(event.isAll()) {
+			return;
+		}
+		this.pendientes.addAll(event.getIdsProduct());
+		this.scheduleEvaluation();
+	}
+
+	private void scheduleEvaluation() {
+		if(this.evaluationScheduled.compareAndSet(false, true)) {
+			this.evaluationExecutor.execute(this::evaluate);
+		}
+	}
+
+	/** Método del hilo de evaluación: recalcula todo si se pidió y suma los cambios de los productos pendientes.
+	 *Los errores se registran; los productos se quedan pendientes para el siguiente evento o recálculo
+	 */
+	private void evaluate() {
+		this.evaluationScheduled.set(false);
+		List<Long> ids = new ArrayList<>();
+		boolean recalcular = this.resyncRequested.getAndSet(false);
+		try {
+			if(recalcular) {
+				//el recorrido lee el estado actual, incluye lo que estaba pendiente
+				this.pendientes.clear();
+				this.resync();
+				recalcular = false;
+			}
+			Iterator<Long> iterator = this.pendientes.iterator();
+			while(iterator.hasNext()) {
+				ids.add(iterator.next());
+				iterator.remove();
+			}
+			for(int i = 0; i < ids.size(); i += CHUNK_SIZE) {
+				List<Long> chunk = ids.subList(i, Math.min(ids.size(), i + CHUNK_SIZE));
+				this.refresh(chunk);
+			}
+		} catch(RuntimeException e) {
+			if(recalcular) {
+				this.resyncRequested.set(true);
+			}
+			this.pendientes.addAll(ids);
+			logger.error("Cannot update category summaries: {}", e.getMessage());
+		}
+	}
+
+	/** Método para recalcular todos los totales con un recorrido de la tabla
+	 */
+	private void resync() {
+		Estado nuevo = new Estado();
+		this.transactionTemplate.executeWithoutResult(status -> this.productStockRepository.scanAll(fetchSize,
+				nivel -> nuevo.apply(nivel.getIdProduct(), toAportacion(nivel))));
+		this.estado = nuevo;
+		logger.debug("Loaded inventory summary of {} products", nuevo.aportaciones.size());
+	}
+
+	/** Método para volver a sumar algunos productos
+	 *@param ids
+	 */
+	private void refresh(List<Long> ids) {
+		Map<Long, StockLevel> niveles = new HashMap<>();
+		this.transactionTemplate.executeWithoutResult(status -> this.productStockRepository.findByIds(ids)
+				.forEach(nivel -> niveles.put(nivel.getIdProduct(), nivel)));
+		Estado actual = this.estado;
+		for(Long id : ids) {
+			//un producto que ya no existe solo resta su aportación
+			StockLevel nivel = niveles.get(id);
+			actual.apply(id, nivel == null ? null : toAportacion(nivel));
+		}
+	}
+
+	/** Método para detener el hilo de evaluación
+	 */
+	@PreDestroy
+	public void shutdown() {
+		this.evaluationExecutor.shutdownNow();
+	}
+
+	private static Aportacion toAportacion(StockLevel nivel) {
+		long centavos = nivel.getUnitPrice().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+		return new Aportacion(nivel.getIdCategory(), nivel.getQuantity(), centavos);
+	}
+
+	private static CategorySummaryDTO toSummary(ProductCategory categoria, Totales totales) {
+		Totales valores = totales == null ? Totales.CERO : totales;
+		return new CategorySummaryDTO(categoria.getIdProductCategory(), categoria.getCode(),
+				categoria.getDescription(), valores.productos, valores.cantidad, BigDecimal.valueOf(valores.centavos, 2));
+	}
+
+	/**
+	 *Aportación de un producto a los totales de su categoría
+	 */
+	private static final class Aportacion {
+
+		private final long idCategory;
+
+		private final long cantidad;
+
+		private final long centavosUnitario;
+
+		private Aportacion(long idCategory, long cantidad, long centavosUnitario) {
+			this.idCategory = idCategory;
+			this.cantidad = cantidad;
+			this.centavosUnitario = centavosUnitario;
+		}
+	}
+
+	/**
+	 *Totales de una categoría; no se modifican, cada cambio publica unos nuevos
+	 */
+	private static final class Totales {
+
+		private static final Totales CERO = new Totales(0, 0, 0);
+
+		private final long productos;
+
+		private final long cantidad;
+
+		private final long centavos;
+
+		private Totales(long productos, long cantidad, long centavos) {
+			this.productos = productos;
+			this.cantidad = cantidad;
+			this.centavos = centavos;
+		}
+
+		private Totales plus(Aportacion aportacion, int signo) {
+			return new Totales(this.productos + signo, this.cantidad + signo * aportacion.cantidad,
+					this.centavos + signo * aportacion.cantidad * aportacion.centavosUnitario);
+		}
+	}
+
+	/**
+	 *Aportación de cada producto y totales por categoría
+	 */
+	private static final class Estado {
+
+		private final Map<Long, Aportacion> aportaciones = new HashMap<>();
+
+		private final Map<Long, Totales> totales = new ConcurrentHashMap<>();
+
+		/** Método para cambiar la aportación de un producto, solo desde el hilo de evaluación
+		 *@param idProduct
+		 *@param aportacion null si el producto ya no existe
+		 */
+		private void apply(long idProduct, Aportacion aportacion) {
+			Aportacion anterior = aportacion == null ? this.aportaciones.remove(idProduct)
+					: this.aportaciones.put(idProduct, aportacion);
+			//en la misma categoría se cambian los totales de una vez, así nunca se leen a medias
+			if(anterior != null && aportacion != null && anterior.idCategory == aportacion.idCategory) {
+				this.totales.merge(aportacion.idCategory, Totales.CERO.plus(aportacion, 1),
+						(actual, suma) -> actual.plus(anterior, -1).plus(aportacion, 1));
+				return;
+			}
+			if(anterior != null) {
+				this.totales.merge(anterior.idCategory, Totales.CERO.plus(anterior, -1),
+						(actual, resta) -> actual.plus(anterior, -1));
+			}
+			if(aportacion != null) {
+				this.totales.merge(aportacion.idCategory, Totales.CERO.plus(aportacion, 1),
+						(actual, suma) -> actual.plus(aportacion, 1));
+			}
+		}
+	}
+}
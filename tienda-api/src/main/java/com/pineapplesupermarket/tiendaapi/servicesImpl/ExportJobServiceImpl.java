@@ -0,0 +1,205 @@
+package com.pineapplesupermarket.tiendaapi.servicesImpl;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.pineapplesupermarket.tiendaapi.dto.ExportJobDTO;
+import com.pineapplesupermarket.tiendaapi.enums.ExportJobStatusEnum;
+import com.pineapplesupermarket.tiendaapi.exception.EntityNotFoundException;
+import com.pineapplesupermarket.tiendaapi.repositories.CustomProductosRepository;
+import com.pineapplesupermarket.tiendaapi.services.IExportJobService;
+import com.pineapplesupermarket.tiendaapi.util.AbstractExportarInventarioView;
+import com.pineapplesupermarket.tiendaapi.util.ExportadorInventario;
+import com.pineapplesupermarket.tiendaapi.util.LoggerUtils;
+/**
+ *Implementación del servicio de los trabajos de exportación.
+ *Los trabajos corren en un pool acotado y escriben el archivo en un directorio local,
+ *así los hilos de las peticiones nunca esperan a que se genere el inventario.
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+@Service
+public class ExportJobServiceImpl implements IExportJobService {
+
+	private static final Logger logger = LoggerFactory.getLogger(ExportJobServiceImpl.class);
+
+	private static final String ENTITY_NAME = "Export job";
+
+	@Autowired
+	private CustomProductosRepository customProductosRepository;
+
+	@Value("${pineapple.app.exportSpoolDir:${java.io.tmpdir}/tienda-api-exportar}")
+	private String spoolDir;
+
+	@Value("${pineapple.app.exportJobThreads:2}")
+	private int threads;
+
+	@Value("${pineapple.app.exportJobQueue:10}")
+	private int queueCapacity;
+
+	@Value("${pineapple.app.exportJobRetentionMs:3600000}")
+	private long retentionMs;
+
+	private final Map<String, ExportJobDTO> jobs = new ConcurrentHashMap<>();
+
+	private ThreadPoolExecutor executor;
+
+	private Path spool;
+
+	/** Método para crear el directorio y el pool de los trabajos
+	 *@exception IOException
+	 */
+	@PostConstruct
+	public void init() throws IOException {
+		this.spool = Files.createDirectories(Paths.get(spoolDir));
+		AtomicInteger threadNumber = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+					Thread thread = new Thread(runnable, "export-job-" + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+
+	/** Método para crear un trabajo de exportación
+	 *@param exportador
+	 *@param gzip
+	 *@param username
+	 *@return ExportJobDTO
+	 *@exception RejectedExecutionException si el pool y su cola están llenos
+	 */
+	@Override
+	public ExportJobDTO create(ExportadorInventario exportador, boolean gzip, String username) {
+		//el xlsx ya es un zip, solo se comprimen los formatos de texto
+		boolean comprimir = gzip && exportador instanceof AbstractExportarInventarioView;
+		String id = UUID.randomUUID().toString();
+		StringBuilder filename = new StringBuilder();
+		filename.append("productos_inventario_");
+		filename.append(System.currentTimeMillis());
+		filename.append(".").append(exportador.getExtension());
+		if(comprimir) {
+			filename.append(".gz");
+		}
+		String contentType = comprimir ? "application/gzip" : exportador.getContentType();
+
+		ExportJobDTO job = new ExportJobDTO(id, username, exportador.getExtension(),
+				filename.toString(), contentType, spool.resolve(id + "_" + filename));
+
+		this.jobs.put(id, job);
+		try {
+			this.executor.execute(() -> run(job, exportador, comprimir));
+		} catch(RuntimeException e) {
+			this.jobs.remove(id);
+			throw e;
+		}
+		return job;
+	}
+
+	/** Método para consultar un trabajo, solo lo puede ver quien lo creó
+	 *@param id
+	 *@param username
+	 *@return ExportJobDTO
+	 *@exception EntityNotFoundException
+	 */
+	@Override
+	public ExportJobDTO findOne(String id, String username) throws EntityNotFoundException {
+		ExportJobDTO job = this.jobs.get(id);
+		if(job == null || !job.getUsername().equals(username)) {
+			throw new EntityNotFoundException(ENTITY_NAME, "id", id);
+		}
+		return job;
+	}
+
+	/** Método que genera el archivo del trabajo
+	 *@param job
+	 *@param exportador
+	 *@param gzip
+	 */
+	private void run(ExportJobDTO job, ExportadorInventario exportador, boolean gzip) {
+		job.setStatus(ExportJobStatusEnum.EN_PROCESO);
+
+		Path partial = job.getFile().resolveSibling(job.getFile().getFileName() + ".part");
+		try {
+			//dentro del try: si el conteo falla el trabajo termina como FALLIDO y la limpieza lo puede borrar
+			job.setTotalRows(this.customProductosRepository.count(null, null, null));
+			try(OutputStream out = openOutput(partial, gzip)) {
+				long rows = exportador.writeInventario(out, job::setRowsWritten);
+				job.setRowsWritten(rows);
+			}
+			Files.move(partial, job.getFile(), StandardCopyOption.ATOMIC_MOVE);
+			job.setStatus(ExportJobStatusEnum.TERMINADO);
+		} catch(Exception e) {
+			LoggerUtils.logException(logger, "Export job " + job.getId(), e.getMessage());
+			job.setError(e.getMessage());
+			job.setStatus(ExportJobStatusEnum.FALLIDO);
+			try {
+				Files.deleteIfExists(partial);
+			} catch(IOException ex) {
+				logger.warn("Cannot delete {}: {}", partial, ex.getMessage());
+			}
+		} finally {
+			job.setFinishDate(new Date());
+		}
+	}
+
+	/** Método para abrir el archivo de salida
+	 *@param file
+	 *@param gzip
+	 *@return OutputStream
+	 *@exception IOException
+	 */
+	private OutputStream openOutput(Path file, boolean gzip) throws IOException {
+		OutputStream out = new BufferedOutputStream(Files.newOutputStream(file));
+		return gzip ? new GZIPOutputStream(out, 8192) : out;
+	}
+
+	/** Método que borra los trabajos terminados y sus archivos después del tiempo de retención
+	 */
+	@Scheduled(fixedDelayString = "${pineapple.app.exportJobCleanupMs:600000}")
+	public void cleanup() {
+		long limit = System.currentTimeMillis() - retentionMs;
+		this.jobs.values().removeIf(job -> {
+			boolean expired = job.getFinishDate() != null && job.getFinishDate().getTime() < limit;
+			if(expired) {
+				try {
+					Files.deleteIfExists(job.getFile());
+				} catch(IOException e) {
+					logger.warn("Cannot delete {}: {}", job.getFile(), e.getMessage());
+				}
+			}
+			return expired;
+		});
+	}
+
+	/** Método para detener el pool
+	 */
+	@PreDestroy
+	public void shutdown() {
+		this.executor.shutdownNow();
+	}
+
+}
@@ -0,0 +1,289 @@
+package com.pineapplesupermarket.tiendaapi.servicesImpl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pineapplesupermarket.tiendaapi.cache.ReferenceDataCache;
+import com.pineapplesupermarket.tiendaapi.dto.LowStockDTO;
+import com.pineapplesupermarket.tiendaapi.events.ProductoChangedEvent;
+import com.pineapplesupermarket.tiendaapi.exception.EntityNotFoundException;
+import com.pineapplesupermarket.tiendaapi.models.ProductCategory;
+import com.pineapplesupermarket.tiendaapi.repositories.ProductStockRepository;
+import com.pineapplesupermarket.tiendaapi.repositories.ProductStockRepository.StockLevel;
+import com.pineapplesupermarket.tiendaapi.services.ILowStockService;
+/**
+ *Implementación de las alertas de existencias bajas.
+ *Mantiene en memoria los productos en o por debajo de su punto de reorden (el propio o el de su categoría),
+ *ordenados del que más le falta al que menos, en total y por categoría.
+ *Cada ProductoChangedEvent vuelve a evaluar solo los productos que cambiaron, con una búsqueda por llave primaria;
+ *los cambios que pueden afectar a todos (categorías, importación, sincronización) recargan el indice con
+ *queries por indice que solo regresan productos con existencias bajas.
+ *La evaluación se hace en un hilo aparte para no agregar un query a cada movimiento de existencias.
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+@Service
+public class LowStockServiceImpl implements ILowStockService {
+
+	private static final Logger logger = LoggerFactory.getLogger(LowStockServiceImpl.class);
+
+	/** Ids por query IN, los lotes del buffer de existencias pueden traer muchos productos */
+	private static final int CHUNK_SIZE = 500;
+
+	private static final Comparator<LowStockDTO> ORDEN = Comparator.comparingInt(LowStockDTO::getShortage)
+			.reversed().thenComparingLong(LowStockDTO::getIdProduct);
+
+	@Autowired
+	private ProductStockRepository productStockRepository;
+
+	@Autowired
+	private ReferenceDataCache referenceDataCache;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private TransactionTemplate transactionTemplate;
+
+	private ExecutorService evaluationExecutor;
+
+	/** Se reemplaza completo al recargar; después de iniciar solo el hilo de evaluación lo modifica */
+	private volatile Indice indice = new Indice();
+
+	/** Productos que cambiaron y faltan por evaluar */
+	private final Set<Long> pendientes = ConcurrentHashMap.newKeySet();
+
+	private final AtomicBoolean reloadRequested = new AtomicBoolean();
+
+	private final AtomicBoolean evaluationScheduled = new AtomicBoolean();
+
+	/** Método para cargar el indice al iniciar y arrancar el hilo de evaluación
+	 */
+	@PostConstruct
+	public void init() {
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		//los eventos se reciben después del commit, la lectura necesita su propia transacción
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.transactionTemplate.setReadOnly(true);
+		this.evaluationExecutor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "low-stock");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.reload();
+	}
+
+	/** Método para obtener los productos con existencias bajas, primero los que más les falta
+	 *@param categoria código de la categoría, null para todas
+	 *@param limit
+	 *@return List<LowStockDTO>
+	 *@exception EntityNotFoundException si la categoría no existe
+	 */
+	@Override
+	public List<LowStockDTO> getLowStock(String categoria, int limit) throws EntityNotFoundException {
+		if(limit < 1) {
+			throw new IllegalArgumentException("Limit must not be less than one");
+		}
+		Indice actual = this.indice;
+		NavigableSet<LowStockDTO> productos = actual.productos;
+		if(categoria != null) {
+			ProductCategory productCategory = this.referenceDataCache.findCategoriaByCode(categoria)
+					.orElseThrow(() -> new EntityNotFoundException("Product Category", "code", categoria));
+			productos = actual.porCategoria.get(productCategory.getIdProductCategory());
+			if(productos == null) {
+				return List.of();
+			}
+		}
+		//solo se recorren los que se regresan
+		List<LowStockDTO> resultado = new ArrayList<>(Math.min(limit, 64));
+		Iterator<LowStockDTO> iterator = productos.iterator();
+		while(iterator.hasNext() && resultado.size() < limit) {
+			resultado.add(iterator.next());
+		}
+		return resultado;
+	}
+
+	/** Método para pedir que se recargue el indice completo en el hilo de evaluación.
+	 *Se llama también periódicamente, por si las existencias se cambian directamente en la base
+	 */
+	@Override
+	@Scheduled(initialDelayString = "${pineapple.app.lowStockReloadMs:600000}",
+			fixedDelayString = "${pineapple.app.lowStockReloadMs:600000}")
+	public void requestReload() {
+		this.reloadRequested.set(true);
+		this.scheduleEvaluation();
+	}
+
+	/** Método que recibe los productos que cambiaron después del commit
+	 *@param event
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onProductoChanged(ProductoChangedEvent event) {
+		if(event.isAll()) {
+			this.reloadRequested.set(true);
+		} else {
+			this.pendientes.addAll(event.getIdsProduct());
+		}
+		this.scheduleEvaluation();
+	}
+
+	private void scheduleEvaluation() {
+		if(this.evaluationScheduled.compareAndSet(false, true)) {
+			this.evaluationExecutor.execute(this::evaluate);
+		}
+	}
+
+	/** Método del hilo de evaluación: recarga si se pidió y evalúa los productos pendientes.
+	 *Los errores se registran; los productos se quedan pendientes para el siguiente evento o recarga
+	 */
+	private void evaluate() {
+		this.evaluationScheduled.set(false);
+		List<Long> ids = new ArrayList<>();
+		boolean recargar = this.reloadRequested.getAndSet(false);
+		try {
+			if(recargar) {
+				//la recarga lee el estado actual, incluye lo que estaba pendiente
+				this.pendientes.clear();
+				this.reload();
+				recargar = false;
+			}
+			Iterator<Long> iterator = this.pendientes.iterator();
+			while(iterator.hasNext()) {
+				ids.add(iterator.next());
+				iterator.remove();
+			}
+			for(int i = 0; i < ids.size(); i += CHUNK_SIZE) {
+				List<Long> chunk = ids.subList(i, Math.min(ids.size(), i + CHUNK_SIZE));
+				this.refresh(chunk);
+			}
+		} catch(RuntimeException e) {
+			if(recargar) {
+				this.reloadRequested.set(true);
+			}
+			this.pendientes.addAll(ids);
+			logger.error("Cannot evaluate low stock: {}", e.getMessage());
+		}
+	}
+
+	/** Método para recargar el indice completo
+	 */
+	private void reload() {
+		List<StockLevel> niveles = this.transactionTemplate.execute(status -> {
+			List<StockLevel> lista = new ArrayList<>(this.productStockRepository.findBelowOwnThreshold());
+			for(ProductCategory categoria : this.referenceDataCache.getCategorias()) {
+				if(categoria.getReorderThreshold() != null) {
+					lista.addAll(this.productStockRepository.findBelowCategoryThreshold(
+							categoria.getIdProductCategory(), categoria.getReorderThreshold()));
+				}
+			}
+			return lista;
+		});
+		Indice nuevo = new Indice();
+		for(StockLevel nivel : niveles) {
+			LowStockDTO producto = this.toLowStock(nivel);
+			if(producto != null) {
+				nuevo.add(producto);
+			}
+		}
+		this.indice = nuevo;
+		logger.debug("Loaded {} products with low stock", nuevo.porId.size());
+	}
+
+	/** Método para volver a evaluar algunos productos
+	 *@param ids
+	 */
+	private void refresh(List<Long> ids) {
+		Map<Long, StockLevel> niveles = new HashMap<>();
+		this.transactionTemplate.executeWithoutResult(status -> this.productStockRepository.findByIds(ids)
+				.forEach(nivel -> niveles.put(nivel.getIdProduct(), nivel)));
+		Indice actual = this.indice;
+		for(Long id : ids) {
+			//un producto que ya no existe solo se quita
+			StockLevel nivel = niveles.get(id);
+			actual.remove(id);
+			LowStockDTO producto = nivel == null ? null : this.toLowStock(nivel);
+			if(producto != null) {
+				actual.add(producto);
+			}
+		}
+	}
+
+	/** Método para evaluar un producto contra su punto de reorden
+	 *@param nivel
+	 *@return LowStockDTO, null si no tiene punto de reorden o está por encima
+	 */
+	private LowStockDTO toLowStock(StockLevel nivel) {
+		Integer threshold = nivel.getReorderThreshold();
+		if(threshold == null) {
+			threshold = this.referenceDataCache.findCategoriaById(nivel.getIdCategory())
+					.map(ProductCategory::getReorderThreshold).orElse(null);
+		}
+		if(threshold == null || nivel.getQuantity() > threshold) {
+			return null;
+		}
+		return new LowStockDTO(nivel.getIdProduct(), nivel.getCode(), nivel.getName(), nivel.getIdCategory(),
+				nivel.getQuantity(), threshold);
+	}
+
+	/** Método para detener el hilo de evaluación
+	 */
+	@PreDestroy
+	public void shutdown() {
+		this.evaluationExecutor.shutdownNow();
+	}
+
+	/**
+	 *Productos con existencias bajas en orden, en total y por categoría, con su entrada actual por id
+	 *para poder quitarla. Las lecturas no usan candados: un producto que se vuelve a evaluar puede
+	 *faltar un instante entre que se quita su entrada anterior y se agrega la nueva
+	 */
+	private static final class Indice {
+
+		private final NavigableSet<LowStockDTO> productos = new ConcurrentSkipListSet<>(ORDEN);
+
+		private final Map<Long, NavigableSet<LowStockDTO>> porCategoria = new ConcurrentHashMap<>();
+
+		private final Map<Long, LowStockDTO> porId = new ConcurrentHashMap<>();
+
+		private void add(LowStockDTO producto) {
+			this.porId.put(producto.getIdProduct(), producto);
+			this.productos.add(producto);
+			this.porCategoria.computeIfAbsent(producto.getIdCategory(), id -> new ConcurrentSkipListSet<>(ORDEN))
+				.add(producto);
+		}
+
+		private void remove(long idProduct) {
+			LowStockDTO anterior = this.porId.remove(idProduct);
+			if(anterior != null) {
+				this.productos.remove(anterior);
+				NavigableSet<LowStockDTO> categoria = this.porCategoria.get(anterior.getIdCategory());
+				if(categoria != null) {
+					categoria.remove(anterior);
+				}
+			}
+		}
+	}
+}
@@ -4,8 +4,12 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import com.pineapplesupermarket.tiendaapi.cache.ReferenceDataCache;
+import com.pineapplesupermarket.tiendaapi.dto.ResourceVersionDTO;
+import com.pineapplesupermarket.tiendaapi.events.ProductoChangedEvent;
 import com.pineapplesupermarket.tiendaapi.exception.DuplicateEntryException;
 import com.pineapplesupermarket.tiendaapi.exception.EntityNotFoundException;
 import com.pineapplesupermarket.tiendaapi.models.ProductCategory;
@@ -24,18 +28,34 @@ public class ProductoCategoriaServiceImpl implements IProductoCategoriaService{
 	@Autowired
 	ProductCategoryRepository productCategoryRepository;
 	
+	@Autowired
+	private ReferenceDataCache referenceDataCache;
+	
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+	
 	/**
-	 *Método para encontrar las categorías de los productos
+	 *Método para encontrar las categorías de los productos, se leen del cache
 	 *@return  List<ProductCategory>
 	 */
 	@Override
 	public List<ProductCategory> listAll() {
-		return productCategoryRepository.findAll();
+		return this.referenceDataCache.getCategorias();
+	}
+
+	/**
+	 *Método para obtener la versión del listado de categorías para los GET condicionales
+	 *@return ResourceVersionDTO
+	 */
+	@Override
+	public ResourceVersionDTO getVersion() {
+		return new ResourceVersionDTO("\"categories-" + this.referenceDataCache.getCategoriasVersion() + "\"",
+				this.referenceDataCache.getCategoriasLastModified());
 	}
 
 	@Override
 	public ProductCategory findOne(long id) throws EntityNotFoundException{
-		 Optional<ProductCategory> productCategory = this.productCategoryRepository.findById(id);
+		 Optional<ProductCategory> productCategory = this.referenceDataCache.findCategoriaById(id);
 		 if(productCategory.isPresent()) {
 			 return productCategory.get();
 		 }else {
@@ -51,7 +71,9 @@ public class ProductoCategoriaServiceImpl implements IProductoCategoriaService{
 			throw new DuplicateEntryException(ENTITY_NAME, "code", productoCategoria.getCode());
 		}
 		
-		return this.productCategoryRepository.save(productoCategoria);
+		ProductCategory categoria = this.productCategoryRepository.save(productoCategoria);
+		this.referenceDataCache.reloadCategorias();
+		return categoria;
 	}
 
 	@Override
@@ -65,6 +87,7 @@ public class ProductoCategoriaServiceImpl implements IProductoCategoriaService{
 					.isEmpty()) {
 				productoCategoryOld.setCode(codeNuevo);	
 				productoCategoryOld.setDescription(productoCategoriaNuevo.getDescription());
+				productoCategoryOld.setReorderThreshold(productoCategoriaNuevo.getReorderThreshold());
 
 			}else {
 				throw new DuplicateEntryException(ENTITY_NAME, "code", codeNuevo);
@@ -74,7 +97,11 @@ public class ProductoCategoriaServiceImpl implements IProductoCategoriaService{
 			throw new EntityNotFoundException(ENTITY_NAME, "id", String.valueOf(id));
 		}
 		
-		return this.productCategoryRepository.save(productoCategoryOld);
+		ProductCategory categoria = this.productCategoryRepository.save(productoCategoryOld);
+		this.referenceDataCache.reloadCategorias();
+		//la categoría va dentro de cada producto
+		this.eventPublisher.publishEvent(new ProductoChangedEvent(null));
+		return categoria;
 	}
 
 	@Override
@@ -82,7 +109,12 @@ public class ProductoCategoriaServiceImpl implements IProductoCategoriaService{
 		if(this.productCategoryRepository.findById(id).isEmpty()) {
 			throw new EntityNotFoundException(ENTITY_NAME, "id", String.valueOf(id));
 		}
-		this.productCategoryRepository.deleteById(id);
+		try {
+			this.productCategoryRepository.deleteById(id);
+		} finally {
+			this.referenceDataCache.reloadCategorias();
+			this.eventPublisher.publishEvent(new ProductoChangedEvent(null));
+		}
 	}
 
 }
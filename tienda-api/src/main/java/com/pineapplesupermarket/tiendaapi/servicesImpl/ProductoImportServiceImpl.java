@@ -0,0 +1,365 @@
+package com.pineapplesupermarket.tiendaapi.servicesImpl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.pineapplesupermarket.tiendaapi.cache.ReferenceDataCache;
+import com.pineapplesupermarket.tiendaapi.dto.ImportErrorDTO;
+import com.pineapplesupermarket.tiendaapi.dto.ImportResultDTO;
+import com.pineapplesupermarket.tiendaapi.dto.ProductImportDTO;
+import com.pineapplesupermarket.tiendaapi.events.ProductoChangedEvent;
+import com.pineapplesupermarket.tiendaapi.exception.DuplicateEntryException;
+import com.pineapplesupermarket.tiendaapi.models.ProductCategory;
+import com.pineapplesupermarket.tiendaapi.repositories.ProductBatchRepository;
+import com.pineapplesupermarket.tiendaapi.services.IProductoImportService;
+import com.pineapplesupermarket.tiendaapi.services.IStockLedgerService;
+import com.pineapplesupermarket.tiendaapi.util.CsvUtils;
+import com.pineapplesupermarket.tiendaapi.util.JsonUtils;
+/**
+ *Implementación del servicio de la importación masiva de productos.
+ *Los productos se validan e insertan por bloques: un solo query IN (...) para buscar duplicados
+ *y un INSERT por lotes de JDBC por bloque, cada bloque en su propia transacción
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+@Service
+public class ProductoImportServiceImpl implements IProductoImportService {
+
+	private static final Logger logger = LoggerFactory.getLogger(ProductoImportServiceImpl.class);
+
+	private static final String ENTITY_NAME = "Product";
+
+	private static final String[] CSV_COLUMNS = {"categoryCode", "code", "name", "quantity", "unitPrice"};
+
+	@Autowired
+	private ProductBatchRepository productBatchRepository;
+
+	@Autowired
+	private ReferenceDataCache referenceDataCache;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private IStockLedgerService stockLedgerService;
+
+	@Value("${pineapple.app.importChunkSize:1000}")
+	private int chunkSize;
+
+	@Value("${pineapple.app.importMaxErrors:1000}")
+	private int maxErrors;
+
+	/** Método para importar productos en CSV (con encabezado) o NDJSON / arreglo Json
+	 *@param input
+	 *@param csv
+	 *@return ImportResultDTO
+	 *@exception IOException, IllegalArgumentException si falta una columna del CSV
+	 */
+	@Override
+	public ImportResultDTO importProductos(InputStream input, boolean csv) throws IOException {
+		Importacion importacion = new Importacion();
+		if(csv) {
+			this.readCsv(input, importacion);
+		} else {
+			this.readJson(input, importacion);
+		}
+		importacion.flush();
+
+		ImportResultDTO result = importacion.result;
+		if(result.getApplied() > 0) {
+			//productos nuevos en los listados; solo los insertados, sin recalcular todo lo que está en memoria
+			this.eventPublisher.publishEvent(new ProductoChangedEvent(importacion.ids));
+		}
+		result.setTotal(result.getApplied() + result.getRejected());
+		logger.info("Imported products: " + result.getApplied() + " of " + result.getTotal());
+		return result;
+	}
+
+	/** Método para leer los productos de un CSV; las columnas se ubican por el encabezado
+	 *@param input
+	 *@param importacion
+	 *@exception IOException
+	 */
+	private void readCsv(InputStream input, Importacion importacion) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+		List<String> header = CsvUtils.readRecord(reader);
+		if(header == null) {
+			return;
+		}
+		Map<String, Integer> columns = new HashMap<>();
+		for(int i = 0; i < header.size(); i++) {
+			//el BOM que agregan algunas hojas de cálculo
+			columns.put(header.get(i).replace("\uFEFF", "").trim(), i);
+		}
+		for(String column : CSV_COLUMNS) {
+			if(!columns.containsKey(column)) {
+				throw new IllegalArgumentException("Missing CSV column: " + column);
+			}
+		}
+
+		long row = 0;
+		List<String> values;
+		while((values = CsvUtils.readRecord(reader)) != null) {
+			if(values.size() == 1 && values.get(0).isBlank()) {
+				continue;
+			}
+			row++;
+			ProductImportDTO producto = new ProductImportDTO();
+			producto.setCategoryCode(value(values, columns, "categoryCode"));
+			producto.setCode(value(values, columns, "code"));
+			producto.setName(value(values, columns, "name"));
+			producto.setDescription(value(values, columns, "description"));
+			try {
+				String quantity = value(values, columns, "quantity");
+				producto.setQuantity(quantity == null ? null : Integer.valueOf(quantity.trim()));
+				String unitPrice = value(values, columns, "unitPrice");
+				producto.setUnitPrice(unitPrice == null ? null : Double.valueOf(unitPrice.trim()));
+			} catch(NumberFormatException e) {
+				importacion.reject(row, producto.getCode(), "Número no válido: " + e.getMessage());
+				continue;
+			}
+			importacion.add(row, producto);
+		}
+	}
+
+	/** Método para leer los productos de un NDJSON o de un arreglo Json sin cargarlo completo
+	 *@param input
+	 *@param importacion
+	 *@exception IOException
+	 */
+	private void readJson(InputStream input, Importacion importacion) throws IOException {
+		long row = 0;
+		try(MappingIterator<ProductImportDTO> productos = JsonUtils.readValues(input, ProductImportDTO.class)) {
+			while(productos.hasNextValue()) {
+				row++;
+				importacion.add(row, productos.nextValue());
+			}
+		} catch(JsonProcessingException e) {
+			//después de un error en el Json no se puede ubicar el siguiente objeto, se detiene la lectura
+			importacion.reject(row + 1, null, "Json no válido, se detuvo la importación: " + e.getOriginalMessage());
+		}
+	}
+
+	/** Método para obtener el valor de una columna del CSV
+	 *@param values
+	 *@param columns
+	 *@param column
+	 *@return String, null si la columna no existe o está vacía
+	 */
+	private static String value(List<String> values, Map<String, Integer> columns, String column) {
+		Integer index = columns.get(column);
+		if(index == null || index >= values.size() || values.get(index).isEmpty()) {
+			return null;
+		}
+		return values.get(index);
+	}
+
+	/** Método para validar un producto, usa las mismas restricciones de la tabla
+	 *@param producto
+	 *@return String el error, null si es válido
+	 */
+	private static String validate(ProductImportDTO producto) {
+		if(isBlank(producto.getCode()) || isBlank(producto.getName()) || isBlank(producto.getCategoryCode())
+				|| producto.getQuantity() == null || producto.getUnitPrice() == null) {
+			return "Parametros vacios";
+		}
+		if(producto.getCode().length() > 20) {
+			return "code excede 20 caracteres";
+		}
+		if(producto.getName().length() > 45) {
+			return "name excede 45 caracteres";
+		}
+		if(producto.getDescription() != null && producto.getDescription().length() > 100) {
+			return "description excede 100 caracteres";
+		}
+		if(producto.getQuantity() < 0 || producto.getUnitPrice() < 0) {
+			return "quantity y unitPrice no pueden ser negativos";
+		}
+		return null;
+	}
+
+	private static List<String> codes(List<ProductImportDTO> productos) {
+		List<String> codes = new ArrayList<>(productos.size());
+		for(ProductImportDTO producto : productos) {
+			codes.add(producto.getCode());
+		}
+		return codes;
+	}
+
+	private static boolean isBlank(String value) {
+		return value == null || value.isBlank();
+	}
+
+	/**
+	 *Estado de una importación: el bloque pendiente, las llaves ya vistas en el archivo y el resultado
+	 */
+	private class Importacion {
+
+		private final ImportResultDTO result = new ImportResultDTO();
+
+		private final Map<String, Long> categorias = new HashMap<>();
+
+		private final Set<String> keys = new HashSet<>();
+
+		private final List<ProductImportDTO> productos = new ArrayList<>();
+
+		private final List<Long> idsCategoria = new ArrayList<>();
+
+		private final List<Long> rows = new ArrayList<>();
+
+		/** Ids de los productos insertados */
+		private final List<Long> ids = new ArrayList<>();
+
+		private final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+		/** Usuario de la petición, para el historial de existencias */
+		private final String username = stockLedgerService.getCurrentUsername();
+
+		private Importacion() {
+			for(ProductCategory categoria : referenceDataCache.getCategorias()) {
+				categorias.put(categoria.getCode().toLowerCase(Locale.ROOT), categoria.getIdProductCategory());
+			}
+		}
+
+		/** Método para agregar un producto al bloque, se inserta cuando el bloque se llena
+		 *@param row
+		 *@param producto
+		 */
+		private void add(long row, ProductImportDTO producto) {
+			String error = validate(producto);
+			if(error != null) {
+				reject(row, producto.getCode(), error);
+				return;
+			}
+			producto.setCode(producto.getCode().trim());
+			producto.setName(producto.getName().trim());
+
+			Long idCategoria = categorias.get(producto.getCategoryCode().trim().toLowerCase(Locale.ROOT));
+			if(idCategoria == null) {
+				reject(row, producto.getCode(), "Categoría no registrada: " + producto.getCategoryCode());
+				return;
+			}
+			String codeKey = ProductBatchRepository.codeKey(producto.getCode());
+			String nameKey = ProductBatchRepository.nameKey(producto.getName(), idCategoria);
+			if(keys.contains(codeKey) || keys.contains(nameKey)) {
+				reject(row, producto.getCode(), "Duplicado en el archivo");
+				return;
+			}
+			keys.add(codeKey);
+			keys.add(nameKey);
+
+			productos.add(producto);
+			idsCategoria.add(idCategoria);
+			rows.add(row);
+			if(productos.size() >= chunkSize) {
+				flush();
+			}
+		}
+
+		/** Método para registrar un renglón rechazado
+		 *@param row
+		 *@param code
+		 *@param mensaje
+		 */
+		private void reject(long row, String code, String mensaje) {
+			result.setRejected(result.getRejected() + 1);
+			if(result.getErrors().size() < maxErrors) {
+				result.getErrors().add(new ImportErrorDTO(row, code, mensaje));
+			}
+		}
+
+		/** Método para descartar los productos que ya existen e insertar el resto del bloque
+		 */
+		private void flush() {
+			if(productos.isEmpty()) {
+				return;
+			}
+			Set<String> codes = new HashSet<>();
+			Set<String> names = new HashSet<>();
+			for(ProductImportDTO producto : productos) {
+				codes.add(producto.getCode());
+				names.add(producto.getName());
+			}
+			Map<String, Long> existentes = productBatchRepository.findExistingKeys(codes, names);
+
+			List<ProductImportDTO> nuevos = new ArrayList<>();
+			List<Long> nuevosCategoria = new ArrayList<>();
+			List<Long> nuevosRows = new ArrayList<>();
+			for(int i = 0; i < productos.size(); i++) {
+				ProductImportDTO producto = productos.get(i);
+				if(existentes.containsKey(ProductBatchRepository.codeKey(producto.getCode()))) {
+					reject(rows.get(i), producto.getCode(),
+							new DuplicateEntryException(ENTITY_NAME, "code", producto.getCode()).getMessage());
+				} else if(existentes.containsKey(ProductBatchRepository.nameKey(producto.getName(), idsCategoria.get(i)))) {
+					reject(rows.get(i), producto.getCode(), new DuplicateEntryException(ENTITY_NAME, "name, category",
+							producto.getName().concat(", ").concat(producto.getCategoryCode())).getMessage());
+				} else {
+					nuevos.add(producto);
+					nuevosCategoria.add(idsCategoria.get(i));
+					nuevosRows.add(rows.get(i));
+				}
+			}
+			productos.clear();
+			idsCategoria.clear();
+			rows.clear();
+			if(nuevos.isEmpty()) {
+				return;
+			}
+
+			Date creationDate = new Date();
+			try {
+				List<String> nuevosCodes = codes(nuevos);
+				transactionTemplate.executeWithoutResult(status -> {
+					productBatchRepository.insert(nuevos, nuevosCategoria, creationDate);
+					stockLedgerService.recordImport(nuevosCodes, username, creationDate);
+					ids.addAll(productBatchRepository.findIdsByCode(nuevosCodes));
+				});
+				result.setApplied(result.getApplied() + nuevos.size());
+			} catch(DataAccessException e) {
+				//el lote se revirtió completo; se inserta uno por uno para ubicar los renglones con error
+				logger.warn("Batch insert failed, retrying row by row: " + e.getMostSpecificCause().getMessage());
+				for(int i = 0; i < nuevos.size(); i++) {
+					int index = i;
+					try {
+						List<String> code = List.of(nuevos.get(index).getCode());
+						transactionTemplate.executeWithoutResult(status -> {
+							productBatchRepository.insert(nuevos.subList(index, index + 1), 
+									nuevosCategoria.subList(index, index + 1), creationDate);
+							stockLedgerService.recordImport(code, username, creationDate);
+							ids.addAll(productBatchRepository.findIdsByCode(code));
+						});
+						result.setApplied(result.getApplied() + 1);
+					} catch(DataAccessException ex) {
+						reject(nuevosRows.get(i), nuevos.get(i).getCode(), ex.getMostSpecificCause().getMessage());
+					}
+				}
+			}
+		}
+	}
+}
@@ -1,29 +1,67 @@
 package com.pineapplesupermarket.tiendaapi.servicesImpl;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
-import org.springframework.data.domain.Sort.Direction;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.pineapplesupermarket.tiendaapi.CacheConfiguration;
+import com.pineapplesupermarket.tiendaapi.cache.ProductCountCache;
+import com.pineapplesupermarket.tiendaapi.cache.ProductListCache;
+import com.pineapplesupermarket.tiendaapi.cache.ReferenceDataCache;
+import com.pineapplesupermarket.tiendaapi.dto.CursorPageDTO;
 import com.pineapplesupermarket.tiendaapi.dto.FilterProductoDTO;
+import com.pineapplesupermarket.tiendaapi.dto.ImportErrorDTO;
+import com.pineapplesupermarket.tiendaapi.dto.ImportResultDTO;
+import com.pineapplesupermarket.tiendaapi.dto.ProductSummaryDTO;
+import com.pineapplesupermarket.tiendaapi.dto.ProductSyncDTO;
+import com.pineapplesupermarket.tiendaapi.dto.ResourceVersionDTO;
+import com.pineapplesupermarket.tiendaapi.dto.StockDTO;
+import com.pineapplesupermarket.tiendaapi.enums.CountModeEnum;
+import com.pineapplesupermarket.tiendaapi.enums.ProductSortEnum;
+import com.pineapplesupermarket.tiendaapi.enums.StockMovementReasonEnum;
+import com.pineapplesupermarket.tiendaapi.events.ProductoChangedEvent;
 import com.pineapplesupermarket.tiendaapi.exception.DuplicateEntryException;
 import com.pineapplesupermarket.tiendaapi.exception.EntityNotFoundException;
 import com.pineapplesupermarket.tiendaapi.exception.FailUploadedException;
+import com.pineapplesupermarket.tiendaapi.exception.InsufficientStockException;
 import com.pineapplesupermarket.tiendaapi.models.Product;
 import com.pineapplesupermarket.tiendaapi.models.ProductCategory;
 import com.pineapplesupermarket.tiendaapi.repositories.CustomProductosRepository;
-import com.pineapplesupermarket.tiendaapi.repositories.ProductCategoryRepository;
+import com.pineapplesupermarket.tiendaapi.repositories.ProductBatchRepository;
 import com.pineapplesupermarket.tiendaapi.repositories.ProductRepository;
 import com.pineapplesupermarket.tiendaapi.services.ICloudinaryService;
 import com.pineapplesupermarket.tiendaapi.services.IProductoService;
+import com.pineapplesupermarket.tiendaapi.services.IStockBufferService;
+import com.pineapplesupermarket.tiendaapi.services.IStockLedgerService;
+import com.pineapplesupermarket.tiendaapi.util.CursorUtils;
+import com.pineapplesupermarket.tiendaapi.util.CursorUtils.Posicion;
 /**
  *Implementación del servicio de los productos
  *@author Raquel de la Rosa 
@@ -36,7 +74,7 @@ public class ProductoServiceImpl implements IProductoService{
 	private ProductRepository productRepository;
 	
 	@Autowired
-	private ProductCategoryRepository productCategoryRepository;
+	private ReferenceDataCache referenceDataCache;
 	
 	@Autowired
 	private CustomProductosRepository customProductosRepository;
@@ -44,8 +82,50 @@ public class ProductoServiceImpl implements IProductoService{
 	@Autowired
 	private ICloudinaryService cloudinaryService;
 	
+	@Autowired
+	private ProductCountCache productCountCache;
+	
+	@Autowired
+	private ProductListCache productListCache;
+	
+	@Autowired
+	private ProductBatchRepository productBatchRepository;
+	
+	@Autowired
+	private IStockBufferService stockBufferService;
+	
+	@Autowired
+	private IStockLedgerService stockLedgerService;
+	
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+	
+	@Autowired
+	private CacheManager cacheManager;
+	
+	private Cache productCache;
+	
+	/** Invalidaciones de todo el cache y por producto (un contador por producto modificado, como el catálogo);
+	 * una copia leída antes de una invalidación no se guarda */
+	private final AtomicLong invalidaciones = new AtomicLong();
+	
+	private final Map<Long, Long> invalidacionesProducto = new ConcurrentHashMap<>();
+	
+	@Value("${pineapple.app.importChunkSize:1000}")
+	private int batchSize;
+	
+	@Value("${pineapple.app.importMaxErrors:1000}")
+	private int maxErrors;
+	
 	private static final String ENTITY_NAME = "Product";
 	
+	/** Método para obtener el cache de productos
+	 */
+	@PostConstruct
+	public void init() {
+		this.productCache = this.cacheManager.getCache(CacheConfiguration.PRODUCTS);
+	}
+	
 	/** Método para crear productos
 	 *@param  Product
 	 *@param MultipartFile
@@ -55,8 +135,8 @@ public class ProductoServiceImpl implements IProductoService{
 	@Override
 	@Transactional
 	public Product create(Product producto, MultipartFile picture) throws DuplicateEntryException, EntityNotFoundException, FailUploadedException { 
-		ProductCategory categoria = this.productCategoryRepository
-				.findByCode(producto.getProductCategory().getCode()).orElse(null);
+		ProductCategory categoria = this.referenceDataCache
+				.findCategoriaByCode(producto.getProductCategory().getCode()).orElse(null);
 		if(categoria != null) {
 			Optional<Product> productoExistenteByCode = this.productRepository.findByCode(producto.getCode());
 			Optional<Product> productoExistenteByNameAndCategory = this.productRepository.findByNameAndProductCategory(producto.getName(), categoria);
@@ -76,28 +156,205 @@ public class ProductoServiceImpl implements IProductoService{
 		}else {
 			throw new EntityNotFoundException(ENTITY_NAME + " Category", "code", producto.getProductCategory().getCode());
 		}
-		return productRepository.save(producto);
+		Product productoCreado = productRepository.save(producto);
+		this.stockLedgerService.record(productoCreado.getIdProduct(), productoCreado.getQuantity(), 
+				StockMovementReasonEnum.CREATE);
+		this.publishChanged(List.of(productoCreado.getIdProduct()));
+		return productoCreado;
 	}
 
 	/**Método para listar productos
 	 *@param FilterProductoDTO
-	 *@return Page<Product>
+	 *@return Slice<Product> Page<Product> salvo en modo de conteo NONE
 	 */
 	@Override
 	@Transactional(readOnly=true)
-	public Page<Product> getProductos(FilterProductoDTO filters) {
-		Pageable pageRequest = PageRequest.of(filters.getPage(), 
-				filters.getSize(), 
-				Sort.by(Direction.ASC, "idProduct"));
+	public Slice<Product> getProductos(FilterProductoDTO filters) {
+		Pageable pageRequest = PageRequest.of(filters.getPage(), filters.getSize(), toSort(filters));
+
+		CountModeEnum countMode = filters.getCountMode() == null ? 
+				CountModeEnum.EXACT : filters.getCountMode();
+		
+		//los ids de la página salen del cache de listados y los productos del cache de productos
+		ProductListCache.Pagina pagina;
+		switch(countMode) {
+		case NONE:
+			pagina = this.productListCache.getPage(filters, false);
+			return new SliceImpl<>(this.findAllById(pagina.getIds()), pageRequest, pagina.hasNext());
+		case ESTIMATED:
+			pagina = this.productListCache.getPage(filters, false);
+			long total = this.productCountCache.getCount(filters);
+			//el total en cache puede estar desfasado, se ajusta con lo que ya se leyó
+			if(pagina.hasNext()) {
+				total = Math.max(total, pageRequest.getOffset() + pageRequest.getPageSize() + 1);
+			} else if(!pagina.getIds().isEmpty()) {
+				total = pageRequest.getOffset() + pagina.getIds().size();
+			}
+			return new PageImpl<>(this.findAllById(pagina.getIds()), pageRequest, total);
+		default:
+			pagina = this.productListCache.getPage(filters, true);
+			return new PageImpl<>(this.findAllById(pagina.getIds()), pageRequest, pagina.getTotal());
+		}
+	}
+	
+	/**Método para listar productos con paginación por cursor (keyset)
+	 *@param FilterProductoDTO
+	 *@return CursorPageDTO<Product>
+	 *@exception IllegalArgumentException si el cursor no es válido
+	 */
+	@Override
+	@Transactional(readOnly=true)
+	public CursorPageDTO<Product> getProductosKeyset(FilterProductoDTO filters) {
+		Posicion after = CursorUtils.decode(filters.getCursor(), filters.getSort(), filters.getDirection());
+		int size = filters.getSize();
+		if(size < 1) {
+			throw new IllegalArgumentException("Page size must not be less than one");
+		}
+		
+		//se pide un registro extra para saber si existe una página siguiente
+		List<Product> productos = this.customProductosRepository.findAllAfter(filters, after, size + 1);
+		
+		boolean hasNext = productos.size() > size;
+		if(hasNext) {
+			productos = productos.subList(0, size);
+		}
+		String nextCursor = null;
+		if(hasNext) {
+			Product ultimo = productos.get(productos.size() - 1);
+			nextCursor = CursorUtils.encode(filters.getSort(), filters.getDirection(), 
+					sortValue(ultimo, filters.getSort()), ultimo.getIdProduct());
+		}
+		
+		return new CursorPageDTO<>(productos, size, nextCursor, hasNext);
+	}
 
-		Page<Product> productosPage = null;
+	/**Método para listar productos resumidos (proyección), un query por página sin crear entidades
+	 *@param FilterProductoDTO
+	 *@return Slice<ProductSummaryDTO> Page<ProductSummaryDTO> salvo en modo de conteo NONE
+	 */
+	@Override
+	@Transactional(readOnly=true)
+	public Slice<ProductSummaryDTO> getProductosSummary(FilterProductoDTO filters) {
+		Pageable pageRequest = PageRequest.of(filters.getPage(), filters.getSize(), toSort(filters));
+		
+		List<ProductSummaryDTO> productos = this.withPendingStock(this.customProductosRepository.findSummaries(
+				filters, null, pageRequest.getOffset(), pageRequest.getPageSize() + 1));
+		boolean hasNext = productos.size() > pageRequest.getPageSize();
+		if(hasNext) {
+			productos = productos.subList(0, pageRequest.getPageSize());
+		}
+		
+		CountModeEnum countMode = filters.getCountMode() == null ? 
+				CountModeEnum.EXACT : filters.getCountMode();
+		switch(countMode) {
+		case NONE:
+			return new SliceImpl<>(productos, pageRequest, hasNext);
+		case ESTIMATED:
+			long total = this.productCountCache.getCount(filters);
+			if(hasNext) {
+				total = Math.max(total, pageRequest.getOffset() + pageRequest.getPageSize() + 1);
+			} else if(!productos.isEmpty()) {
+				total = pageRequest.getOffset() + productos.size();
+			}
+			return new PageImpl<>(productos, pageRequest, total);
+		default:
+			return new PageImpl<>(productos, pageRequest, this.customProductosRepository.count(filters));
+		}
+	}
+	
+	/**Método para listar productos resumidos con paginación por cursor (keyset)
+	 *@param FilterProductoDTO
+	 *@return CursorPageDTO<ProductSummaryDTO>
+	 *@exception IllegalArgumentException si el cursor no es válido
+	 */
+	@Override
+	@Transactional(readOnly=true)
+	public CursorPageDTO<ProductSummaryDTO> getProductosSummaryKeyset(FilterProductoDTO filters) {
+		Posicion after = CursorUtils.decode(filters.getCursor(), filters.getSort(), filters.getDirection());
+		int size = filters.getSize();
+		if(size < 1) {
+			throw new IllegalArgumentException("Page size must not be less than one");
+		}
+		
+		List<ProductSummaryDTO> productos = this.customProductosRepository.findSummaries(filters, after, 0, size + 1);
+		boolean hasNext = productos.size() > size;
+		if(hasNext) {
+			productos = productos.subList(0, size);
+		}
+		//el cursor lleva la cantidad de la base, antes de sumar los movimientos pendientes
+		String nextCursor = null;
+		if(hasNext) {
+			ProductSummaryDTO ultimo = productos.get(productos.size() - 1);
+			nextCursor = CursorUtils.encode(filters.getSort(), filters.getDirection(), 
+					sortValue(ultimo, filters.getSort()), ultimo.getIdProduct());
+		}
 		
-		productosPage = this.customProductosRepository.findAll(filters.getName(),
-				filters.getCategoria(), filters.getFechaCreacion(), pageRequest);
-		return productosPage;
+		return new CursorPageDTO<>(this.withPendingStock(productos), size, nextCursor, hasNext);
+	}
+	
+	/**Método para ordenar la página igual que el query: la columna pedida y el id como desempate
+	 *@param filters
+	 *@return Sort
+	 */
+	private static Sort toSort(FilterProductoDTO filters) {
+		Sort sort = Sort.by(filters.getDirection(), filters.getSort().getProperty());
+		return filters.getSort() == ProductSortEnum.ID ? sort 
+				: sort.and(Sort.by(filters.getDirection(), ProductSortEnum.ID.getProperty()));
 	}
 
-	/**Método para actualizar productos
+	/**Método para obtener el valor de la columna de orden de un producto, para el cursor
+	 *@param producto
+	 *@param sort
+	 *@return Object
+	 */
+	private static Object sortValue(Product producto, ProductSortEnum sort) {
+		switch(sort) {
+		case PRICE:
+			return producto.getUnitPrice();
+		case QUANTITY:
+			return producto.getQuantity();
+		case MODIFICATION_DATE:
+			return producto.getModificationDate();
+		default:
+			return null;
+		}
+	}
+
+	/**Método para obtener el valor de la columna de orden de un producto resumido, para el cursor
+	 *@param producto
+	 *@param sort
+	 *@return Object
+	 */
+	private static Object sortValue(ProductSummaryDTO producto, ProductSortEnum sort) {
+		switch(sort) {
+		case PRICE:
+			return producto.getUnitPrice();
+		case QUANTITY:
+			return producto.getQuantity();
+		case MODIFICATION_DATE:
+			return producto.getModificationDate();
+		default:
+			return null;
+		}
+	}
+
+	/**Método para sumar a los productos resumidos los movimientos de existencias pendientes
+	 *@param productos
+	 *@return List<ProductSummaryDTO>
+	 */
+	private List<ProductSummaryDTO> withPendingStock(List<ProductSummaryDTO> productos) {
+		for(int i = 0; i < productos.size(); i++) {
+			ProductSummaryDTO producto = productos.get(i);
+			long pendiente = this.stockBufferService.getPendingDelta(producto.getIdProduct());
+			if(pendiente != 0) {
+				productos.set(i, producto.withQuantity((int) (producto.getQuantity() + pendiente)));
+			}
+		}
+		return productos;
+	}
+
+	/**Método para actualizar productos. La cantidad es absoluta: el llamador guarda antes el buffer de existencias
+	 * (IStockBufferService.flush) fuera de esta transacción, flush usa su propia conexión
 	 *@param id
 	 *@param productoEditado
 	 *@return Product
@@ -107,8 +364,8 @@ public class ProductoServiceImpl implements IProductoService{
 	@Transactional()
 	public Product update(long id, Product productoEditado) throws DuplicateEntryException, EntityNotFoundException {
 		Product producto = this.productRepository.findById(id).orElse(null);
-		ProductCategory categoria = this.productCategoryRepository
-				.findByCode(productoEditado.getProductCategory().getCode()).orElse(null);
+		ProductCategory categoria = this.referenceDataCache
+				.findCategoriaByCode(productoEditado.getProductCategory().getCode()).orElse(null);
 
 		if(producto != null && categoria != null) {
 			Optional<Product> productoExistenteByCode = 
@@ -135,10 +392,14 @@ public class ProductoServiceImpl implements IProductoService{
 
 			producto.setCode(productoEditado.getCode());
 			producto.setDescription(productoEditado.getDescription());
+			this.stockLedgerService.record(id, productoEditado.getQuantity() - producto.getQuantity(), 
+					StockMovementReasonEnum.UPDATE);
 			producto.setQuantity(productoEditado.getQuantity());
 			producto.setUnitPrice(productoEditado.getUnitPrice());
+			producto.setReorderThreshold(productoEditado.getReorderThreshold());
 			producto.setModificationDate(new Date());
-						
+			
+			this.publishChanged(List.of(id));
 			return productRepository.save(producto);
 			
 		}else {
@@ -149,7 +410,25 @@ public class ProductoServiceImpl implements IProductoService{
 		}			
 	}
 
-	/**Método para encontrar un producto
+	/**Método para obtener la versión de un producto para los GET condicionales, a partir del mismo producto
+	 * que se regresa (findOne), así el ETag siempre corresponde al cuerpo y un acierto del cache no consulta la base.
+	 * El ETag incluye la cantidad, que ya trae los movimientos de existencias pendientes
+	 * (todavía no cambian la fecha de modificación), y la versión de las categorías, que van dentro del producto
+	 *@param producto
+	 *@return ResourceVersionDTO
+	 */
+	@Override
+	public ResourceVersionDTO getVersion(Product producto) {
+		Date fecha = producto.getModificationDate() != null ? producto.getModificationDate() : producto.getCreationDate();
+		String etag = "\"" + producto.getIdProduct() + "-" + fecha.getTime() + "-" + producto.getQuantity()
+				+ "-" + this.referenceDataCache.getCategoriasVersion() + "\"";
+		//con movimientos pendientes la fecha no refleja la cantidad, solo se valida con el ETag
+		boolean pendiente = this.stockBufferService.getPendingDelta(producto.getIdProduct()) != 0;
+		long lastModified = Math.max(fecha.getTime(), this.referenceDataCache.getCategoriasLastModified());
+		return new ResourceVersionDTO(etag, pendiente ? -1 : lastModified);
+	}
+	
+	/**Método para encontrar un producto, primero en el cache de productos
 	 *@param id
 	 *@return Product
 	 *@exception EntityNotFoundException
@@ -157,12 +436,134 @@ public class ProductoServiceImpl implements IProductoService{
 	@Override
 	@Transactional(readOnly=true)
 	public Product findOne(long id) throws EntityNotFoundException {
-		Optional<Product> productoEncontrado = this.productRepository.findById(id);
-		if(productoEncontrado.isPresent()) {
-			return productoEncontrado.get();
-		}else {
-			throw new EntityNotFoundException(ENTITY_NAME, "id", String.valueOf(id));
+		long todas = this.invalidaciones.get();
+		Product producto;
+		try {
+			//Caffeine carga dentro de un compute: un evict del mismo id espera a que termine y borra la copia
+			producto = this.productCache.get(id, () -> {
+				Optional<Product> productoEncontrado = this.productRepository.findById(id);
+				if(productoEncontrado.isEmpty()) {
+					throw new EntityNotFoundException(ENTITY_NAME, "id", String.valueOf(id));
+				}
+				//se guarda una copia, la entidad sigue asociada a la sesión de esta petición
+				return new Product(productoEncontrado.get());
+			});
+		} catch(Cache.ValueRetrievalException e) {
+			if(e.getCause() instanceof EntityNotFoundException) {
+				throw (EntityNotFoundException) e.getCause();
+			}
+			throw e;
+		}
+		if(this.invalidaciones.get() != todas) {
+			//clear no espera a las cargas en curso
+			this.productCache.evict(id);
+		}
+		return this.withPendingStock(producto);
+	}
+	
+	/**Método para obtener varios productos en el orden de los ids; los que no están en el cache
+	 * se buscan en un solo query. Los ids que ya no existen se omiten
+	 *@param ids
+	 *@return List<Product>
+	 */
+	private List<Product> findAllById(List<Long> ids) {
+		Map<Long, Product> encontrados = new HashMap<>();
+		List<Long> faltantes = new ArrayList<>();
+		for(Long id : ids) {
+			Product producto = this.productCache.get(id, Product.class);
+			if(producto != null) {
+				encontrados.put(id, producto);
+			} else {
+				faltantes.add(id);
+			}
+		}
+		if(!faltantes.isEmpty()) {
+			Map<Long, Long> generaciones = new HashMap<>();
+			faltantes.forEach(id -> generaciones.put(id, this.generacion(id)));
+			for(Product producto : this.productRepository.findAllById(faltantes)) {
+				Product copia = new Product(producto);
+				this.cachePut(copia, generaciones.get(copia.getIdProduct()));
+				encontrados.put(copia.getIdProduct(), copia);
+			}
+		}
+		List<Product> productos = new ArrayList<>(ids.size());
+		for(Long id : ids) {
+			Product producto = encontrados.get(id);
+			if(producto != null) {
+				productos.add(this.withPendingStock(producto));
+			}
+		}
+		return productos;
+	}
+	
+	/**Método para sumar los movimientos de existencias que aún no llegan a la base,
+	 * sobre una copia para no modificar el producto en cache
+	 *@param producto
+	 *@return Product
+	 */
+	private Product withPendingStock(Product producto) {
+		long pendiente = this.stockBufferService.getPendingDelta(producto.getIdProduct());
+		if(pendiente == 0) {
+			return producto;
+		}
+		Product productoActual = new Product(producto);
+		productoActual.setQuantity((int) (productoActual.getQuantity() + pendiente));
+		return productoActual;
+	}
+	
+	/**Método que saca del cache los productos que cambiaron, después del commit
+	 *@param event
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onProductoChanged(ProductoChangedEvent event) {
+		//el contador cambia antes de sacar del cache, así una lectura en curso no vuelve a guardar la copia anterior
+		if(event.isAll()) {
+			this.invalidaciones.incrementAndGet();
+			this.productCache.clear();
+		} else {
+			for(Long id : event.getIdsProduct()) {
+				this.invalidacionesProducto.merge(id, 1L, Long::sum);
+				this.productCache.evict(id);
+			}
+		}
+	}
+	
+	/**Método para obtener la generación de un producto en el cache, cambia con cada invalidación
+	 *@param id
+	 *@return long
+	 */
+	private long generacion(long id) {
+		return this.invalidaciones.get() + this.invalidacionesProducto.getOrDefault(id, 0L);
+	}
+	
+	/**Método para guardar en el cache un producto leído en la generación indicada.
+	 * Se verifica antes y después de guardar: una invalidación entre las dos verificaciones borra la copia
+	 *@param producto
+	 *@param generacion
+	 */
+	private void cachePut(Product producto, long generacion) {
+		long id = producto.getIdProduct();
+		if(this.generacion(id) != generacion) {
+			return;
 		}
+		this.productCache.put(id, producto);
+		if(this.generacion(id) != generacion) {
+			this.productCache.evict(id);
+		}
+	}
+	
+	/**Método para avisar que cambiaron productos
+	 *@param ids null si pueden ser todos
+	 */
+	private void publishChanged(Collection<Long> ids) {
+		this.eventPublisher.publishEvent(new ProductoChangedEvent(ids));
+	}
+	
+	/**Método para avisar que cambiaron existencias o precios
+	 *@param ids null si pueden ser todos
+	 */
+	private void publishValuesChanged(Collection<Long> ids) {
+		this.eventPublisher.publishEvent(new ProductoChangedEvent(ids, true));
 	}
 	
 	/**Método para eliminar un producto
@@ -175,6 +576,8 @@ public class ProductoServiceImpl implements IProductoService{
 		Optional<Product> productoEncontrado = this.productRepository.findById(id);
 		if(productoEncontrado.isPresent()) {
 			this.productRepository.deleteById(id);
+			this.stockLedgerService.record(id, -productoEncontrado.get().getQuantity(), StockMovementReasonEnum.DELETE);
+			this.publishChanged(List.of(id));
 		}else {
 			throw new EntityNotFoundException(ENTITY_NAME, "id", String.valueOf(id));
 		}
@@ -192,10 +595,110 @@ public class ProductoServiceImpl implements IProductoService{
 			product.setPicture(urlPicture);
 			product.setModificationDate(new Date());
 			this.productRepository.save(product);
+			this.publishChanged(List.of(id));
 		}else {
 			throw new EntityNotFoundException(ENTITY_NAME, "id", String.valueOf(id));
 		}
 		
 	}
 
+	/**Método para actualizar existencias y precios por código en una sola transacción.
+	 * Los códigos que no existen, repetidos o con valores no válidos se rechazan
+	 * y el resto se actualiza con UPDATEs por lotes sobre el indice code_UNIQUE.
+	 * Igual que update, el llamador guarda antes el buffer de existencias fuera de esta transacción
+	 *@param cambios
+	 *@return ImportResultDTO
+	 */
+	@Override
+	@Transactional
+	public ImportResultDTO sync(List<ProductSyncDTO> cambios) {
+		ImportResultDTO result = new ImportResultDTO();
+		result.setTotal(cambios.size());
+		
+		Set<String> codes = new HashSet<>();
+		for(ProductSyncDTO cambio : cambios) {
+			if(cambio.getCode() != null && !cambio.getCode().isBlank()) {
+				codes.add(cambio.getCode().trim());
+			}
+		}
+		Map<String, Long> existentes = codes.isEmpty() ? Collections.emptyMap() : 
+			this.productBatchRepository.findExistingKeys(codes, Collections.emptyList());
+		
+		Set<String> vistos = new HashSet<>();
+		List<ProductSyncDTO> validos = new ArrayList<>();
+		List<Long> ids = new ArrayList<>();
+		for(int i = 0; i < cambios.size(); i++) {
+			ProductSyncDTO cambio = cambios.get(i);
+			String error = null;
+			if(cambio.getCode() == null || cambio.getCode().isBlank() ||
+					(cambio.getQuantity() == null && cambio.getUnitPrice() == null)) {
+				error = "Parametros vacios";
+			} else if((cambio.getQuantity() != null && cambio.getQuantity() < 0) ||
+					(cambio.getUnitPrice() != null && cambio.getUnitPrice() < 0)) {
+				error = "quantity y unitPrice no pueden ser negativos";
+			} else {
+				String codeKey = ProductBatchRepository.codeKey(cambio.getCode());
+				if(!existentes.containsKey(codeKey)) {
+					error = new EntityNotFoundException(ENTITY_NAME, "code", cambio.getCode()).getMessage();
+				} else if(!vistos.add(codeKey)) {
+					error = "Código repetido en la petición";
+				}
+			}
+			
+			if(error == null) {
+				cambio.setCode(cambio.getCode().trim());
+				validos.add(cambio);
+				ids.add(existentes.get(ProductBatchRepository.codeKey(cambio.getCode())));
+			} else {
+				result.setRejected(result.getRejected() + 1);
+				if(result.getErrors().size() < maxErrors) {
+					result.getErrors().add(new ImportErrorDTO(i + 1, cambio.getCode(), error));
+				}
+			}
+		}
+		
+		if(!validos.isEmpty()) {
+			Date modificationDate = new Date();
+			//el historial lee la cantidad anterior, antes del UPDATE
+			this.stockLedgerService.recordSync(validos, modificationDate);
+			this.productBatchRepository.updateByCode(validos, modificationDate, batchSize);
+			//solo los productos de la petición, con los ids que regresó la validación por code_UNIQUE
+			this.publishValuesChanged(ids);
+		}
+		result.setApplied(validos.size());
+		return result;
+	}
+
+	/**Método para sumar o restar existencias con un solo UPDATE condicional,
+	 * sin cargar el producto ni mantener bloqueos entre viajes a la base
+	 *@param id
+	 *@param delta
+	 *@return StockDTO con la nueva cantidad
+	 *@exception EntityNotFoundException, InsufficientStockException
+	 */
+	@Override
+	@Transactional
+	public StockDTO adjustStock(long id, int delta) throws EntityNotFoundException, InsufficientStockException {
+		Integer quantity = this.productBatchRepository.adjustStock(id, delta, new Date());
+		if(quantity != null) {
+			this.stockLedgerService.record(id, delta, StockMovementReasonEnum.ADJUSTMENT);
+			this.publishValuesChanged(List.of(id));
+			return new StockDTO(id, quantity);
+		}
+		if(!this.productBatchRepository.exists(id)) {
+			throw new EntityNotFoundException(ENTITY_NAME, "id", String.valueOf(id));
+		}
+		throw new InsufficientStockException(id, delta);
+	}
+
+	/**Método para registrar un movimiento de existencias en el buffer (write-behind).
+	 * Se guarda en la base en el siguiente lote; no valida que la cantidad alcance
+	 *@param id
+	 *@param delta
+	 */
+	@Override
+	public void appendStockMovement(long id, int delta) {
+		this.stockBufferService.append(id, delta);
+	}
+
 }
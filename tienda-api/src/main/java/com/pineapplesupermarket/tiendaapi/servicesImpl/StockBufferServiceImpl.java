@@ -0,0 +1,470 @@
+package com.pineapplesupermarket.tiendaapi.servicesImpl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pineapplesupermarket.tiendaapi.dto.StockMovementDTO;
+import com.pineapplesupermarket.tiendaapi.enums.StockMovementReasonEnum;
+import com.pineapplesupermarket.tiendaapi.events.ProductoChangedEvent;
+import com.pineapplesupermarket.tiendaapi.repositories.ProductBatchRepository;
+import com.pineapplesupermarket.tiendaapi.repositories.StockJournalRepository;
+import com.pineapplesupermarket.tiendaapi.services.IStockBufferService;
+import com.pineapplesupermarket.tiendaapi.services.IStockLedgerService;
+/**
+ *Implementación del buffer de movimientos de existencias (write-behind).
+ *Cada movimiento se escribe en un journal local y se acumula por producto en un LongAdder;
+ *un hilo aplica los movimientos, en el orden en que llegaron, con UPDATEs por lotes cada stockFlushMs o cada
+ *stockFlushEvents movimientos. Cada movimiento se valida por separado: uno que dejaría la cantidad negativa
+ *se descarta sin afectar a los demás del mismo producto.
+ *Con stockJournalSync cada movimiento se fuerza a disco (fsync) antes de regresar, agrupando en un solo force
+ *los movimientos que llegan al mismo tiempo; sin él solo se conserva si cae el proceso, no el sistema operativo.
+ *Cada lote guarda en ps_stock_journal, en su misma transacción, el último segmento que aplicó: al iniciar se
+ *reaplican solo los segmentos posteriores, así un movimiento se aplica una sola vez aunque el proceso caiga
+ *entre el commit y el borrado del segmento.
+ *Cada línea del journal guarda también la fecha y el usuario, para escribir el movimiento en el historial
+ *en la misma transacción que el lote.
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+@Service
+public class StockBufferServiceImpl implements IStockBufferService {
+
+	private static final Logger logger = LoggerFactory.getLogger(StockBufferServiceImpl.class);
+
+	private static final String SEGMENT_PREFIX = "stock-";
+
+	private static final String SEGMENT_SUFFIX = ".journal";
+
+	private static final String JOURNAL_ID_FILE = "journal.id";
+
+	@Autowired
+	private ProductBatchRepository productBatchRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private IStockLedgerService stockLedgerService;
+
+	@Autowired
+	private StockJournalRepository stockJournalRepository;
+
+	@Value("${pineapple.app.stockJournalDir:stock-journal}")
+	private String journalDir;
+
+	@Value("${pineapple.app.stockFlushMs:50}")
+	private long flushMs;
+
+	@Value("${pineapple.app.stockFlushEvents:500}")
+	private int flushEvents;
+
+	@Value("${pineapple.app.stockJournalSync:true}")
+	private boolean journalSync;
+
+	/** Movimientos pendientes por producto */
+	private final Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+	/** Movimientos pendientes uno por uno, para el historial */
+	private final Queue<StockMovementDTO> movimientos = new ConcurrentLinkedQueue<>();
+
+	/** Movimientos que se están guardando, siguen visibles para las lecturas */
+	private volatile Map<Long, Long> inFlight = Map.of();
+
+	/** Los movimientos toman el candado de lectura; la rotación del journal toma el de escritura */
+	private final ReadWriteLock rotationLock = new ReentrantReadWriteLock();
+
+	private final AtomicInteger events = new AtomicInteger();
+
+	private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+	/** Líneas escritas en el journal y las que ya se forzaron a disco, para agrupar los force */
+	private final AtomicLong written = new AtomicLong();
+
+	private long forced;
+
+	private final Object forceLock = new Object();
+
+	private ScheduledExecutorService flushExecutor;
+
+	private TransactionTemplate transactionTemplate;
+
+	private Path directory;
+
+	/** Identificador de este journal en ps_stock_journal, se guarda en el mismo directorio */
+	private String journalId;
+
+	private long segment;
+
+	private FileChannel journal;
+
+	/** Método para recuperar el journal y arrancar el hilo que guarda los movimientos
+	 *@exception IOException
+	 */
+	@PostConstruct
+	public void init() throws IOException {
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		//el lote se confirma aunque flush se llame dentro de otra transacción que después se revierta
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.directory = Files.createDirectories(Paths.get(journalDir));
+		this.journalId = this.readJournalId();
+
+		long aplicado = this.stockJournalRepository.findLastSegment(this.journalId);
+		int recuperados = 0;
+		for(Path path : this.listSegments()) {
+			long number = segmentNumber(path);
+			this.segment = Math.max(this.segment, number);
+			if(number <= aplicado) {
+				//el lote se confirmó pero el proceso cayó antes de borrar el segmento
+				Files.delete(path);
+			} else {
+				//se conservan hasta que el siguiente lote los aplique
+				this.replay(path);
+				recuperados++;
+			}
+		}
+		this.segment = Math.max(this.segment, aplicado);
+		this.openSegment(this.segment + 1);
+		if(recuperados > 0) {
+			logger.info("Recovered " + this.movimientos.size() + " stock movements from " + recuperados + " journal segments");
+		}
+
+		this.flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "stock-flush");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.flushExecutor.scheduleWithFixedDelay(this::flushQuietly, flushMs, flushMs, TimeUnit.MILLISECONDS);
+	}
+
+	/** Método para registrar un movimiento, regresa en cuanto queda escrito en el journal (y en disco con stockJournalSync)
+	 *@param idProduct
+	 *@param delta
+	 */
+	@Override
+	public void append(long idProduct, int delta) {
+		StockMovementDTO movimiento = StockMovementDTO.of(idProduct, delta, StockMovementReasonEnum.BUFFERED,
+				this.stockLedgerService.getCurrentUsername(), new Date());
+		this.rotationLock.readLock().lock();
+		try {
+			this.writeJournal(movimiento);
+			if(journalSync) {
+				this.force(this.written.get());
+			}
+			this.pending.computeIfAbsent(idProduct, id -> new LongAdder()).add(delta);
+			this.movimientos.add(movimiento);
+		} finally {
+			this.rotationLock.readLock().unlock();
+		}
+		if(this.events.incrementAndGet() >= flushEvents && this.flushRequested.compareAndSet(false, true)) {
+			this.flushExecutor.execute(this::flushQuietly);
+		}
+	}
+
+	/** Método para obtener los movimientos de un producto que aún no están en la base
+	 *@param idProduct
+	 *@return long
+	 */
+	@Override
+	public long getPendingDelta(long idProduct) {
+		LongAdder delta = this.pending.get(idProduct);
+		Long guardando = this.inFlight.get(idProduct);
+		return (delta == null ? 0 : delta.sum()) + (guardando == null ? 0 : guardando);
+	}
+
+	/** Método para guardar en la base los movimientos pendientes.
+	 *Se llama también antes de asignar una cantidad absoluta, para no sumarle movimientos anteriores.
+	 *Usa su propia transacción y conexión: llamarlo dentro de otra transacción retiene una conexión del pool
+	 *mientras espera la segunda y el candado de este método
+	 */
+	@Override
+	public synchronized void flush() {
+		this.flushRequested.set(false);
+		Map<Long, Long> deltas = new HashMap<>();
+		List<StockMovementDTO> registrados = new ArrayList<>();
+		List<Path> anteriores;
+		long cerrado;
+		this.rotationLock.writeLock().lock();
+		try {
+			this.events.set(0);
+			for(Map.Entry<Long, LongAdder> entry : this.pending.entrySet()) {
+				long delta = entry.getValue().sumThenReset();
+				if(delta != 0) {
+					deltas.put(entry.getKey(), delta);
+				}
+			}
+			StockMovementDTO movimiento;
+			while((movimiento = this.movimientos.poll()) != null) {
+				registrados.add(movimiento);
+			}
+			if(registrados.isEmpty()) {
+				return;
+			}
+			//el segmento nuevo se abre antes de cerrar el actual: si falla, se sigue escribiendo en el actual
+			FileChannel anterior = this.journal;
+			cerrado = this.segment;
+			this.openSegment(cerrado + 1);
+			try {
+				anterior.close();
+			} catch(IOException e) {
+				//las líneas ya se escribieron (y se forzaron con stockJournalSync), el segmento se aplica igual
+				logger.warn("Cannot close journal segment {}: {}", cerrado, e.getMessage());
+			}
+			//todos los segmentos anteriores al nuevo, incluido el que se acaba de cerrar
+			anteriores = this.listSegments();
+			//solo con la rotación completa: si falla, los movimientos regresan a pendientes y no se cuentan dos veces
+			this.inFlight = deltas;
+		} catch(IOException e) {
+			this.restore(deltas, registrados);
+			throw new UncheckedIOException(e);
+		} finally {
+			this.rotationLock.writeLock().unlock();
+		}
+
+		//un UPDATE por movimiento y en orden: la validación de no negativos es la de cada movimiento, no la del neto
+		List<long[]> batch = new ArrayList<>(registrados.size());
+		Set<Long> ids = new HashSet<>();
+		for(StockMovementDTO registrado : registrados) {
+			batch.add(new long[] {registrado.getIdProduct(), registrado.getDelta()});
+			ids.add(registrado.getIdProduct());
+		}
+		try {
+			this.transactionTemplate.executeWithoutResult(status -> {
+				//los productos en cache se invalidan después del commit, antes de dejar de sumar inFlight
+				this.eventPublisher.publishEvent(new ProductoChangedEvent(ids, true));
+				Date fecha = new Date();
+				int[] updated = this.productBatchRepository.addStock(batch, fecha);
+				//en la misma transacción: si se confirma, estos segmentos no se vuelven a aplicar al iniciar
+				this.stockJournalRepository.saveLastSegment(this.journalId, cerrado, fecha);
+				List<StockMovementDTO> aplicados = new ArrayList<>(registrados.size());
+				for(int i = 0; i < updated.length; i++) {
+					if(updated[i] == 0) {
+						logger.warn("Stock movement not applied, product " + batch.get(i)[0]
+								+ " does not exist or would be negative: " + batch.get(i)[1]);
+					} else {
+						aplicados.add(registrados.get(i));
+					}
+				}
+				this.stockLedgerService.recordAll(aplicados);
+			});
+		} catch(RuntimeException e) {
+			//se regresan a pendientes; los segmentos anteriores se conservan hasta que se guarden
+			this.restore(deltas, registrados);
+			this.inFlight = Map.of();
+			throw e;
+		}
+		this.inFlight = Map.of();
+		for(Path path : anteriores) {
+			try {
+				Files.delete(path);
+			} catch(IOException e) {
+				logger.warn("Cannot delete {}: {}", path, e.getMessage());
+			}
+		}
+	}
+
+	/** Método del hilo de guardado, los errores se registran y se reintenta en el siguiente ciclo
+	 */
+	private void flushQuietly() {
+		try {
+			this.flush();
+		} catch(RuntimeException e) {
+			logger.error("Cannot flush stock movements: {}", e.getMessage());
+		}
+	}
+
+	/** Método para regresar movimientos a pendientes
+	 *@param deltas
+	 *@param registrados
+	 */
+	private void restore(Map<Long, Long> deltas, List<StockMovementDTO> registrados) {
+		//los movimientos que llegaron mientras tanto van después de los que se regresan, se conserva el orden
+		this.rotationLock.writeLock().lock();
+		try {
+			deltas.forEach((id, delta) -> this.pending.computeIfAbsent(id, key -> new LongAdder()).add(delta));
+			List<StockMovementDTO> nuevos = new ArrayList<>(this.movimientos);
+			this.movimientos.clear();
+			this.movimientos.addAll(registrados);
+			this.movimientos.addAll(nuevos);
+		} finally {
+			this.rotationLock.writeLock().unlock();
+		}
+	}
+
+	/** Método para escribir un movimiento en el segmento actual del journal: id,delta,fecha,usuario
+	 *@param movimiento
+	 */
+	private void writeJournal(StockMovementDTO movimiento) {
+		String username = movimiento.getUsername() == null ? "" : movimiento.getUsername();
+		ByteBuffer line = StandardCharsets.UTF_8.encode(movimiento.getIdProduct() + "," + movimiento.getDelta() + ","
+				+ movimiento.getMovementDate().getTime() + "," + username + "\n");
+		try {
+			while(line.hasRemaining()) {
+				this.journal.write(line);
+			}
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.written.incrementAndGet();
+	}
+
+	/** Método para forzar a disco el journal hasta una línea (group commit): el primer hilo que entra fuerza
+	 *todas las líneas escritas hasta ese momento y los que esperaban ya no necesitan otro force.
+	 *Se llama con el candado de lectura, la rotación no cierra el segmento mientras tanto
+	 *@param linea número de línea que debe quedar en disco
+	 */
+	private void force(long linea) {
+		synchronized(this.forceLock) {
+			if(this.forced >= linea) {
+				return;
+			}
+			long hasta = this.written.get();
+			try {
+				this.journal.force(false);
+			} catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			this.forced = hasta;
+		}
+	}
+
+	/** Método para leer el identificador del journal, se crea la primera vez
+	 *@return String
+	 *@exception IOException
+	 */
+	private String readJournalId() throws IOException {
+		Path file = this.directory.resolve(JOURNAL_ID_FILE);
+		if(Files.exists(file)) {
+			return Files.readString(file, StandardCharsets.US_ASCII).trim();
+		}
+		String id = UUID.randomUUID().toString();
+		Files.writeString(file, id, StandardCharsets.US_ASCII);
+		return id;
+	}
+
+	/** Método para sumar a pendientes los movimientos de un segmento
+	 *@param path
+	 *@exception IOException
+	 */
+	private void replay(Path path) throws IOException {
+		//las líneas anteriores al historial solo traen id,delta
+		Date fechaSegmento = new Date(Files.getLastModifiedTime(path).toMillis());
+		String contenido = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+		//una línea sin salto al final es un movimiento que no terminó de escribirse, no se confirmó
+		contenido = contenido.substring(0, contenido.lastIndexOf('\n') + 1);
+		try(BufferedReader reader = new BufferedReader(new StringReader(contenido))) {
+			String line;
+			while((line = reader.readLine()) != null) {
+				String[] campos = line.split(",", 4);
+				if(campos.length != 2 && campos.length != 4) {
+					logger.warn("Ignoring journal line in {}: {}", path, line);
+					continue;
+				}
+				try {
+					long id = Long.parseLong(campos[0]);
+					int delta = Integer.parseInt(campos[1]);
+					Date fecha = campos.length == 4 ? new Date(Long.parseLong(campos[2])) : fechaSegmento;
+					String username = campos.length == 4 && !campos[3].isEmpty() ? campos[3] : null;
+					this.pending.computeIfAbsent(id, key -> new LongAdder()).add(delta);
+					this.movimientos.add(StockMovementDTO.of(id, delta, StockMovementReasonEnum.BUFFERED, username, fecha));
+				} catch(NumberFormatException e) {
+					logger.warn("Ignoring journal line in {}: {}", path, line);
+				}
+			}
+		}
+	}
+
+	/** Método para abrir un segmento nuevo del journal; si no se puede abrir se conserva el actual
+	 *@param number
+	 *@exception IOException
+	 */
+	private void openSegment(long number) throws IOException {
+		FileChannel channel = FileChannel.open(this.directory.resolve(SEGMENT_PREFIX + number + SEGMENT_SUFFIX),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		this.segment = number;
+		this.journal = channel;
+	}
+
+	/** Método para listar los segmentos del journal que no son el actual, en orden
+	 *@return List<Path>
+	 *@exception IOException
+	 */
+	private List<Path> listSegments() throws IOException {
+		List<Path> segments = new ArrayList<>();
+		try(DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+			for(Path path : stream) {
+				if(this.journal == null || segmentNumber(path) < this.segment) {
+					segments.add(path);
+				}
+			}
+		}
+		//los movimientos se aplican uno por uno, en el orden en que llegaron
+		segments.sort(Comparator.comparingLong(StockBufferServiceImpl::segmentNumber));
+		return segments;
+	}
+
+	private static long segmentNumber(Path path) {
+		String name = path.getFileName().toString();
+		return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+	}
+
+	/** Método para guardar lo pendiente al detener la aplicación
+	 *@exception IOException
+	 */
+	@PreDestroy
+	public void shutdown() throws IOException {
+		this.flushExecutor.shutdown();
+		try {
+			this.flush();
+		} finally {
+			this.journal.close();
+		}
+	}
+
+}
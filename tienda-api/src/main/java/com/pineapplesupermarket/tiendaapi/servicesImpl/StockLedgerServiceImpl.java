@@ -0,0 +1,266 @@
+package com.pineapplesupermarket.tiendaapi.servicesImpl;
+
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pineapplesupermarket.tiendaapi.dto.CursorPageDTO;
+import com.pineapplesupermarket.tiendaapi.dto.ProductSyncDTO;
+import com.pineapplesupermarket.tiendaapi.dto.StockMovementDTO;
+import com.pineapplesupermarket.tiendaapi.enums.StockMovementReasonEnum;
+import com.pineapplesupermarket.tiendaapi.repositories.StockMovementRepository;
+import com.pineapplesupermarket.tiendaapi.services.IStockLedgerService;
+import com.pineapplesupermarket.tiendaapi.util.CursorUtils;
+/**
+ *Implementación del historial de movimientos de existencias.
+ *Los movimientos de una transacción se juntan y se insertan en un solo lote justo antes del commit,
+ *así el historial se confirma o se revierte junto con el cambio de cantidad.
+ *La tabla está particionada por mes y las consultas siempre llevan rango de fechas (por omisión el mes actual
+ *y el anterior), así solo se leen esas particiones.
+ *Con stockMovementPartitionMaintenance (requiere privilegio ALTER) cada stockMovementPartitionCheckMs se crean
+ *las particiones de los siguientes stockMovementPartitionsAhead meses y, si stockMovementRetentionMonths es mayor
+ *a 0, se eliminan las de los meses vencidos con DROP PARTITION; una sola instancia a la vez, con GET_LOCK.
+ *Sin él las particiones se mantienen con la migración de creator_prod.sql
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+@Service
+public class StockLedgerServiceImpl implements IStockLedgerService {
+
+	private static final Logger logger = LoggerFactory.getLogger(StockLedgerServiceImpl.class);
+
+	@Autowired
+	private StockMovementRepository stockMovementRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Value("${pineapple.app.stockMovementBatchSize:1000}")
+	private int batchSize;
+
+	@Value("${pineapple.app.stockMovementPartitionMaintenance:false}")
+	private boolean partitionMaintenance;
+
+	@Value("${pineapple.app.stockMovementPartitionsAhead:3}")
+	private int partitionsAhead;
+
+	@Value("${pineapple.app.stockMovementRetentionMonths:0}")
+	private int retentionMonths;
+
+	private TransactionTemplate transactionTemplate;
+
+	/** Método para crear la transacción del mantenimiento de particiones
+	 */
+	@PostConstruct
+	public void init() {
+		//GET_LOCK es de la conexión: el candado, los cambios y RELEASE_LOCK deben usar la misma
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	/** Método para registrar un movimiento; dentro de una transacción se guarda con el lote de su commit
+	 *@param idProduct
+	 *@param delta
+	 *@param reason
+	 */
+	@Override
+	public void record(long idProduct, int delta, StockMovementReasonEnum reason) {
+		if(delta == 0) {
+			return;
+		}
+		StockMovementDTO movimiento = StockMovementDTO.of(idProduct, delta, reason, this.getCurrentUsername(), new Date());
+		if(!TransactionSynchronizationManager.isActualTransactionActive()
+				|| !TransactionSynchronizationManager.isSynchronizationActive()) {
+			this.stockMovementRepository.insert(List.of(movimiento), batchSize);
+			return;
+		}
+		this.currentLote().movimientos.add(movimiento);
+	}
+
+	/** Método para guardar movimientos ya armados en un lote, en la transacción actual
+	 *@param movimientos
+	 */
+	@Override
+	public void recordAll(List<StockMovementDTO> movimientos) {
+		if(!movimientos.isEmpty()) {
+			this.stockMovementRepository.insert(movimientos, batchSize);
+		}
+	}
+
+	/** Método para registrar los cambios de cantidad de una sincronización por código;
+	 * debe llamarse antes de aplicar los cambios, en la misma transacción
+	 *@param cambios
+	 *@param movementDate
+	 */
+	@Override
+	public void recordSync(List<ProductSyncDTO> cambios, Date movementDate) {
+		this.stockMovementRepository.insertFromSync(cambios, this.getCurrentUsername(), movementDate, batchSize);
+	}
+
+	/** Método para registrar la cantidad inicial de productos importados, en la transacción del INSERT
+	 *@param codes
+	 *@param username
+	 *@param movementDate
+	 */
+	@Override
+	public void recordImport(Collection<String> codes, String username, Date movementDate) {
+		if(!codes.isEmpty()) {
+			this.stockMovementRepository.insertFromImport(codes, username, movementDate);
+		}
+	}
+
+	/** Método para obtener el usuario autenticado del hilo actual
+	 *@return String null si no hay usuario (tareas en segundo plano)
+	 */
+	@Override
+	public String getCurrentUsername() {
+		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		return authentication == null ? null : authentication.getName();
+	}
+
+	/** Método para listar movimientos por cursor, del más reciente al más antiguo
+	 *@param idProduct null para todos los productos
+	 *@param cursor
+	 *@param size
+	 *@param from inicio del rango (inclusivo), null para el inicio del mes anterior a to (o al actual);
+	 * solo se leen las particiones de los meses del rango
+	 *@param to fin del rango (exclusivo), null sin límite
+	 *@return CursorPageDTO<StockMovementDTO>
+	 *@exception IllegalArgumentException si el cursor o el tamaño no son válidos
+	 */
+	@Override
+	@Transactional(readOnly=true)
+	public CursorPageDTO<StockMovementDTO> getMovements(Long idProduct, String cursor, int size, Date from, Date to) {
+		Long beforeId = CursorUtils.decode(cursor);
+		if(size < 1) {
+			throw new IllegalArgumentException("Page size must not be less than one");
+		}
+		Date desde = from != null ? from : defaultFrom(to);
+
+		//se pide un registro extra para saber si existe una página siguiente
+		List<StockMovementDTO> movimientos = this.stockMovementRepository.findPage(idProduct, beforeId, desde, to, size + 1);
+
+		boolean hasNext = movimientos.size() > size;
+		String nextCursor = null;
+		if(hasNext) {
+			movimientos = movimientos.subList(0, size);
+			nextCursor = CursorUtils.encode(movimientos.get(size - 1).getIdStockMovement());
+		}
+		return new CursorPageDTO<>(movimientos, size, nextCursor, hasNext);
+	}
+
+	/** Método para crear las particiones de los meses siguientes y eliminar las vencidas, solo con
+	 * stockMovementPartitionMaintenance. Si otra instancia lo está haciendo no espera.
+	 * Los errores se registran y se reintenta en el siguiente ciclo
+	 */
+	@Override
+	@Scheduled(initialDelay = 0, fixedDelayString = "${pineapple.app.stockMovementPartitionCheckMs:86400000}")
+	public void maintainPartitions() {
+		if(!partitionMaintenance) {
+			return;
+		}
+		try {
+			this.transactionTemplate.executeWithoutResult(status -> {
+				if(!this.stockMovementRepository.tryPartitionLock()) {
+					logger.debug("Stock movement partitions are being maintained by another instance");
+					return;
+				}
+				try {
+					this.updatePartitions();
+				} finally {
+					this.stockMovementRepository.releasePartitionLock();
+				}
+			});
+		} catch(DataAccessException e) {
+			logger.error("Cannot maintain stock movement partitions: {}", e.getMostSpecificCause().getMessage());
+		}
+	}
+
+	/** Método para crear y eliminar particiones, con el candado tomado
+	 */
+	private void updatePartitions() {
+		List<YearMonth> existentes = this.stockMovementRepository.findPartitions();
+		YearMonth actual = YearMonth.now();
+		YearMonth ultimo = existentes.isEmpty() ? null : Collections.max(existentes);
+
+		List<YearMonth> nuevos = new ArrayList<>();
+		YearMonth mes = ultimo == null ? actual : ultimo.plusMonths(1);
+		for(; !mes.isAfter(actual.plusMonths(partitionsAhead)); mes = mes.plusMonths(1)) {
+			nuevos.add(mes);
+		}
+		if(!nuevos.isEmpty()) {
+			this.stockMovementRepository.addPartitions(nuevos);
+			logger.info("Created stock movement partitions from {} to {}", nuevos.get(0), nuevos.get(nuevos.size() - 1));
+		}
+
+		if(retentionMonths > 0) {
+			YearMonth limite = actual.minusMonths(retentionMonths);
+			List<YearMonth> vencidos = existentes.stream()
+					.filter(existente -> existente.isBefore(limite))
+					.collect(Collectors.toList());
+			if(!vencidos.isEmpty()) {
+				this.stockMovementRepository.dropPartitions(vencidos);
+				logger.info("Dropped stock movement partitions: {}", vencidos);
+			}
+		}
+	}
+
+	/** Método para obtener el inicio del rango cuando no se indica: el primer día del mes anterior
+	 *@param to fin del rango, null para ahora
+	 *@return Date
+	 */
+	private static Date defaultFrom(Date to) {
+		ZoneId zona = ZoneId.systemDefault();
+		YearMonth mes = to == null ? YearMonth.now(zona) : YearMonth.from(to.toInstant().atZone(zona));
+		return Date.from(mes.minusMonths(1).atDay(1).atStartOfDay(zona).toInstant());
+	}
+
+	/** Método para obtener el lote de la transacción actual, se registra con el primer movimiento
+	 *@return Lote
+	 */
+	private Lote currentLote() {
+		//las sincronizaciones se suspenden con REQUIRES_NEW, cada transacción tiene su propio lote
+		for(TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+			if(synchronization instanceof Lote) {
+				return (Lote) synchronization;
+			}
+		}
+		Lote lote = new Lote();
+		TransactionSynchronizationManager.registerSynchronization(lote);
+		return lote;
+	}
+
+	/**
+	 *Movimientos de una transacción, se insertan antes del commit
+	 */
+	private final class Lote implements TransactionSynchronization {
+
+		private final List<StockMovementDTO> movimientos = new ArrayList<>();
+
+		@Override
+		public void beforeCommit(boolean readOnly) {
+			stockMovementRepository.insert(this.movimientos, batchSize);
+		}
+	}
+}
@@ -1,13 +1,21 @@
 package com.pineapplesupermarket.tiendaapi.servicesImpl;
 
 
+import javax.annotation.PostConstruct;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import com.pineapplesupermarket.tiendaapi.CacheConfiguration;
+import com.pineapplesupermarket.tiendaapi.events.UsuarioChangedEvent;
 import com.pineapplesupermarket.tiendaapi.models.User;
 import com.pineapplesupermarket.tiendaapi.repositories.UserRepository;
 import com.pineapplesupermarket.tiendaapi.security.UserPrincipal;
@@ -21,14 +29,29 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Cache principalCache;
+
+    /** Método para obtener el cache de sesiones
+     */
+    @PostConstruct
+    public void init() {
+        this.principalCache = this.cacheManager.getCache(CacheConfiguration.PRINCIPALS);
+    }
+
     /**
-     * Método para crear el usuario de la sesión
+     * Método para crear el usuario de la sesión.
+     * El resultado se guarda en cache por username; UserServiceImpl lo invalida al modificar un usuario.
+     * Con sync la carga es atómica: una invalidación del mismo username espera a que termine y la borra
      *@param username
      *@return UserDetails
      *@exception UsernameNotFoundException
      */
     @Override
     @Transactional
+    @Cacheable(value = CacheConfiguration.PRINCIPALS, sync = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + username));
@@ -36,4 +59,13 @@ public class UserDetailsServiceImpl implements UserDetailsService {
         return UserPrincipal.build(user);
     }
 
+    /**
+     * Método que saca del cache las sesiones de los usuarios que cambiaron, después del commit
+     *@param event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUsuarioChanged(UsuarioChangedEvent event) {
+        event.getUsernames().forEach(this.principalCache::evict);
+    }
+
 }
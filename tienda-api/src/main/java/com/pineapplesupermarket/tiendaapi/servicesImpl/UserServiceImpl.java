@@ -1,10 +1,13 @@
 package com.pineapplesupermarket.tiendaapi.servicesImpl;
 
 import java.security.Principal;
+import java.util.Collection;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -13,14 +16,15 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import com.pineapplesupermarket.tiendaapi.cache.ReferenceDataCache;
 import com.pineapplesupermarket.tiendaapi.dto.ResponseDTO;
 import com.pineapplesupermarket.tiendaapi.enums.ResponseCodeEnum;
+import com.pineapplesupermarket.tiendaapi.events.UsuarioChangedEvent;
 import com.pineapplesupermarket.tiendaapi.exception.DuplicateEntryException;
 import com.pineapplesupermarket.tiendaapi.exception.EntityNotFoundException;
 import com.pineapplesupermarket.tiendaapi.models.RestoreCode;
 import com.pineapplesupermarket.tiendaapi.models.Role;
 import com.pineapplesupermarket.tiendaapi.models.User;
-import com.pineapplesupermarket.tiendaapi.repositories.RoleRepository;
 import com.pineapplesupermarket.tiendaapi.repositories.UserRepository;
 import com.pineapplesupermarket.tiendaapi.security.UserPrincipal;
 import com.pineapplesupermarket.tiendaapi.services.IEmailService;
@@ -43,7 +47,7 @@ public class UserServiceImpl implements IUserService {
 	private UserRepository userRepository;
 	
 	@Autowired
-	private RoleRepository roleRepository;
+	private ReferenceDataCache referenceDataCache;
 	
 	@Autowired
 	private IRestoreCodeService restoreCodeService;
@@ -54,6 +58,9 @@ public class UserServiceImpl implements IUserService {
 	@Autowired
 	private IEmailService emailService;
 	
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+	
 	/** Método para encontrar los usuarios
 	 *@param pageable
 	 *@return Page<User>
@@ -77,7 +84,7 @@ public class UserServiceImpl implements IUserService {
 		User usuarioEmailExistente = this.userRepository.findByEmail(user.getEmail()).orElse(null);
 
 		if(usuarioNameExistente == null && usuarioEmailExistente == null) {
-			Role role = this.roleRepository.findByCode(user.getRole().getCode()).orElse(null);
+			Role role = this.referenceDataCache.findRoleByCode(user.getRole().getCode()).orElse(null);
 			if(role != null) {
 				user.setActivo(true);
 				user.setRole(role);
@@ -107,12 +114,14 @@ public class UserServiceImpl implements IUserService {
 	@Override
 	public User update(Long id, User user) throws DuplicateEntryException, EntityNotFoundException {
 		User userActual = this.userRepository.findById(id).orElse(null);
-		Role role = this.roleRepository.findByCode(user.getRole().getCode()).orElse(null);
+		Role role = this.referenceDataCache.findRoleByCode(user.getRole().getCode()).orElse(null);
 		if(userActual != null && role != null) {
 			User usuarioNameExistente = this.userRepository.
 					findByUsernameAndIdUserNot(user.getUsername(), id).orElse(null);
 			User usuarioEmailExistente = this.userRepository.
 					findByEmailAndIdUserNot(user.getEmail(), id).orElse(null);
+			//la sesión se invalida con el username anterior y el nuevo, después del commit
+			this.publishChanged(List.of(userActual.getUsername(), user.getUsername()));
 			if(usuarioNameExistente == null) {
 				userActual.setUsername(user.getUsername());
 			}else {
@@ -151,6 +160,7 @@ public class UserServiceImpl implements IUserService {
 		if(usuario != null) {
 			usuario.setActivo(false);
 			userRepository.save(usuario);
+			this.publishChanged(List.of(usuario.getUsername()));
 			logger.info("Deleted user " + usuario.getUsername());
 		}else {
 			throw new EntityNotFoundException(ENTITY_NAME, "id", String.valueOf(id));
@@ -250,9 +260,18 @@ public class UserServiceImpl implements IUserService {
 		String newPasswordEncripted = this.bCryptPasswordEncoder.encode(password);
 		user.setPassword(newPasswordEncripted);
 		this.userRepository.save(user);
+		this.publishChanged(List.of(username));
 		this.restoreCodeService.deleteCode(restoreCode);
 		return new ResponseDTO(ResponseCodeEnum.PROCESADO.getCodigo(),
 				ResponseCodeEnum.PROCESADO.getMensaje());
 	}
 
+	/** Método para avisar que cambiaron usuarios; la sesión en cache se invalida después del commit,
+	 * así un login durante la transacción no vuelve a guardar los datos anteriores
+	 *@param usernames
+	 */
+	private void publishChanged(Collection<String> usernames) {
+		this.eventPublisher.publishEvent(new UsuarioChangedEvent(usernames));
+	}
+
 }
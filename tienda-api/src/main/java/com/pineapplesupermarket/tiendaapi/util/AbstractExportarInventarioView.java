@@ -0,0 +1,75 @@
+package com.pineapplesupermarket.tiendaapi.util;
+
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.servlet.view.AbstractView;
+/**
+ *Vista base para exportar el inventario en formatos de texto.
+ *Cada producto se escribe directo en la respuesta, opcionalmente comprimida con gzip.
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+public abstract class AbstractExportarInventarioView extends AbstractView implements ExportadorInventario {
+	
+	/** Atributo del modelo para comprimir la respuesta con gzip */
+	public static final String GZIP_ATTRIBUTE = "gzip";
+	
+	private static final String GZIP_CONTENT_TYPE = "application/gzip";
+	
+	public AbstractExportarInventarioView(String contentType) {
+		super();
+		setContentType(contentType);
+	}
+	
+	@Override
+	protected boolean generatesDownloadContent() {
+		return true;
+	}
+
+	/**Método para escribir el inventario en la respuesta
+	 *@param model
+	 *@param request
+	 *@param response
+	 */
+	@Override
+	protected void renderMergedOutputModel(Map<String, Object> model, HttpServletRequest request,
+			HttpServletResponse response) throws Exception {
+		boolean gzip = Boolean.TRUE.equals(model.get(GZIP_ATTRIBUTE));
+		
+		StringBuilder filename = new StringBuilder();
+		filename.append("productos_inventario_");
+		filename.append(System.currentTimeMillis());
+		filename.append(".").append(getExtension());
+		if(gzip) {
+			filename.append(".gz");
+		}
+		
+		response.setContentType(gzip ? GZIP_CONTENT_TYPE : getContentType());
+		response.setHeader("Content-Disposition", "attachment; filename=\""+ filename.toString() + "\"");
+		
+		OutputStream out = response.getOutputStream();
+		if(gzip) {
+			GZIPOutputStream gzipOut = new GZIPOutputStream(out, 8192);
+			writeInventario(gzipOut);
+			gzipOut.finish();
+		} else {
+			writeInventario(out);
+		}
+		out.flush();
+	}
+	
+	/**Método para dar formato a las fechas
+	 *@param date
+	 *@return String
+	 */
+	protected static String formatDate(Date date) {
+		return date == null ? null : DATE_FORMAT.format(date.toInstant());
+	}
+	
+}
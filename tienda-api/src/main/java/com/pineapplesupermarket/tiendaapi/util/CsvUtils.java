@@ -0,0 +1,81 @@
+package com.pineapplesupermarket.tiendaapi.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+/**
+ *Clase para escribir y leer valores en formato CSV (RFC 4180)
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+public class CsvUtils {
+	
+	public static final char SEPARATOR = ',';
+
+	/**Método para escapar un valor, se encierra entre comillas
+	 * solo si contiene separadores, comillas o saltos de línea
+	 * @param value
+	 * @return String
+	 */
+	public static String escape(String value) {
+		if(value == null) {
+			return "";
+		}
+		boolean quote = false;
+		for(int i = 0; i < value.length() && !quote; i++) {
+			char c = value.charAt(i);
+			quote = c == SEPARATOR || c == '"' || c == '\n' || c == '\r';
+		}
+		if(!quote) {
+			return value;
+		}
+		return "\"" + value.replace("\"", "\"\"") + "\"";
+	}
+
+	/**Método para leer un registro. Un valor entre comillas puede contener separadores,
+	 * comillas dobles ("") y saltos de línea; se aceptan finales de línea CRLF o LF
+	 * @param reader
+	 * @return List<String> valores del registro, null al final del archivo
+	 * @exception IOException
+	 */
+	public static List<String> readRecord(BufferedReader reader) throws IOException {
+		int c = reader.read();
+		if(c == -1) {
+			return null;
+		}
+		List<String> values = new ArrayList<>();
+		StringBuilder value = new StringBuilder();
+		boolean quoted = false;
+		while(c != -1) {
+			if(quoted) {
+				if(c == '"') {
+					reader.mark(1);
+					int next = reader.read();
+					if(next == '"') {
+						value.append('"');
+					} else {
+						quoted = false;
+						if(next != -1) {
+							reader.reset();
+						}
+					}
+				} else {
+					value.append((char) c);
+				}
+			} else if(c == '"' && value.length() == 0) {
+				quoted = true;
+			} else if(c == SEPARATOR) {
+				values.add(value.toString());
+				value.setLength(0);
+			} else if(c == '\n') {
+				break;
+			} else if(c != '\r') {
+				value.append((char) c);
+			}
+			c = reader.read();
+		}
+		values.add(value.toString());
+		return values;
+	}
+}
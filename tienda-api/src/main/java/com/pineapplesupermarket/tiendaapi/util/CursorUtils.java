@@ -0,0 +1,150 @@
+package com.pineapplesupermarket.tiendaapi.util;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+import org.springframework.data.domain.Sort.Direction;
+
+import com.pineapplesupermarket.tiendaapi.enums.ProductSortEnum;
+/**
+ *Clase para codificar y decodificar los cursores de paginación.
+ *El cursor guarda el valor de la columna de orden y el id del último producto de la página;
+ *con el orden por id ascendente conserva el formato anterior "id:<id>"
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+public class CursorUtils {
+
+	private static final String PREFIX = "id:";
+
+	private static final char SEPARATOR = ':';
+
+	/**Método para generar el cursor opaco a partir del último id de la página
+	 * @param idProduct
+	 * @return String
+	 */
+	public static String encode(long idProduct) {
+		return toBase64(PREFIX + idProduct);
+	}
+
+	/**Método para generar el cursor opaco a partir del último producto de la página
+	 * @param sort
+	 * @param direction
+	 * @param value valor de la columna de orden (Number, Date o null)
+	 * @param idProduct
+	 * @return String
+	 */
+	public static String encode(ProductSortEnum sort, Direction direction, Object value, long idProduct) {
+		if(sort == ProductSortEnum.ID && direction == Direction.ASC) {
+			return encode(idProduct);
+		}
+		String valor;
+		if(value == null) {
+			valor = "";
+		} else if(value instanceof Date) {
+			valor = String.valueOf(((Date) value).getTime());
+		} else if(value instanceof Double) {
+			//el precio es DECIMAL, se compara como decimal exacto y no como double
+			valor = BigDecimal.valueOf((Double) value).toPlainString();
+		} else {
+			valor = value.toString();
+		}
+		return toBase64(sort.name() + "-" + direction.name() + SEPARATOR + valor + SEPARATOR + idProduct);
+	}
+
+	/**Método para obtener el id a partir del cursor
+	 * @param cursor
+	 * @return Long, null si el cursor viene vacío
+	 * @exception IllegalArgumentException si el cursor no es válido
+	 */
+	public static Long decode(String cursor) {
+		Posicion posicion = decode(cursor, ProductSortEnum.ID, Direction.ASC);
+		return posicion == null ? null : posicion.getIdProduct();
+	}
+
+	/**Método para obtener la posición a partir del cursor
+	 * @param cursor
+	 * @param sort orden del listado, debe ser el mismo con el que se generó el cursor
+	 * @param direction
+	 * @return Posicion, null si el cursor viene vacío
+	 * @exception IllegalArgumentException si el cursor no es válido o es de otro orden
+	 */
+	public static Posicion decode(String cursor, ProductSortEnum sort, Direction direction) {
+		if(cursor == null || cursor.isBlank()) {
+			return null;
+		}
+		String value;
+		try {
+			value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+		} catch(IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+		}
+		try {
+			if(value.startsWith(PREFIX)) {
+				if(sort != ProductSortEnum.ID || direction != Direction.ASC) {
+					throw new IllegalArgumentException("Cursor does not match the sort: " + cursor);
+				}
+				return new Posicion(null, Long.parseLong(value.substring(PREFIX.length())));
+			}
+			int first = value.indexOf(SEPARATOR);
+			int last = value.lastIndexOf(SEPARATOR);
+			if(first < 0 || first == last) {
+				throw new IllegalArgumentException("Invalid cursor: " + cursor);
+			}
+			if(!value.substring(0, first).equals(sort.name() + "-" + direction.name())) {
+				throw new IllegalArgumentException("Cursor does not match the sort: " + cursor);
+			}
+			String valor = value.substring(first + 1, last);
+			long idProduct = Long.parseLong(value.substring(last + 1));
+			if(valor.isEmpty()) {
+				//el orden por id no guarda valor, el id ya es la posición
+				if(sort != ProductSortEnum.ID && !sort.isNullable()) {
+					throw new IllegalArgumentException("Invalid cursor: " + cursor);
+				}
+				return new Posicion(null, idProduct);
+			}
+			switch(sort) {
+			case PRICE:
+				return new Posicion(new BigDecimal(valor), idProduct);
+			case QUANTITY:
+				return new Posicion(Integer.valueOf(valor), idProduct);
+			case MODIFICATION_DATE:
+				return new Posicion(new Date(Long.parseLong(valor)), idProduct);
+			default:
+				return new Posicion(null, idProduct);
+			}
+		} catch(NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+		}
+	}
+
+	private static String toBase64(String value) {
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 *Posición de un cursor: valor de la columna de orden (null con el orden por id o si la columna es NULL) e id
+	 */
+	public static final class Posicion {
+
+		private final Object value;
+
+		private final long idProduct;
+
+		private Posicion(Object value, long idProduct) {
+			this.value = value;
+			this.idProduct = idProduct;
+		}
+
+		public Object getValue() {
+			return value;
+		}
+
+		public long getIdProduct() {
+			return idProduct;
+		}
+	}
+}
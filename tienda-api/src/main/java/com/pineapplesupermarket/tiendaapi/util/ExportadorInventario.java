@@ -0,0 +1,46 @@
+package com.pineapplesupermarket.tiendaapi.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.function.LongConsumer;
+/**
+ *Formato en el que se puede exportar el inventario
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+public interface ExportadorInventario {
+	
+	/** Formato de las fechas en todos los formatos de exportación */
+	public static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter
+			.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+	/**Método para obtener el tipo de contenido que genera el formato
+	 * @return String
+	 */
+	public String getContentType();
+	
+	/**Método para obtener la extensión del archivo
+	 * @return String
+	 */
+	public String getExtension();
+	
+	/**Método para escribir el inventario completo en la salida
+	 * @param out
+	 * @return long número de productos escritos
+	 * @throws IOException
+	 */
+	public default long writeInventario(OutputStream out) throws IOException {
+		return writeInventario(out, rows -> {});
+	}
+	
+	/**Método para escribir el inventario completo en la salida informando el avance
+	 * @param out
+	 * @param progress recibe el número de productos escritos hasta el momento
+	 * @return long número de productos escritos
+	 * @throws IOException
+	 */
+	public long writeInventario(OutputStream out, LongConsumer progress) throws IOException;
+	
+}
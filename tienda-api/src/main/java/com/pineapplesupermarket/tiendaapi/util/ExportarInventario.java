@@ -1,9 +1,11 @@
 package com.pineapplesupermarket.tiendaapi.util;
 
-import java.text.SimpleDateFormat;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Calendar;
-import java.util.List;
+import java.util.Date;
 import java.util.Map;
+import java.util.function.LongConsumer;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -12,25 +14,46 @@ import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
-import org.springframework.web.servlet.view.document.AbstractXlsxView;
+import org.springframework.web.servlet.view.document.AbstractXlsxStreamingView;
 
-import com.pineapplesupermarket.tiendaapi.models.Product;
-import com.pineapplesupermarket.tiendaapi.repositories.ProductRepository;
+import com.pineapplesupermarket.tiendaapi.dto.InventarioRowDTO;
+import com.pineapplesupermarket.tiendaapi.repositories.CustomProductosRepository;
 /**
- *Componente para exportar inventario
+ *Componente para exportar inventario.
+ *Los productos se leen con un cursor y los renglones se escriben con SXSSF,
+ *que solo conserva en memoria una ventana de renglones y baja el resto a disco.
  *@author Raquel de la Rosa 
  *@version 1.0
  */
 @Component("/api/v1/producto/exportar")
-public class ExportarInventario extends AbstractXlsxView{
-	
+@Order(1)
+public class ExportarInventario extends AbstractXlsxStreamingView implements ExportadorInventario{
+
 	@Autowired
-	private ProductRepository productRepository;
-	
-	private SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+	private CustomProductosRepository customProductosRepository;
 
+	@Value("${pineapple.app.exportFetchSize:1000}")
+	private int fetchSize;
+
+	@Value("${pineapple.app.exportRowWindow:100}")
+	private int rowWindow;
+
+	/**Método para crear el libro con la ventana de renglones configurada
+	 *@param model
+	 *@param request
+	 *@return SXSSFWorkbook
+	 */
+	@Override
+	protected SXSSFWorkbook createWorkbook(Map<String, Object> model, HttpServletRequest request) {
+		SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow);
+		workbook.setCompressTempFiles(true);
+		return workbook;
+	}
 
 	/**Método para construir el documento en Excel
 	 *@param model
@@ -46,14 +69,44 @@ public class ExportarInventario extends AbstractXlsxView{
 		filename.append("productos_inventario_");
 		filename.append(cal.getTimeInMillis());
 		filename.append(".xlsx");
-		
+
 		response.setHeader("Content-Disposition", "attachment; filename=\""+ filename.toString() + "\"");
+		buildInventario(workbook, rows -> {});
+	}
+	
+	/**Método para escribir el inventario en Excel fuera de una petición
+	 *@param out
+	 *@param progress
+	 *@return long
+	 *@exception IOException
+	 */
+	@Override
+	public long writeInventario(OutputStream out, LongConsumer progress) throws IOException {
+		SXSSFWorkbook workbook = createWorkbook(null, null);
+		try {
+			long rows = buildInventario(workbook, progress);
+			workbook.write(out);
+			return rows;
+		} finally {
+			workbook.close();
+			workbook.dispose();
+		}
+	}
+	
+	@Override
+	public String getExtension() {
+		return "xlsx";
+	}
+
+	/**Método para llenar la hoja del inventario
+	 *@param workbook
+	 *@param progress
+	 *@return long número de productos escritos
+	 */
+	private long buildInventario(Workbook workbook, LongConsumer progress) {
 		Sheet sheet = workbook.createSheet("Inventario de Productos");
-		
-		List<Product> listaProductos =  (List<Product>) productRepository.findAll();
-		
+
 		Row titulos = sheet.createRow(0);
-		Cell cell = titulos.createCell(0);
 
 		titulos.createCell(0).setCellValue("Id Producto");
 		titulos.createCell(1).setCellValue("Clave Categoría");
@@ -65,41 +118,57 @@ public class ExportarInventario extends AbstractXlsxView{
 		titulos.createCell(7).setCellValue("Precio Unitario");
 		titulos.createCell(8).setCellValue("Fecha de creación");
 		titulos.createCell(9).setCellValue("Fecha de modificación");
-		
-		int rownum = 1;
-		
-		for(Product producto: listaProductos) {
-			Row fila = sheet.createRow(rownum ++);
-			cell = fila.createCell(0);
-			cell.setCellValue(producto.getIdProduct());
-			
-			cell = fila.createCell(1);
-			cell.setCellValue(producto.getProductCategory().getCode());
-			
-			cell = fila.createCell(2);
-			cell.setCellValue(producto.getProductCategory().getDescription());
-			
-			cell = fila.createCell(3);
-			cell.setCellValue(producto.getName());
-			
-			cell = fila.createCell(4);
-			cell.setCellValue(producto.getName());
-			
-			cell = fila.createCell(5);
-			cell.setCellValue(producto.getDescription());
-			
-			cell = fila.createCell(6);
-			cell.setCellValue(producto.getQuantity());
-			
-			cell = fila.createCell(7);
-			cell.setCellValue(producto.getUnitPrice());
-			
-			cell = fila.createCell(8);
-			cell.setCellValue(dateFormat.format(producto.getCreationDate()));
-			
-			cell = fila.createCell(9);
-			cell.setCellValue(producto.getModificationDate() == null ? null : dateFormat.format(producto.getModificationDate()));
-		}
+
+		int[] rownum = {1};
+
+		return this.customProductosRepository.scrollInventario(fetchSize, producto -> {
+			writeRow(sheet.createRow(rownum[0]), producto);
+			progress.accept(rownum[0]++);
+		});
+	}
+
+	/**Método para escribir un producto en un renglón
+	 *@param fila
+	 *@param producto
+	 */
+	private void writeRow(Row fila, InventarioRowDTO producto) {
+		Cell cell = fila.createCell(0);
+		cell.setCellValue(producto.getIdProduct());
+
+		cell = fila.createCell(1);
+		cell.setCellValue(producto.getCategoryCode());
+
+		cell = fila.createCell(2);
+		cell.setCellValue(producto.getCategoryDescription());
+
+		cell = fila.createCell(3);
+		cell.setCellValue(producto.getCode());
+
+		cell = fila.createCell(4);
+		cell.setCellValue(producto.getName());
+
+		cell = fila.createCell(5);
+		cell.setCellValue(producto.getDescription());
+
+		cell = fila.createCell(6);
+		cell.setCellValue(producto.getQuantity());
+
+		cell = fila.createCell(7);
+		cell.setCellValue(producto.getUnitPrice());
+
+		cell = fila.createCell(8);
+		cell.setCellValue(formatDate(producto.getCreationDate()));
+
+		cell = fila.createCell(9);
+		cell.setCellValue(formatDate(producto.getModificationDate()));
+	}
+
+	/**Método para dar formato a las fechas
+	 *@param date
+	 *@return String
+	 */
+	private static String formatDate(Date date) {
+		return date == null ? null : DATE_FORMAT.format(date.toInstant());
 	}
 
 }
@@ -0,0 +1,105 @@
+package com.pineapplesupermarket.tiendaapi.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.LongConsumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.pineapplesupermarket.tiendaapi.dto.InventarioRowDTO;
+import com.pineapplesupermarket.tiendaapi.repositories.CustomProductosRepository;
+/**
+ *Componente para exportar inventario en CSV
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+@Component
+@Order(2)
+public class ExportarInventarioCsv extends AbstractExportarInventarioView {
+	
+	public static final String CONTENT_TYPE = "text/csv";
+	
+	private static final String HEADER = "idProduct,categoryCode,categoryDescription,code,name,"
+			+ "description,quantity,unitPrice,creationDate,modificationDate";
+
+	@Autowired
+	private CustomProductosRepository customProductosRepository;
+	
+	@Value("${pineapple.app.exportFetchSize:1000}")
+	private int fetchSize;
+	
+	public ExportarInventarioCsv() {
+		super(CONTENT_TYPE);
+	}
+
+	@Override
+	public String getExtension() {
+		return "csv";
+	}
+
+	/**Método para escribir el inventario en CSV
+	 *@param out
+	 *@param progress
+	 *@return long
+	 *@exception IOException
+	 */
+	@Override
+	public long writeInventario(OutputStream out, LongConsumer progress) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		writer.write(HEADER);
+		writer.write("\r\n");
+		long[] written = {0};
+		long rows;
+		try {
+			rows = this.customProductosRepository.scrollInventario(fetchSize, producto -> {
+				try {
+					writeRow(writer, producto);
+					progress.accept(++written[0]);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch(UncheckedIOException e) {
+			throw e.getCause();
+		}
+		writer.flush();
+		return rows;
+	}
+	
+	/**Método para escribir un producto en un renglón
+	 *@param writer
+	 *@param producto
+	 *@exception IOException
+	 */
+	private void writeRow(Writer writer, InventarioRowDTO producto) throws IOException {
+		writer.write(String.valueOf(producto.getIdProduct()));
+		writer.write(CsvUtils.SEPARATOR);
+		writer.write(CsvUtils.escape(producto.getCategoryCode()));
+		writer.write(CsvUtils.SEPARATOR);
+		writer.write(CsvUtils.escape(producto.getCategoryDescription()));
+		writer.write(CsvUtils.SEPARATOR);
+		writer.write(CsvUtils.escape(producto.getCode()));
+		writer.write(CsvUtils.SEPARATOR);
+		writer.write(CsvUtils.escape(producto.getName()));
+		writer.write(CsvUtils.SEPARATOR);
+		writer.write(CsvUtils.escape(producto.getDescription()));
+		writer.write(CsvUtils.SEPARATOR);
+		writer.write(String.valueOf(producto.getQuantity()));
+		writer.write(CsvUtils.SEPARATOR);
+		writer.write(String.valueOf(producto.getUnitPrice()));
+		writer.write(CsvUtils.SEPARATOR);
+		writer.write(CsvUtils.escape(formatDate(producto.getCreationDate())));
+		writer.write(CsvUtils.SEPARATOR);
+		writer.write(CsvUtils.escape(formatDate(producto.getModificationDate())));
+		writer.write("\r\n");
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.pineapplesupermarket.tiendaapi.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.LongConsumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.pineapplesupermarket.tiendaapi.dto.InventarioRowDTO;
+import com.pineapplesupermarket.tiendaapi.repositories.CustomProductosRepository;
+/**
+ *Componente para exportar inventario en JSON delimitado por saltos de línea (NDJSON)
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+@Component
+@Order(3)
+public class ExportarInventarioNdjson extends AbstractExportarInventarioView {
+	
+	public static final String CONTENT_TYPE = "application/x-ndjson";
+
+	@Autowired
+	private CustomProductosRepository customProductosRepository;
+	
+	@Value("${pineapple.app.exportFetchSize:1000}")
+	private int fetchSize;
+	
+	private final ObjectWriter rowWriter;
+	
+	@Autowired
+	public ExportarInventarioNdjson(ObjectMapper objectMapper) {
+		super(CONTENT_TYPE);
+		this.rowWriter = objectMapper.writerFor(InventarioRowDTO.class)
+				.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+	}
+
+	@Override
+	public String getExtension() {
+		return "ndjson";
+	}
+
+	/**Método para escribir el inventario en NDJSON, un producto por línea
+	 *@param out
+	 *@param progress
+	 *@return long
+	 *@exception IOException
+	 */
+	@Override
+	public long writeInventario(OutputStream out, LongConsumer progress) throws IOException {
+		JsonGenerator generator = this.rowWriter.getFactory().createGenerator(out);
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		//cada renglón termina en salto de línea, no se usa el separador por defecto (espacio)
+		generator.setRootValueSeparator(null);
+		long[] written = {0};
+		long rows;
+		try {
+			rows = this.customProductosRepository.scrollInventario(fetchSize, producto -> {
+				try {
+					this.rowWriter.writeValue(generator, producto);
+					generator.writeRaw('\n');
+					progress.accept(++written[0]);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch(UncheckedIOException e) {
+			throw e.getCause();
+		}
+		generator.close();
+		return rows;
+	}
+
+}
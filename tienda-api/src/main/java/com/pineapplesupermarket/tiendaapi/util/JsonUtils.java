@@ -1,15 +1,28 @@
 package com.pineapplesupermarket.tiendaapi.util;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 /**
- *Clase que se usa para convertir Json a Objetos
+ *Clase que se usa para convertir Json a Objetos.
+ *El ObjectMapper es uno solo para toda la aplicación (es thread-safe después de configurarse)
+ *y se guarda un ObjectReader por tipo, así no se reconstruyen los deserializadores en cada llamada.
  *@author Raquel de la Rosa 
  *@version 1.0
  */
 public class JsonUtils {
-	
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	private static final Map<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+
 	/**Método para convertir de Json a Objetos
 	 * @param <T>
 	 * @param jsonString
@@ -18,10 +31,30 @@ public class JsonUtils {
 	 * @throws JsonMappingException
 	 * @throws JsonProcessingException
 	 */
-	public static <T> T convertFromJsonToObject(String jsonString, Class<T> var) 
+	public static <T> T convertFromJsonToObject(String jsonString, Class<T> var)
 			throws JsonMappingException, JsonProcessingException{
-		ObjectMapper objectMapper = new ObjectMapper();
-		return objectMapper.readValue(jsonString, var);	
+		return readerFor(var).readValue(jsonString);
+	}
+
+	/**Método para leer objetos uno por uno de un stream, sin cargar todo el contenido en memoria.
+	 * Acepta un arreglo Json ([{...}, {...}]) o valores separados por saltos de línea (NDJSON).
+	 * Quien llama debe cerrar el iterador
+	 * @param <T>
+	 * @param input
+	 * @param var
+	 * @return MappingIterator<T>
+	 * @throws IOException
+	 */
+	public static <T> MappingIterator<T> readValues(InputStream input, Class<T> var) throws IOException {
+		return readerFor(var).readValues(input);
+	}
+
+	/**Método para obtener el reader de un tipo
+	 * @param var
+	 * @return ObjectReader
+	 */
+	private static ObjectReader readerFor(Class<?> var) {
+		return READERS.computeIfAbsent(var, OBJECT_MAPPER::readerFor);
 	}
 
 }
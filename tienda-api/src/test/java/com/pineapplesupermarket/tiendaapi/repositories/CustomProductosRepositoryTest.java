@@ -0,0 +1,126 @@
+package com.pineapplesupermarket.tiendaapi.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.pineapplesupermarket.tiendaapi.dto.FilterProductoDTO;
+import com.pineapplesupermarket.tiendaapi.enums.ProductSortEnum;
+import com.pineapplesupermarket.tiendaapi.models.Product;
+import com.pineapplesupermarket.tiendaapi.util.CursorUtils;
+import com.pineapplesupermarket.tiendaapi.util.CursorUtils.Posicion;
+
+/**
+ *Pruebas del SQL de la paginación keyset del listado de productos.
+ *MySQL ordena los NULL primero en ASC y al final en DESC; la condición debe continuar la página
+ *sin saltar ni repetir productos con modification_date NULL
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+class CustomProductosRepositoryTest {
+
+	private EntityManager entityManager;
+
+	private Query query;
+
+	private CustomProductosRepository repository;
+
+	@BeforeEach
+	void setUp() {
+		this.entityManager = mock(EntityManager.class);
+		this.query = mock(Query.class);
+		when(this.entityManager.createNativeQuery(anyString(), eq(Product.class))).thenReturn(this.query);
+		when(this.query.setMaxResults(anyInt())).thenReturn(this.query);
+		when(this.query.setParameter(anyString(), any())).thenReturn(this.query);
+		when(this.query.getResultList()).thenReturn(List.of());
+		this.repository = new CustomProductosRepository();
+		ReflectionTestUtils.setField(this.repository, "entityManager", this.entityManager);
+	}
+
+	@Test
+	void idKeyset() {
+		String sql = this.findAfter(ProductSortEnum.ID, Direction.DESC, null);
+		assertTrue(sql.contains("WHERE p.id_product < :afterId "), sql);
+		assertTrue(sql.endsWith("ORDER BY p.id_product DESC"), sql);
+	}
+
+	@Test
+	void notNullColumnKeyset() {
+		String sql = this.findAfter(ProductSortEnum.QUANTITY, Direction.ASC, 5);
+		assertTrue(sql.contains("(p.quantity, p.id_product) > (:afterValue, :afterId)"), sql);
+		assertTrue(sql.endsWith("ORDER BY p.quantity ASC, p.id_product ASC"), sql);
+		verify(this.query).setParameter("afterValue", 5);
+	}
+
+	@Test
+	void modificationDateAscAfterNull() {
+		//en ASC siguen los NULL con id mayor y después todas las fechas
+		String sql = this.findAfter(ProductSortEnum.MODIFICATION_DATE, Direction.ASC, null);
+		assertTrue(sql.contains("(p.modification_date IS NOT NULL or p.id_product > :afterId)"), sql);
+		assertTrue(sql.endsWith("ORDER BY p.modification_date ASC, p.id_product ASC"), sql);
+		verify(this.query).setParameter("afterId", 10L);
+		verify(this.query, never()).setParameter(eq("afterValue"), any());
+	}
+
+	@Test
+	void modificationDateAscAfterValue() {
+		//los NULL ya se leyeron; la comparación de la tupla con NULL es NULL y los excluye
+		String sql = this.findAfter(ProductSortEnum.MODIFICATION_DATE, Direction.ASC, new Date(1700000000000L));
+		assertTrue(sql.contains("(p.modification_date, p.id_product) > (:afterValue, :afterId)"), sql);
+		assertFalse(sql.contains("IS NULL"), sql);
+	}
+
+	@Test
+	void modificationDateDescAfterValue() {
+		//en DESC los NULL van al final y se agregan explícitamente
+		String sql = this.findAfter(ProductSortEnum.MODIFICATION_DATE, Direction.DESC, new Date(1700000000000L));
+		assertTrue(sql.contains(
+				"((p.modification_date, p.id_product) < (:afterValue, :afterId) or p.modification_date IS NULL)"), sql);
+		assertTrue(sql.endsWith("ORDER BY p.modification_date DESC, p.id_product DESC"), sql);
+	}
+
+	@Test
+	void modificationDateDescAfterNull() {
+		//después de un NULL solo quedan NULL con id menor
+		String sql = this.findAfter(ProductSortEnum.MODIFICATION_DATE, Direction.DESC, null);
+		assertTrue(sql.contains("(p.modification_date IS NULL and p.id_product < :afterId)"), sql);
+		verify(this.query, never()).setParameter(eq("afterValue"), any());
+	}
+
+	/** Método para buscar la página siguiente al producto 10 y obtener el SQL que se ejecutó
+	 *@param sort
+	 *@param direction
+	 *@param value valor de la columna de orden del producto 10
+	 *@return String
+	 */
+	private String findAfter(ProductSortEnum sort, Direction direction, Object value) {
+		Posicion after = CursorUtils.decode(CursorUtils.encode(sort, direction, value, 10), sort, direction);
+		FilterProductoDTO filters = new FilterProductoDTO();
+		filters.setSort(sort);
+		filters.setDirection(direction);
+		this.repository.findAllAfter(filters, after, 20);
+
+		ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+		verify(this.entityManager).createNativeQuery(sql.capture(), eq(Product.class));
+		return sql.getValue();
+	}
+}
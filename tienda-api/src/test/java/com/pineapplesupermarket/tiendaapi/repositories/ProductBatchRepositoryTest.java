@@ -0,0 +1,66 @@
+package com.pineapplesupermarket.tiendaapi.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Timestamp;
+import java.util.Date;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ *Pruebas del ajuste atómico de existencias: la validación de la cantidad va en el mismo UPDATE
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+class ProductBatchRepositoryTest {
+
+	private JdbcTemplate template;
+
+	private ProductBatchRepository repository;
+
+	@BeforeEach
+	void setUp() {
+		this.template = mock(JdbcTemplate.class);
+		NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+		when(jdbcTemplate.getJdbcTemplate()).thenReturn(this.template);
+		this.repository = new ProductBatchRepository();
+		ReflectionTestUtils.setField(this.repository, "jdbcTemplate", jdbcTemplate);
+	}
+
+	@Test
+	void adjustStockReadsNewQuantity() {
+		when(this.template.update(anyString(), any(), any(), any(), any())).thenReturn(1);
+		when(this.template.queryForObject("SELECT LAST_INSERT_ID()", Integer.class)).thenReturn(7);
+		Date fecha = new Date(1700000000000L);
+
+		assertEquals(7, this.repository.adjustStock(5L, -3, fecha));
+
+		ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+		verify(this.template).update(sql.capture(), eq(-3), eq(new Timestamp(fecha.getTime())), eq(5L), eq(-3));
+		//la condición y la resta van en un solo UPDATE, sin leer antes la cantidad
+		assertTrue(sql.getValue().contains("quantity = LAST_INSERT_ID(quantity + ?)"), sql.getValue());
+		assertTrue(sql.getValue().endsWith("WHERE id_product = ? AND quantity + ? >= 0"), sql.getValue());
+	}
+
+	@Test
+	void adjustStockReturnsNullWhenGuardFails() {
+		when(this.template.update(anyString(), any(), any(), any(), any())).thenReturn(0);
+
+		assertNull(this.repository.adjustStock(5L, -30, new Date()));
+		verify(this.template, never()).queryForObject(anyString(), eq(Integer.class));
+	}
+}
@@ -0,0 +1,187 @@
+package com.pineapplesupermarket.tiendaapi.servicesImpl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeanUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.util.ReflectionUtils;
+
+import com.pineapplesupermarket.tiendaapi.cache.ReferenceDataCache;
+import com.pineapplesupermarket.tiendaapi.dto.CategorySummaryDTO;
+import com.pineapplesupermarket.tiendaapi.events.ProductoChangedEvent;
+import com.pineapplesupermarket.tiendaapi.exception.EntityNotFoundException;
+import com.pineapplesupermarket.tiendaapi.models.ProductCategory;
+import com.pineapplesupermarket.tiendaapi.repositories.ProductStockRepository;
+import com.pineapplesupermarket.tiendaapi.repositories.ProductStockRepository.StockLevel;
+
+/**
+ *Pruebas de los totales por categoría: cada evento resta la aportación anterior de los productos
+ *que cambiaron y suma la nueva, sin volver a recorrer la tabla
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+class CategorySummaryServiceImplTest {
+
+	private ProductStockRepository productStockRepository;
+
+	private CategorySummaryServiceImpl service;
+
+	/** Productos que regresa el recorrido de la tabla */
+	private List<StockLevel> tabla;
+
+	@BeforeEach
+	void setUp() {
+		this.productStockRepository = mock(ProductStockRepository.class);
+		PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+		when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+		ReferenceDataCache referenceDataCache = mock(ReferenceDataCache.class);
+		ProductCategory lacteos = category(3, "LAC");
+		ProductCategory frutas = category(4, "FRU");
+		ProductCategory limpieza = category(5, "LIM");
+		when(referenceDataCache.getCategorias()).thenReturn(List.of(lacteos, frutas, limpieza));
+		when(referenceDataCache.findCategoriaById(3L)).thenReturn(Optional.of(lacteos));
+		when(referenceDataCache.findCategoriaById(4L)).thenReturn(Optional.of(frutas));
+		this.tabla = List.of(level(1, 3, 2, "10.50"), level(2, 3, 1, "0.10"), level(3, 4, 5, "1"));
+		doAnswer(invocation -> {
+			this.tabla.forEach(invocation.<Consumer<StockLevel>>getArgument(1));
+			return null;
+		}).when(this.productStockRepository).scanAll(anyInt(), any());
+
+		this.service = new CategorySummaryServiceImpl();
+		ReflectionTestUtils.setField(this.service, "productStockRepository", this.productStockRepository);
+		ReflectionTestUtils.setField(this.service, "referenceDataCache", referenceDataCache);
+		ReflectionTestUtils.setField(this.service, "transactionManager", transactionManager);
+		ReflectionTestUtils.setField(this.service, "fetchSize", 100);
+		this.service.init();
+		//la evaluación se hace en el mismo hilo de la prueba
+		this.service.shutdown();
+		ExecutorService executor = mock(ExecutorService.class);
+		doAnswer(invocation -> {
+			invocation.<Runnable>getArgument(0).run();
+			return null;
+		}).when(executor).execute(any());
+		ReflectionTestUtils.setField(this.service, "evaluationExecutor", executor);
+	}
+
+	@Test
+	void loadsTotalsFromScan() throws EntityNotFoundException {
+		assertSummary(this.service.getSummary(3), 2, 3, "21.10");
+		assertSummary(this.service.getSummary(4), 1, 5, "5.00");
+		List<CategorySummaryDTO> summaries = this.service.getSummaries();
+		assertEquals(3, summaries.size());
+		//una categoría sin productos regresa ceros
+		assertSummary(summaries.get(2), 0, 0, "0.00");
+	}
+
+	@Test
+	void updatesOnlyChangedProducts() throws EntityNotFoundException {
+		when(this.productStockRepository.findByIds(anyCollection()))
+				.thenReturn(List.of(level(1, 3, 4, "10.50"), level(7, 4, 2, "2.25")));
+
+		this.service.onProductoChanged(new ProductoChangedEvent(List.of(1L, 7L), true));
+
+		assertSummary(this.service.getSummary(3), 2, 5, "42.10");
+		assertSummary(this.service.getSummary(4), 2, 7, "9.50");
+		verify(this.productStockRepository, times(1)).scanAll(anyInt(), any());
+	}
+
+	@Test
+	void movesProductBetweenCategories() throws EntityNotFoundException {
+		when(this.productStockRepository.findByIds(anyCollection())).thenReturn(List.of(level(2, 4, 1, "0.10")));
+
+		this.service.onProductoChanged(new ProductoChangedEvent(List.of(2L)));
+
+		assertSummary(this.service.getSummary(3), 1, 2, "21.00");
+		assertSummary(this.service.getSummary(4), 2, 6, "5.10");
+	}
+
+	@Test
+	void subtractsDeletedProduct() throws EntityNotFoundException {
+		when(this.productStockRepository.findByIds(anyCollection())).thenReturn(List.of());
+
+		this.service.onProductoChanged(new ProductoChangedEvent(List.of(3L)));
+
+		assertSummary(this.service.getSummary(4), 0, 0, "0.00");
+	}
+
+	@Test
+	void ignoresCategoryChanges() {
+		this.service.onProductoChanged(new ProductoChangedEvent(null));
+
+		verify(this.productStockRepository, never()).findByIds(anyCollection());
+		verify(this.productStockRepository, times(1)).scanAll(anyInt(), any());
+	}
+
+	@Test
+	void resyncReplacesTotals() throws EntityNotFoundException {
+		this.tabla = List.of(level(1, 3, 1, "1.99"));
+
+		this.service.requestResync();
+
+		assertSummary(this.service.getSummary(3), 1, 1, "1.99");
+		assertSummary(this.service.getSummary(4), 0, 0, "0.00");
+	}
+
+	@Test
+	void keepsProductsPendingWhenRefreshFails() throws EntityNotFoundException {
+		when(this.productStockRepository.findByIds(anyCollection()))
+				.thenThrow(new IllegalStateException("Connection refused"))
+				.thenReturn(List.of(level(1, 3, 0, "10.50")));
+
+		this.service.onProductoChanged(new ProductoChangedEvent(List.of(1L)));
+		assertSummary(this.service.getSummary(3), 2, 3, "21.10");
+
+		this.service.onProductoChanged(new ProductoChangedEvent(List.of(1L)));
+		assertSummary(this.service.getSummary(3), 2, 1, "0.10");
+	}
+
+	@Test
+	void rejectsUnknownCategory() {
+		assertThrows(EntityNotFoundException.class, () -> this.service.getSummary(9));
+	}
+
+	private static void assertSummary(CategorySummaryDTO summary, long productos, long cantidad, String valor) {
+		assertEquals(productos, summary.getProductCount());
+		assertEquals(cantidad, summary.getTotalQuantity());
+		assertEquals(new BigDecimal(valor), summary.getTotalValue());
+	}
+
+	private static ProductCategory category(long id, String code) {
+		ProductCategory categoria = new ProductCategory();
+		categoria.setIdProductCategory(id);
+		categoria.setCode(code);
+		return categoria;
+	}
+
+	private static StockLevel level(long id, long idCategory, int quantity, String unitPrice) {
+		//el constructor es privado, solo el RowMapper del repositorio crea niveles
+		try {
+			return BeanUtils.instantiateClass(ReflectionUtils.accessibleConstructor(StockLevel.class, long.class,
+					String.class, String.class, long.class, int.class, Integer.class, BigDecimal.class),
+					id, "P" + id, "Producto " + id, idCategory, quantity, null, new BigDecimal(unitPrice));
+		} catch(NoSuchMethodException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package com.pineapplesupermarket.tiendaapi.servicesImpl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeanUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.util.ReflectionUtils;
+
+import com.pineapplesupermarket.tiendaapi.cache.ReferenceDataCache;
+import com.pineapplesupermarket.tiendaapi.dto.LowStockDTO;
+import com.pineapplesupermarket.tiendaapi.events.ProductoChangedEvent;
+import com.pineapplesupermarket.tiendaapi.exception.EntityNotFoundException;
+import com.pineapplesupermarket.tiendaapi.models.ProductCategory;
+import com.pineapplesupermarket.tiendaapi.repositories.ProductStockRepository;
+import com.pineapplesupermarket.tiendaapi.repositories.ProductStockRepository.StockLevel;
+
+/**
+ *Pruebas del indice de existencias bajas: cada evento vuelve a evaluar solo los productos que cambiaron
+ *y los cambios que afectan a todos recargan el indice
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+class LowStockServiceImplTest {
+
+	private ProductStockRepository productStockRepository;
+
+	private LowStockServiceImpl service;
+
+	@BeforeEach
+	void setUp() throws EntityNotFoundException {
+		this.productStockRepository = mock(ProductStockRepository.class);
+		PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+		when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+		ReferenceDataCache referenceDataCache = mock(ReferenceDataCache.class);
+		ProductCategory categoria = new ProductCategory();
+		categoria.setIdProductCategory(3L);
+		categoria.setCode("LAC");
+		categoria.setReorderThreshold(10);
+		when(referenceDataCache.getCategorias()).thenReturn(List.of(categoria));
+		when(referenceDataCache.findCategoriaById(3L)).thenReturn(Optional.of(categoria));
+		when(referenceDataCache.findCategoriaByCode("LAC")).thenReturn(Optional.of(categoria));
+		//P1 con punto de reorden propio, P2 con el de su categoría
+		when(this.productStockRepository.findBelowOwnThreshold()).thenReturn(List.of(level(1, 3, 2, 5)));
+		when(this.productStockRepository.findBelowCategoryThreshold(3L, 10)).thenReturn(List.of(level(2, 3, 1, null)));
+
+		this.service = new LowStockServiceImpl();
+		ReflectionTestUtils.setField(this.service, "productStockRepository", this.productStockRepository);
+		ReflectionTestUtils.setField(this.service, "referenceDataCache", referenceDataCache);
+		ReflectionTestUtils.setField(this.service, "transactionManager", transactionManager);
+		this.service.init();
+		//la evaluación se hace en el mismo hilo de la prueba
+		this.service.shutdown();
+		ExecutorService executor = mock(ExecutorService.class);
+		doAnswer(invocation -> {
+			invocation.<Runnable>getArgument(0).run();
+			return null;
+		}).when(executor).execute(any());
+		ReflectionTestUtils.setField(this.service, "evaluationExecutor", executor);
+	}
+
+	@Test
+	void loadsIndexOrderedByShortage() throws EntityNotFoundException {
+		assertEquals(List.of(2L, 1L), ids(this.service.getLowStock(null, 10)));
+		assertEquals(List.of(2L), ids(this.service.getLowStock("LAC", 1)));
+		assertEquals(9, this.service.getLowStock(null, 1).get(0).getShortage());
+	}
+
+	@Test
+	void refreshesOnlyChangedProducts() throws EntityNotFoundException {
+		//P1 sube por encima de su punto de reorden y P4 queda en el de su categoría
+		when(this.productStockRepository.findByIds(anyCollection()))
+				.thenReturn(List.of(level(1, 3, 8, 5), level(4, 3, 10, null)));
+
+		this.service.onProductoChanged(new ProductoChangedEvent(List.of(1L, 4L), true));
+
+		assertEquals(List.of(2L, 4L), ids(this.service.getLowStock(null, 10)));
+		assertEquals(List.of(2L, 4L), ids(this.service.getLowStock("LAC", 10)));
+		verify(this.productStockRepository, times(1)).findBelowOwnThreshold();
+	}
+
+	@Test
+	void removesDeletedProduct() throws EntityNotFoundException {
+		when(this.productStockRepository.findByIds(anyCollection())).thenReturn(List.of());
+
+		this.service.onProductoChanged(new ProductoChangedEvent(List.of(2L)));
+
+		assertEquals(List.of(1L), ids(this.service.getLowStock(null, 10)));
+	}
+
+	@Test
+	void reloadsWhenAllProductsChanged() throws EntityNotFoundException {
+		when(this.productStockRepository.findBelowOwnThreshold()).thenReturn(List.of(level(5, 3, 0, 1)));
+
+		this.service.onProductoChanged(new ProductoChangedEvent(null));
+
+		assertEquals(List.of(2L, 5L), ids(this.service.getLowStock(null, 10)));
+		verify(this.productStockRepository, times(2)).findBelowOwnThreshold();
+	}
+
+	@Test
+	void keepsProductsPendingWhenRefreshFails() throws EntityNotFoundException {
+		when(this.productStockRepository.findByIds(anyCollection()))
+				.thenThrow(new IllegalStateException("Connection refused"))
+				.thenReturn(List.of(level(1, 3, 8, 5), level(6, 3, 3, null)));
+
+		this.service.onProductoChanged(new ProductoChangedEvent(List.of(1L)));
+		assertEquals(List.of(2L, 1L), ids(this.service.getLowStock(null, 10)));
+
+		//el siguiente evento evalúa también el producto que quedó pendiente
+		this.service.onProductoChanged(new ProductoChangedEvent(List.of(6L)));
+		assertEquals(List.of(2L, 6L), ids(this.service.getLowStock(null, 10)));
+	}
+
+	@Test
+	void rejectsInvalidArguments() {
+		assertThrows(IllegalArgumentException.class, () -> this.service.getLowStock(null, 0));
+		assertThrows(EntityNotFoundException.class, () -> this.service.getLowStock("XX", 10));
+	}
+
+	private static StockLevel level(long id, long idCategory, int quantity, Integer reorderThreshold) {
+		//el constructor es privado, solo el RowMapper del repositorio crea niveles
+		try {
+			return BeanUtils.instantiateClass(ReflectionUtils.accessibleConstructor(StockLevel.class, long.class,
+					String.class, String.class, long.class, int.class, Integer.class, BigDecimal.class),
+					id, "P" + id, "Producto " + id, idCategory, quantity, reorderThreshold, BigDecimal.ONE);
+		} catch(NoSuchMethodException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static List<Long> ids(List<LowStockDTO> productos) {
+		List<Long> ids = new ArrayList<>();
+		productos.forEach(producto -> ids.add(producto.getIdProduct()));
+		return ids;
+	}
+}
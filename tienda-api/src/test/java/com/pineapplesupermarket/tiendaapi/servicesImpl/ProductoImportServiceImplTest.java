@@ -0,0 +1,165 @@
+package com.pineapplesupermarket.tiendaapi.servicesImpl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import com.pineapplesupermarket.tiendaapi.cache.ReferenceDataCache;
+import com.pineapplesupermarket.tiendaapi.dto.ImportResultDTO;
+import com.pineapplesupermarket.tiendaapi.dto.ProductImportDTO;
+import com.pineapplesupermarket.tiendaapi.events.ProductoChangedEvent;
+import com.pineapplesupermarket.tiendaapi.models.ProductCategory;
+import com.pineapplesupermarket.tiendaapi.repositories.ProductBatchRepository;
+import com.pineapplesupermarket.tiendaapi.services.IStockLedgerService;
+
+/**
+ *Pruebas de la importación masiva de productos: validación por bloque y reintento renglón por renglón
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+class ProductoImportServiceImplTest {
+
+	private static final String HEADER = "categoryCode,code,name,quantity,unitPrice\n";
+
+	private ProductBatchRepository productBatchRepository;
+
+	private PlatformTransactionManager transactionManager;
+
+	private ApplicationEventPublisher eventPublisher;
+
+	private ProductoImportServiceImpl service;
+
+	/** Códigos recibidos por cada insert, copiados en el momento de la llamada */
+	private final List<List<String>> inserts = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		this.productBatchRepository = mock(ProductBatchRepository.class);
+		this.transactionManager = mock(PlatformTransactionManager.class);
+		when(this.transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+		this.eventPublisher = mock(ApplicationEventPublisher.class);
+		ReferenceDataCache referenceDataCache = mock(ReferenceDataCache.class);
+		ProductCategory categoria = new ProductCategory();
+		categoria.setIdProductCategory(3L);
+		categoria.setCode("LAC");
+		when(referenceDataCache.getCategorias()).thenReturn(List.of(categoria));
+		when(this.productBatchRepository.insert(anyList(), anyList(), any(Date.class))).thenAnswer(invocation -> {
+			List<ProductImportDTO> productos = invocation.getArgument(0);
+			List<String> codes = new ArrayList<>();
+			productos.forEach(producto -> codes.add(producto.getCode()));
+			this.inserts.add(codes);
+			return new int[productos.size()];
+		});
+		when(this.productBatchRepository.findIdsByCode(anyCollection())).thenReturn(List.of(1L));
+
+		this.service = new ProductoImportServiceImpl();
+		ReflectionTestUtils.setField(this.service, "productBatchRepository", this.productBatchRepository);
+		ReflectionTestUtils.setField(this.service, "referenceDataCache", referenceDataCache);
+		ReflectionTestUtils.setField(this.service, "transactionManager", this.transactionManager);
+		ReflectionTestUtils.setField(this.service, "eventPublisher", this.eventPublisher);
+		ReflectionTestUtils.setField(this.service, "stockLedgerService", mock(IStockLedgerService.class));
+		ReflectionTestUtils.setField(this.service, "chunkSize", 2);
+		ReflectionTestUtils.setField(this.service, "maxErrors", 10);
+	}
+
+	@Test
+	void insertsValidRowsByChunk() throws IOException {
+		ImportResultDTO result = this.importCsv("lac,A1,Leche,5,10.5\nLAC,A2,Queso,1,30\nLAC,A3,Crema,2,12\n");
+
+		assertEquals(3, result.getTotal());
+		assertEquals(3, result.getApplied());
+		assertEquals(0, result.getRejected());
+		assertEquals(List.of(List.of("A1", "A2"), List.of("A3")), this.inserts);
+		verify(this.productBatchRepository, times(2)).findExistingKeys(anyCollection(), anyCollection());
+		ArgumentCaptor<ProductoChangedEvent> event = ArgumentCaptor.forClass(ProductoChangedEvent.class);
+		verify(this.eventPublisher).publishEvent(event.capture());
+		assertEquals(List.of(1L, 1L), event.getValue().getIdsProduct());
+	}
+
+	@Test
+	void rejectsInvalidRowsWithoutInserting() throws IOException {
+		ImportResultDTO result = this.importCsv("LAC,A1,Leche,5,10\nXX,A2,Queso,1,30\nLAC,a1,Otra,1,1\n"
+				+ "LAC,A4,Leche,1,1\nLAC,A5,Pan,-1,1\nLAC,A6,Pan,uno,1\n");
+
+		assertEquals(6, result.getTotal());
+		assertEquals(1, result.getApplied());
+		assertEquals(5, result.getRejected());
+		assertEquals(List.of(2L, 3L, 4L, 5L, 6L), rows(result));
+		assertEquals(List.of(List.of("A1")), this.inserts);
+	}
+
+	@Test
+	void rejectsRowsAlreadyInDatabase() throws IOException {
+		when(this.productBatchRepository.findExistingKeys(anyCollection(), anyCollection()))
+				.thenReturn(Map.of(ProductBatchRepository.codeKey("A1"), 7L));
+
+		ImportResultDTO result = this.importCsv("LAC,A1,Leche,5,10\nLAC,A2,Queso,1,30\n");
+
+		assertEquals(1, result.getApplied());
+		assertEquals(List.of(1L), rows(result));
+		assertEquals(List.of(List.of("A2")), this.inserts);
+	}
+
+	@Test
+	void retriesRowByRowWhenBatchFails() throws IOException {
+		when(this.productBatchRepository.insert(anyList(), anyList(), any(Date.class))).thenAnswer(invocation -> {
+			List<ProductImportDTO> productos = invocation.getArgument(0);
+			if(productos.size() > 1 || productos.get(0).getCode().equals("A2")) {
+				throw new DataIntegrityViolationException("Duplicate entry");
+			}
+			return new int[] {1};
+		});
+
+		ImportResultDTO result = this.importCsv("LAC,A1,Leche,5,10\nLAC,A2,Queso,1,30\n");
+
+		assertEquals(1, result.getApplied());
+		assertEquals(1, result.getRejected());
+		assertEquals(List.of(2L), rows(result));
+		//el lote y el renglón con error se revierten, el renglón válido se confirma
+		verify(this.transactionManager, times(2)).rollback(any());
+		verify(this.transactionManager, times(1)).commit(any());
+	}
+
+	@Test
+	void doesNotPublishWithoutInserts() throws IOException {
+		ImportResultDTO result = this.importCsv("XX,A1,Leche,5,10\n");
+
+		assertEquals(0, result.getApplied());
+		verify(this.eventPublisher, never()).publishEvent(any());
+		verify(this.productBatchRepository, never()).insert(anyList(), anyList(), any());
+	}
+
+	private ImportResultDTO importCsv(String rows) throws IOException {
+		return this.service.importProductos(
+				new ByteArrayInputStream((HEADER + rows).getBytes(StandardCharsets.UTF_8)), true);
+	}
+
+	private static List<Long> rows(ImportResultDTO result) {
+		List<Long> rows = new ArrayList<>();
+		result.getErrors().forEach(error -> rows.add(error.getRow()));
+		return rows;
+	}
+}
@@ -0,0 +1,239 @@
+package com.pineapplesupermarket.tiendaapi.servicesImpl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.cache.Cache;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.pineapplesupermarket.tiendaapi.CacheConfiguration;
+import com.pineapplesupermarket.tiendaapi.dto.ImportResultDTO;
+import com.pineapplesupermarket.tiendaapi.dto.ProductSyncDTO;
+import com.pineapplesupermarket.tiendaapi.dto.StockDTO;
+import com.pineapplesupermarket.tiendaapi.enums.StockMovementReasonEnum;
+import com.pineapplesupermarket.tiendaapi.events.ProductoChangedEvent;
+import com.pineapplesupermarket.tiendaapi.exception.EntityNotFoundException;
+import com.pineapplesupermarket.tiendaapi.exception.InsufficientStockException;
+import com.pineapplesupermarket.tiendaapi.models.Product;
+import com.pineapplesupermarket.tiendaapi.repositories.ProductBatchRepository;
+import com.pineapplesupermarket.tiendaapi.repositories.ProductRepository;
+import com.pineapplesupermarket.tiendaapi.services.IStockBufferService;
+import com.pineapplesupermarket.tiendaapi.services.IStockLedgerService;
+
+/**
+ *Pruebas del servicio de productos: una copia leída antes de una invalidación no se queda en el cache,
+ *la sincronización por código solo aplica los cambios válidos y el ajuste de existencias no deja cantidades negativas
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+class ProductoServiceImplTest {
+
+	private ProductRepository productRepository;
+
+	private ProductBatchRepository productBatchRepository;
+
+	private IStockLedgerService stockLedgerService;
+
+	private ApplicationEventPublisher eventPublisher;
+
+	private ProductoServiceImpl service;
+
+	private Cache productCache;
+
+	@BeforeEach
+	void setUp() {
+		this.productRepository = mock(ProductRepository.class);
+		IStockBufferService stockBufferService = mock(IStockBufferService.class);
+		when(stockBufferService.getPendingDelta(anyLong())).thenReturn(0L);
+		this.productBatchRepository = mock(ProductBatchRepository.class);
+		this.stockLedgerService = mock(IStockLedgerService.class);
+		this.eventPublisher = mock(ApplicationEventPublisher.class);
+
+		this.service = new ProductoServiceImpl();
+		ReflectionTestUtils.setField(this.service, "productRepository", this.productRepository);
+		ReflectionTestUtils.setField(this.service, "stockBufferService", stockBufferService);
+		ReflectionTestUtils.setField(this.service, "productBatchRepository", this.productBatchRepository);
+		ReflectionTestUtils.setField(this.service, "stockLedgerService", this.stockLedgerService);
+		ReflectionTestUtils.setField(this.service, "eventPublisher", this.eventPublisher);
+		ReflectionTestUtils.setField(this.service, "batchSize", 500);
+		ReflectionTestUtils.setField(this.service, "maxErrors", 10);
+		CacheConfiguration cacheConfiguration = new CacheConfiguration();
+		ReflectionTestUtils.setField(cacheConfiguration, "productCacheSize", 100L);
+		ReflectionTestUtils.setField(cacheConfiguration, "productCacheTtlMs", 60000L);
+		ReflectionTestUtils.setField(this.service, "cacheManager", cacheConfiguration.cacheManager());
+		this.service.init();
+		this.productCache = (Cache) ReflectionTestUtils.getField(this.service, "productCache");
+	}
+
+	@Test
+	void findOneCachesCopy() throws EntityNotFoundException {
+		when(this.productRepository.findById(1L)).thenReturn(Optional.of(product(1, 10)));
+
+		assertEquals(10, this.service.findOne(1).getQuantity());
+		assertNotNull(this.productCache.get(1L));
+	}
+
+	@Test
+	void findOneDoesNotCacheCopyInvalidatedWhileLoading() throws Exception {
+		Thread[] invalidacion = new Thread[1];
+		when(this.productRepository.findById(1L)).thenAnswer(invocation -> {
+			//el commit de otra transacción invalida el producto mientras esta lectura tiene la copia anterior
+			invalidacion[0] = new Thread(() -> this.service.onProductoChanged(new ProductoChangedEvent(List.of(1L))));
+			invalidacion[0].start();
+			Thread.sleep(100);
+			return Optional.of(product(1, 10));
+		});
+
+		this.service.findOne(1);
+		invalidacion[0].join();
+
+		assertNull(this.productCache.get(1L));
+	}
+
+	@Test
+	void findOneDoesNotCacheCopyClearedWhileLoading() throws Exception {
+		Thread[] invalidacion = new Thread[1];
+		when(this.productRepository.findById(1L)).thenAnswer(invocation -> {
+			invalidacion[0] = new Thread(() -> this.service.onProductoChanged(new ProductoChangedEvent(null)));
+			invalidacion[0].start();
+			invalidacion[0].join();
+			return Optional.of(product(1, 10));
+		});
+
+		this.service.findOne(1);
+
+		assertNull(this.productCache.get(1L));
+	}
+
+	@Test
+	void batchDoesNotCacheCopyInvalidatedWhileLoading() {
+		when(this.productRepository.findAllById(List.of(1L, 2L))).thenAnswer(invocation -> {
+			this.service.onProductoChanged(new ProductoChangedEvent(List.of(1L)));
+			return List.of(product(1, 10), product(2, 20));
+		});
+
+		List<Product> productos = ReflectionTestUtils.invokeMethod(this.service, "findAllById", List.of(1L, 2L));
+
+		assertEquals(2, productos.size());
+		assertNull(this.productCache.get(1L));
+		assertNotNull(this.productCache.get(2L));
+	}
+
+	@Test
+	void syncAppliesOnlyValidChanges() {
+		when(this.productBatchRepository.findExistingKeys(anyCollection(), anyCollection())).thenReturn(Map.of(
+				ProductBatchRepository.codeKey("A1"), 1L, ProductBatchRepository.codeKey("A2"), 2L));
+
+		ImportResultDTO result = this.service.sync(List.of(sync(" a1 ", 5, null), sync("XX", 1, null),
+				sync("A1", 2, null), sync("A2", -1, null), sync("A2", null, null), sync("A2", null, 9.5)));
+
+		assertEquals(6, result.getTotal());
+		assertEquals(2, result.getApplied());
+		assertEquals(4, result.getRejected());
+		List<Long> rows = new ArrayList<>();
+		result.getErrors().forEach(error -> rows.add(error.getRow()));
+		assertEquals(List.of(2L, 3L, 4L, 5L), rows);
+
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<List<ProductSyncDTO>> validos = ArgumentCaptor.forClass(List.class);
+		InOrder orden = inOrder(this.stockLedgerService, this.productBatchRepository);
+		//el historial lee la cantidad anterior antes del UPDATE
+		orden.verify(this.stockLedgerService).recordSync(validos.capture(), any(Date.class));
+		orden.verify(this.productBatchRepository).updateByCode(eq(validos.getValue()), any(Date.class), eq(500));
+		assertEquals(List.of("a1", "A2"), codes(validos.getValue()));
+
+		ArgumentCaptor<ProductoChangedEvent> event = ArgumentCaptor.forClass(ProductoChangedEvent.class);
+		verify(this.eventPublisher).publishEvent(event.capture());
+		assertEquals(List.of(1L, 2L), event.getValue().getIdsProduct());
+		assertTrue(event.getValue().isValuesOnly());
+	}
+
+	@Test
+	void syncWithoutValidChangesDoesNotUpdate() {
+		ImportResultDTO result = this.service.sync(List.of(sync("", 1, null), sync("XX", 1, null)));
+
+		assertEquals(0, result.getApplied());
+		assertEquals(2, result.getRejected());
+		verify(this.stockLedgerService, never()).recordSync(anyList(), any());
+		verify(this.productBatchRepository, never()).updateByCode(anyList(), any(), eq(500));
+		verify(this.eventPublisher, never()).publishEvent(any());
+	}
+
+	@Test
+	void adjustStockRecordsMovement() throws Exception {
+		when(this.productBatchRepository.adjustStock(eq(1L), eq(-3), any(Date.class))).thenReturn(7);
+
+		StockDTO stock = this.service.adjustStock(1, -3);
+
+		assertEquals(1, stock.getIdProduct());
+		assertEquals(7, stock.getQuantity());
+		verify(this.stockLedgerService).record(1L, -3, StockMovementReasonEnum.ADJUSTMENT);
+		ArgumentCaptor<ProductoChangedEvent> event = ArgumentCaptor.forClass(ProductoChangedEvent.class);
+		verify(this.eventPublisher).publishEvent(event.capture());
+		assertEquals(List.of(1L), event.getValue().getIdsProduct());
+	}
+
+	@Test
+	void adjustStockRejectsNegativeQuantity() {
+		//el UPDATE condicional no actualizó ningún renglón
+		when(this.productBatchRepository.adjustStock(eq(1L), eq(-30), any(Date.class))).thenReturn(null);
+		when(this.productBatchRepository.exists(1L)).thenReturn(true);
+
+		assertThrows(InsufficientStockException.class, () -> this.service.adjustStock(1, -30));
+		verify(this.stockLedgerService, never()).record(anyLong(), anyInt(), any());
+		verify(this.eventPublisher, never()).publishEvent(any());
+	}
+
+	@Test
+	void adjustStockRejectsUnknownProduct() {
+		when(this.productBatchRepository.adjustStock(eq(9L), eq(1), any(Date.class))).thenReturn(null);
+		assertThrows(EntityNotFoundException.class, () -> this.service.adjustStock(9, 1));
+		verify(this.stockLedgerService, never()).record(anyLong(), anyInt(), any());
+	}
+
+	private static ProductSyncDTO sync(String code, Integer quantity, Double unitPrice) {
+		ProductSyncDTO cambio = new ProductSyncDTO();
+		cambio.setCode(code);
+		cambio.setQuantity(quantity);
+		cambio.setUnitPrice(unitPrice);
+		return cambio;
+	}
+
+	private static List<String> codes(List<ProductSyncDTO> cambios) {
+		List<String> codes = new ArrayList<>();
+		cambios.forEach(cambio -> codes.add(cambio.getCode()));
+		return codes;
+	}
+
+	private static Product product(long id, int quantity) {
+		Product producto = new Product();
+		producto.setIdProduct(id);
+		producto.setQuantity(quantity);
+		return producto;
+	}
+}
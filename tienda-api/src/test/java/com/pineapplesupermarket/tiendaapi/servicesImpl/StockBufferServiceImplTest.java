@@ -0,0 +1,250 @@
+package com.pineapplesupermarket.tiendaapi.servicesImpl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import com.pineapplesupermarket.tiendaapi.dto.StockMovementDTO;
+import com.pineapplesupermarket.tiendaapi.repositories.ProductBatchRepository;
+import com.pineapplesupermarket.tiendaapi.repositories.StockJournalRepository;
+import com.pineapplesupermarket.tiendaapi.services.IStockLedgerService;
+
+/**
+ *Pruebas del journal del buffer de existencias, sobre un directorio temporal y repositorios simulados
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+class StockBufferServiceImplTest {
+
+	private static final String JOURNAL_ID = "test-journal";
+
+	@TempDir
+	Path directory;
+
+	private ProductBatchRepository productBatchRepository;
+
+	private StockJournalRepository stockJournalRepository;
+
+	private IStockLedgerService stockLedgerService;
+
+	private StockBufferServiceImpl service;
+
+	/** Lotes recibidos por addStock, copiados en el momento de la llamada */
+	private final List<List<long[]>> batches = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() throws IOException {
+		this.productBatchRepository = mock(ProductBatchRepository.class);
+		this.stockJournalRepository = mock(StockJournalRepository.class);
+		this.stockLedgerService = mock(IStockLedgerService.class);
+		when(this.stockLedgerService.getCurrentUsername()).thenReturn("admin");
+		when(this.productBatchRepository.addStock(anyList(), any(Date.class))).thenAnswer(invocation -> {
+			List<long[]> batch = invocation.getArgument(0);
+			this.batches.add(new ArrayList<>(batch));
+			int[] updated = new int[batch.size()];
+			Arrays.fill(updated, 1);
+			return updated;
+		});
+		Files.writeString(this.directory.resolve("journal.id"), JOURNAL_ID, StandardCharsets.US_ASCII);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		if(this.service != null) {
+			this.service.shutdown();
+		}
+	}
+
+	@Test
+	void flushRotatesSegmentAndRecordsIt() throws IOException {
+		this.start(0);
+		this.service.append(1, 5);
+		this.service.append(1, -2);
+		assertTrue(Files.exists(this.segment(1)));
+
+		this.service.flush();
+
+		assertEquals(1, this.batches.size());
+		assertEquals(2, this.batches.get(0).size());
+		assertEquals(5, this.batches.get(0).get(0)[1]);
+		assertEquals(-2, this.batches.get(0).get(1)[1]);
+		verify(this.stockJournalRepository).saveLastSegment(eq(JOURNAL_ID), eq(1L), any(Date.class));
+		assertFalse(Files.exists(this.segment(1)));
+		assertTrue(Files.exists(this.segment(2)));
+		assertEquals(0, this.service.getPendingDelta(1));
+
+		this.service.append(1, 3);
+		assertEquals("1,3,", this.readSegment(2).substring(0, 4));
+	}
+
+	@Test
+	void replaysTwoAndFourFieldLines() throws IOException {
+		Files.writeString(this.segment(1), "5,3\n6,-2,1700000000000,ana\n7,4,1700000000000,\n");
+		this.start(0);
+
+		assertEquals(3, this.service.getPendingDelta(5));
+		assertEquals(-2, this.service.getPendingDelta(6));
+		assertEquals(4, this.service.getPendingDelta(7));
+
+		List<StockMovementDTO> movimientos = this.flushAndCaptureMovements();
+		assertEquals(3, movimientos.size());
+		assertNull(movimientos.get(0).getUsername());
+		assertEquals("ana", movimientos.get(1).getUsername());
+		assertEquals(1700000000000L, movimientos.get(1).getMovementDate().getTime());
+		assertNull(movimientos.get(2).getUsername());
+		//el segmento recuperado se aplica con el primer lote, que cierra el segmento 2
+		verify(this.stockJournalRepository).saveLastSegment(eq(JOURNAL_ID), eq(2L), any(Date.class));
+		assertFalse(Files.exists(this.segment(1)));
+	}
+
+	@Test
+	void ignoresTruncatedLastLine() throws IOException {
+		Files.writeString(this.segment(1), "5,3,1700000000000,ana\n8,9,17000");
+		this.start(0);
+
+		assertEquals(3, this.service.getPendingDelta(5));
+		assertEquals(0, this.service.getPendingDelta(8));
+	}
+
+	@Test
+	void skipsSegmentsAlreadyApplied() throws IOException {
+		Files.writeString(this.segment(1), "5,3\n");
+		Files.writeString(this.segment(2), "5,4\n");
+		this.start(1);
+
+		assertEquals(4, this.service.getPendingDelta(5));
+		assertFalse(Files.exists(this.segment(1)));
+		assertTrue(Files.exists(this.segment(2)));
+		assertTrue(Files.exists(this.segment(3)));
+	}
+
+	@Test
+	void restoresMovementsWhenFlushFails() throws IOException {
+		this.start(0);
+		this.service.append(1, 5);
+		when(this.productBatchRepository.addStock(anyList(), any(Date.class)))
+				.thenThrow(new DataAccessResourceFailureException("down"));
+
+		assertThrows(DataAccessResourceFailureException.class, this.service::flush);
+		assertEquals(5, this.service.getPendingDelta(1));
+		assertTrue(Files.exists(this.segment(1)));
+
+		//los movimientos regresados van antes de los que llegan después
+		this.service.append(1, -1);
+		when(this.productBatchRepository.addStock(anyList(), any(Date.class))).thenReturn(new int[] {1, 1});
+		List<StockMovementDTO> movimientos = this.flushAndCaptureMovements();
+		assertEquals(5, movimientos.get(0).getDelta());
+		assertEquals(-1, movimientos.get(1).getDelta());
+		assertEquals(0, this.service.getPendingDelta(1));
+		assertFalse(Files.exists(this.segment(1)));
+	}
+
+	@Test
+	void keepsSegmentWhenRotationFails() throws IOException {
+		this.start(0);
+		this.service.append(1, 5);
+		//un directorio con el nombre del siguiente segmento impide abrirlo
+		Files.createDirectory(this.segment(2));
+
+		assertThrows(UncheckedIOException.class, this.service::flush);
+		assertEquals(5, this.service.getPendingDelta(1));
+
+		//el segmento actual sigue abierto
+		this.service.append(1, 2);
+		assertEquals(7, this.service.getPendingDelta(1));
+		assertEquals(2, this.readSegment(1).split("\n").length);
+
+		Files.delete(this.segment(2));
+		List<StockMovementDTO> movimientos = this.flushAndCaptureMovements();
+		assertEquals(2, movimientos.size());
+		assertEquals(5, movimientos.get(0).getDelta());
+		assertEquals(2, movimientos.get(1).getDelta());
+		assertEquals(0, this.service.getPendingDelta(1));
+		assertFalse(Files.exists(this.segment(1)));
+	}
+
+	@Test
+	void pendingDeltaIncludesInFlightBatch() throws IOException {
+		this.start(0);
+		this.service.append(1, 5);
+		long[] visto = new long[1];
+		when(this.productBatchRepository.addStock(anyList(), any(Date.class))).thenAnswer(invocation -> {
+			//mientras se guarda el lote, el movimiento ya no está pendiente pero sigue visible
+			visto[0] = this.service.getPendingDelta(1);
+			return new int[] {1};
+		});
+
+		this.service.flush();
+
+		assertEquals(5, visto[0]);
+		assertEquals(0, this.service.getPendingDelta(1));
+	}
+
+	/** Método para iniciar el servicio sobre el directorio temporal
+	 *@param aplicado último segmento aplicado en la base
+	 */
+	private void start(long aplicado) throws IOException {
+		PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+		when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+		when(this.stockJournalRepository.findLastSegment(JOURNAL_ID)).thenReturn(aplicado);
+
+		this.service = new StockBufferServiceImpl();
+		ReflectionTestUtils.setField(this.service, "productBatchRepository", this.productBatchRepository);
+		ReflectionTestUtils.setField(this.service, "transactionManager", transactionManager);
+		ReflectionTestUtils.setField(this.service, "eventPublisher", mock(ApplicationEventPublisher.class));
+		ReflectionTestUtils.setField(this.service, "stockLedgerService", this.stockLedgerService);
+		ReflectionTestUtils.setField(this.service, "stockJournalRepository", this.stockJournalRepository);
+		ReflectionTestUtils.setField(this.service, "journalDir", this.directory.toString());
+		//el hilo de guardado no corre durante la prueba, solo los flush explícitos
+		ReflectionTestUtils.setField(this.service, "flushMs", 3600000L);
+		ReflectionTestUtils.setField(this.service, "flushEvents", Integer.MAX_VALUE);
+		ReflectionTestUtils.setField(this.service, "journalSync", true);
+		this.service.init();
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<StockMovementDTO> flushAndCaptureMovements() {
+		this.service.flush();
+		ArgumentCaptor<List<StockMovementDTO>> captor = ArgumentCaptor.forClass(List.class);
+		verify(this.stockLedgerService, atLeastOnce()).recordAll(captor.capture());
+		return captor.getValue();
+	}
+
+	private Path segment(long number) {
+		return this.directory.resolve("stock-" + number + ".journal");
+	}
+
+	private String readSegment(long number) throws IOException {
+		return Files.readString(this.segment(number), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,158 @@
+package com.pineapplesupermarket.tiendaapi.servicesImpl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.pineapplesupermarket.tiendaapi.dto.CursorPageDTO;
+import com.pineapplesupermarket.tiendaapi.dto.StockMovementDTO;
+import com.pineapplesupermarket.tiendaapi.enums.StockMovementReasonEnum;
+import com.pineapplesupermarket.tiendaapi.repositories.StockMovementRepository;
+import com.pineapplesupermarket.tiendaapi.util.CursorUtils;
+
+/**
+ *Pruebas del historial de movimientos: paginación por cursor con rango de fechas
+ *y un solo lote por transacción con el tamaño de stockMovementBatchSize
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+class StockLedgerServiceImplTest {
+
+	private static final ZoneId ZONA = ZoneId.systemDefault();
+
+	private StockMovementRepository stockMovementRepository;
+
+	private StockLedgerServiceImpl service;
+
+	@BeforeEach
+	void setUp() {
+		this.stockMovementRepository = mock(StockMovementRepository.class);
+		this.service = new StockLedgerServiceImpl();
+		ReflectionTestUtils.setField(this.service, "stockMovementRepository", this.stockMovementRepository);
+		ReflectionTestUtils.setField(this.service, "batchSize", 250);
+	}
+
+	@AfterEach
+	void tearDown() {
+		if(TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		TransactionSynchronizationManager.setActualTransactionActive(false);
+	}
+
+	@Test
+	void pageRequestsOneExtraRow() {
+		Date from = date(2026, 1, 1);
+		when(this.stockMovementRepository.findPage(7L, 100L, from, null, 3))
+				.thenReturn(List.of(movement(99), movement(98), movement(97)));
+
+		CursorPageDTO<StockMovementDTO> page = this.service.getMovements(7L, CursorUtils.encode(100), 2, from, null);
+
+		assertEquals(2, page.getContent().size());
+		assertTrue(page.isHasNext());
+		//el cursor es el último registro regresado, no el extra
+		assertEquals(98L, CursorUtils.decode(page.getNextCursor()));
+	}
+
+	@Test
+	void lastPageHasNoCursor() {
+		when(this.stockMovementRepository.findPage(any(), any(), any(), any(), anyInt()))
+				.thenReturn(List.of(movement(5)));
+
+		CursorPageDTO<StockMovementDTO> page = this.service.getMovements(null, null, 2, date(2026, 1, 1), null);
+
+		assertEquals(1, page.getContent().size());
+		assertFalse(page.isHasNext());
+		assertNull(page.getNextCursor());
+		verify(this.stockMovementRepository).findPage(isNull(), isNull(), any(), isNull(), eq(3));
+	}
+
+	@Test
+	void defaultRangeStartsOnPreviousMonth() {
+		when(this.stockMovementRepository.findPage(any(), any(), any(), any(), anyInt())).thenReturn(List.of());
+
+		//con to se toma el mes anterior a to, incluso al cambiar de año
+		this.service.getMovements(null, null, 10, null, date(2026, 1, 15));
+		this.service.getMovements(null, null, 10, null, null);
+
+		ArgumentCaptor<Date> from = ArgumentCaptor.forClass(Date.class);
+		verify(this.stockMovementRepository, times(2)).findPage(any(), any(), from.capture(), any(), anyInt());
+		assertEquals(date(2025, 12, 1), from.getAllValues().get(0));
+		assertEquals(date(LocalDate.now(ZONA).minusMonths(1).withDayOfMonth(1)), from.getAllValues().get(1));
+	}
+
+	@Test
+	void rejectsInvalidPage() {
+		assertThrows(IllegalArgumentException.class, () -> this.service.getMovements(null, null, 0, null, null));
+		assertThrows(IllegalArgumentException.class, () -> this.service.getMovements(null, "%%%", 10, null, null));
+		verify(this.stockMovementRepository, never()).findPage(any(), any(), any(), any(), anyInt());
+	}
+
+	@Test
+	void recordsTransactionMovementsInOneBatch() {
+		TransactionSynchronizationManager.initSynchronization();
+		TransactionSynchronizationManager.setActualTransactionActive(true);
+
+		this.service.record(1L, 5, StockMovementReasonEnum.ADJUSTMENT);
+		this.service.record(2L, 0, StockMovementReasonEnum.ADJUSTMENT);
+		this.service.record(3L, -2, StockMovementReasonEnum.ADJUSTMENT);
+		verify(this.stockMovementRepository, never()).insert(anyList(), anyInt());
+
+		List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+		assertEquals(1, synchronizations.size());
+		synchronizations.get(0).beforeCommit(false);
+
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<List<StockMovementDTO>> lote = ArgumentCaptor.forClass(List.class);
+		verify(this.stockMovementRepository).insert(lote.capture(), eq(250));
+		List<Long> ids = new ArrayList<>();
+		lote.getValue().forEach(movimiento -> ids.add(movimiento.getIdProduct()));
+		//un delta de 0 no se registra
+		assertEquals(List.of(1L, 3L), ids);
+	}
+
+	@Test
+	void recordsImmediatelyWithoutTransaction() {
+		this.service.record(1L, 5, StockMovementReasonEnum.ADJUSTMENT);
+
+		verify(this.stockMovementRepository).insert(anyList(), eq(250));
+	}
+
+	private static StockMovementDTO movement(long id) {
+		return new StockMovementDTO(id, 7L, 1, StockMovementReasonEnum.ADJUSTMENT, "admin", new Date());
+	}
+
+	private static Date date(int year, int month, int day) {
+		return date(LocalDate.of(year, month, day));
+	}
+
+	private static Date date(LocalDate day) {
+		return Date.from(day.atStartOfDay(ZONA).toInstant());
+	}
+}
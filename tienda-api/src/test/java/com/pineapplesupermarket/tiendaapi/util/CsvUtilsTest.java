@@ -0,0 +1,67 @@
+package com.pineapplesupermarket.tiendaapi.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ *Pruebas de la escritura y lectura de valores CSV
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+class CsvUtilsTest {
+
+	@Test
+	void escapeQuotesOnlyWhenNeeded() {
+		assertEquals("", CsvUtils.escape(null));
+		assertEquals("leche", CsvUtils.escape("leche"));
+		assertEquals("\"leche, entera\"", CsvUtils.escape("leche, entera"));
+		assertEquals("\"leche \"\"light\"\"\"", CsvUtils.escape("leche \"light\""));
+		assertEquals("\"linea 1\nlinea 2\"", CsvUtils.escape("linea 1\nlinea 2"));
+		assertEquals("\"linea 1\r\nlinea 2\"", CsvUtils.escape("linea 1\r\nlinea 2"));
+	}
+
+	@Test
+	void readsQuotedValues() throws IOException {
+		BufferedReader reader = reader("a,\"b,c\",\"d \"\"x\"\"\"\r\n,\"\"\n");
+		assertEquals(List.of("a", "b,c", "d \"x\""), CsvUtils.readRecord(reader));
+		assertEquals(List.of("", ""), CsvUtils.readRecord(reader));
+		assertNull(CsvUtils.readRecord(reader));
+	}
+
+	@Test
+	void readsNewlinesInsideQuotes() throws IOException {
+		BufferedReader reader = reader("1,\"linea 1\r\nlinea 2\",fin\n2,ok");
+		assertEquals(List.of("1", "linea 1\r\nlinea 2", "fin"), CsvUtils.readRecord(reader));
+		//el último registro puede no tener salto de línea
+		assertEquals(List.of("2", "ok"), CsvUtils.readRecord(reader));
+		assertNull(CsvUtils.readRecord(reader));
+	}
+
+	@Test
+	void readsQuoteAtEndOfFile() throws IOException {
+		BufferedReader reader = reader("\"a \"\"b\"\"\"");
+		assertEquals(List.of("a \"b\""), CsvUtils.readRecord(reader));
+		assertNull(CsvUtils.readRecord(reader));
+	}
+
+	@Test
+	void escapeAndReadRoundTrip() throws IOException {
+		List<String> values = List.of("simple", "", "coma, dentro", "\"comillas\"", "salto\nde línea", "\"\",\r\n\"");
+		String line = values.stream().map(CsvUtils::escape).collect(Collectors.joining(String.valueOf(CsvUtils.SEPARATOR)));
+		BufferedReader reader = reader(line + "\r\n");
+		assertEquals(values, CsvUtils.readRecord(reader));
+		assertNull(CsvUtils.readRecord(reader));
+	}
+
+	private static BufferedReader reader(String content) {
+		return new BufferedReader(new StringReader(content));
+	}
+}
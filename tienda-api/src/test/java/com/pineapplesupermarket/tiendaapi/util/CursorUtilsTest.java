@@ -0,0 +1,122 @@
+package com.pineapplesupermarket.tiendaapi.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort.Direction;
+
+import com.pineapplesupermarket.tiendaapi.enums.ProductSortEnum;
+import com.pineapplesupermarket.tiendaapi.util.CursorUtils.Posicion;
+
+/**
+ *Pruebas de la codificación de los cursores de paginación
+ *@author Raquel de la Rosa 
+ *@version 1.0
+ */
+class CursorUtilsTest {
+
+	@Test
+	void idCursorRoundTrip() {
+		String cursor = CursorUtils.encode(42);
+		assertEquals(42L, CursorUtils.decode(cursor));
+		//el orden por id ascendente conserva el formato anterior
+		assertEquals(cursor, CursorUtils.encode(ProductSortEnum.ID, Direction.ASC, null, 42));
+	}
+
+	@Test
+	void idDescCursorRoundTrip() {
+		String cursor = CursorUtils.encode(ProductSortEnum.ID, Direction.DESC, null, 42);
+		Posicion posicion = CursorUtils.decode(cursor, ProductSortEnum.ID, Direction.DESC);
+		assertNull(posicion.getValue());
+		assertEquals(42, posicion.getIdProduct());
+	}
+
+	@Test
+	void emptyCursorIsFirstPage() {
+		assertNull(CursorUtils.decode(null));
+		assertNull(CursorUtils.decode(" "));
+		assertNull(CursorUtils.decode("", ProductSortEnum.PRICE, Direction.DESC));
+	}
+
+	@Test
+	void priceCursorKeepsExactDecimal() {
+		String cursor = CursorUtils.encode(ProductSortEnum.PRICE, Direction.DESC, 10.1d, 7);
+		Posicion posicion = CursorUtils.decode(cursor, ProductSortEnum.PRICE, Direction.DESC);
+		assertEquals(new BigDecimal("10.1"), posicion.getValue());
+		assertEquals(7, posicion.getIdProduct());
+	}
+
+	@Test
+	void modificationDateCursorRoundTrip() {
+		Date fecha = new Date(1700000000000L);
+		String cursor = CursorUtils.encode(ProductSortEnum.MODIFICATION_DATE, Direction.ASC, fecha, 3);
+		Posicion posicion = CursorUtils.decode(cursor, ProductSortEnum.MODIFICATION_DATE, Direction.ASC);
+		assertEquals(fecha, posicion.getValue());
+		assertEquals(3, posicion.getIdProduct());
+	}
+
+	@Test
+	void nullModificationDateCursor() {
+		String cursor = CursorUtils.encode(ProductSortEnum.MODIFICATION_DATE, Direction.DESC, null, 9);
+		Posicion posicion = CursorUtils.decode(cursor, ProductSortEnum.MODIFICATION_DATE, Direction.DESC);
+		assertNull(posicion.getValue());
+		assertEquals(9, posicion.getIdProduct());
+	}
+
+	@Test
+	void rejectsNullValueForNotNullColumn() {
+		String cursor = CursorUtils.encode(ProductSortEnum.QUANTITY, Direction.ASC, null, 9);
+		assertThrows(IllegalArgumentException.class,
+				() -> CursorUtils.decode(cursor, ProductSortEnum.QUANTITY, Direction.ASC));
+	}
+
+	@Test
+	void rejectsGarbage() {
+		assertThrows(IllegalArgumentException.class, () -> CursorUtils.decode("%%%"));
+		assertThrows(IllegalArgumentException.class, () -> CursorUtils.decode(base64("id:abc")));
+		assertThrows(IllegalArgumentException.class, () -> CursorUtils.decode(base64("nothing")));
+		assertThrows(IllegalArgumentException.class,
+				() -> CursorUtils.decode(base64("PRICE-ASC:12"), ProductSortEnum.PRICE, Direction.ASC));
+		assertThrows(IllegalArgumentException.class,
+				() -> CursorUtils.decode(base64("PRICE-ASC:abc:12"), ProductSortEnum.PRICE, Direction.ASC));
+	}
+
+	@Test
+	void rejectsTamperedCursor() {
+		String cursor = CursorUtils.encode(ProductSortEnum.QUANTITY, Direction.ASC, 5, 12);
+		assertEquals("QUANTITY-ASC:5:12", new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+		assertThrows(IllegalArgumentException.class,
+				() -> CursorUtils.decode(base64("QUANTITY-ASC:5x:12"), ProductSortEnum.QUANTITY, Direction.ASC));
+		assertThrows(IllegalArgumentException.class,
+				() -> CursorUtils.decode(base64("QUANTITY-ASC:5:12x"), ProductSortEnum.QUANTITY, Direction.ASC));
+		assertThrows(IllegalArgumentException.class,
+				() -> CursorUtils.decode("*" + cursor, ProductSortEnum.QUANTITY, Direction.ASC));
+	}
+
+	@Test
+	void rejectsSortOrDirectionMismatch() {
+		String price = CursorUtils.encode(ProductSortEnum.PRICE, Direction.ASC, 10.5d, 3);
+		assertThrows(IllegalArgumentException.class,
+				() -> CursorUtils.decode(price, ProductSortEnum.PRICE, Direction.DESC));
+		assertThrows(IllegalArgumentException.class,
+				() -> CursorUtils.decode(price, ProductSortEnum.QUANTITY, Direction.ASC));
+		assertThrows(IllegalArgumentException.class, () -> CursorUtils.decode(price));
+
+		String id = CursorUtils.encode(3);
+		assertThrows(IllegalArgumentException.class,
+				() -> CursorUtils.decode(id, ProductSortEnum.PRICE, Direction.ASC));
+		assertThrows(IllegalArgumentException.class,
+				() -> CursorUtils.decode(id, ProductSortEnum.ID, Direction.DESC));
+	}
+
+	private static String base64(String value) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+}